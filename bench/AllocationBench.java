@@ -0,0 +1,144 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ *    Heap allocated by a service per request, for each given URL, read from its actuator metric
+ *    jvm.gc.memory.allocated while --clients clients call the URL in a loop.
+ *
+ *    The metric only moves when a young collection happens, so the bench waits for it to change,
+ *    notes it with the number of answers so far, lets at least --requests more answers come back and
+ *    waits for the next change: the bytes between two collections divided by the answers between
+ *    them. The polling of the metric (every 20 ms) is counted too, which is the same for every URL.
+ *    One line per URL with bytes per request and requests per second, then a JSON summary line.
+ *
+ *    Run it from source (JDK 11+) against a service exposing the metrics endpoint:
+ *
+ *    java bench/AllocationBench.java --urls "http://localhost:8200/api/v1/cars/all?size=500,http://localhost:8200/api/v1/cars/byUserId/1?size=50"
+ */
+public class AllocationBench {
+
+    private static final Pattern VALUE = Pattern.compile("\"value\"\\s*:\\s*([0-9.Ee+-]+)");
+
+    public static void main(String[] args) throws Exception {
+        List<String> urls = List.of("http://localhost:8200/api/v1/cars/all?size=500");
+        String metrics = null;
+        int clients = 4;
+        long requests = 20_000;
+        long warmup = 5_000;
+        for (int i = 0; i < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--urls": urls = Arrays.asList(value.split(",")); break;
+                case "--metrics": metrics = value; break;
+                case "--clients": clients = Integer.parseInt(value); break;
+                case "--requests": requests = Long.parseLong(value); break;
+                case "--warmup": warmup = Long.parseLong(value); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        System.out.printf(Locale.ROOT, "%d clients%n%-60s %14s %12s%n", clients, "url", "bytes/request", "requests/s");
+        StringBuilder json = new StringBuilder();
+        for (String url : urls) {
+            URI uri = URI.create(url);
+            URI allocated = URI.create(metrics != null ? metrics
+                    : uri.getScheme() + "://" + uri.getAuthority() + "/actuator/metrics/jvm.gc.memory.allocated");
+            Load load = new Load(client, uri, clients);
+            load.awaitAnswers(warmup);
+            double before = awaitChange(client, allocated, allocated(client, allocated));
+            long answersBefore = load.answers.get();
+            long start = System.nanoTime();
+            load.awaitAnswers(answersBefore + requests);
+            double after = awaitChange(client, allocated, allocated(client, allocated));
+            long answers = load.answers.get() - answersBefore;
+            double seconds = (System.nanoTime() - start) / 1e9;
+            load.stop();
+            if (load.errors.get() > 0)
+                throw new IllegalStateException(url + " failed " + load.errors.get() + " times");
+            double perRequest = (after - before) / answers;
+            System.out.printf(Locale.ROOT, "%-60s %,14.0f %12.1f%n", url, perRequest, answers / seconds);
+            json.append(json.length() == 0 ? "" : ",")
+                    .append(String.format(Locale.ROOT, "{\"url\":\"%s\",\"bytesPerRequest\":%.0f,\"requestsPerSecond\":%.1f}",
+                            url, perRequest, answers / seconds));
+        }
+        System.out.println("[" + json + "]");
+        System.exit(0);
+    }
+
+    // Polls the metric until a collection changes it
+    private static double awaitChange(HttpClient client, URI allocated, double last) throws Exception {
+        double value;
+        do {
+            Thread.sleep(20);
+            value = allocated(client, allocated);
+        } while (value == last);
+        return value;
+    }
+
+    private static double allocated(HttpClient client, URI allocated) throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(allocated).build(), HttpResponse.BodyHandlers.ofString());
+        Matcher matcher = VALUE.matcher(response.body());
+        if (response.statusCode() != 200 || !matcher.find())
+            throw new IllegalStateException(allocated + " answered " + response.statusCode() + ": is the metrics endpoint exposed?");
+        return Double.parseDouble(matcher.group(1));
+    }
+
+    private static class Load {
+
+        private final AtomicLong answers = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final List<Thread> threads = new ArrayList<>();
+        private final CountDownLatch stopped;
+        private volatile boolean running = true;
+
+        Load(HttpClient client, URI uri, int clients) {
+            stopped = new CountDownLatch(clients);
+            HttpRequest request = HttpRequest.newBuilder(uri).header("Accept", "application/json").timeout(Duration.ofSeconds(30)).build();
+            for (int c = 0; c < clients; c++) {
+                Thread thread = new Thread(() -> {
+                    try {
+                        while (running) {
+                            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                            (response.statusCode() == 200 ? answers : errors).incrementAndGet();
+                        }
+                    } catch (IOException ex) {
+                        errors.incrementAndGet();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        stopped.countDown();
+                    }
+                });
+                thread.setDaemon(true);
+                thread.start();
+                threads.add(thread);
+            }
+        }
+
+        void awaitAnswers(long count) throws InterruptedException {
+            while (answers.get() < count && errors.get() == 0)
+                Thread.sleep(5);
+        }
+
+        void stop() throws InterruptedException {
+            running = false;
+            stopped.await();
+        }
+    }
+}
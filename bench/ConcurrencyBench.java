@@ -0,0 +1,169 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ *    Finds the highest number of concurrent clients an endpoint sustains within a latency SLO.
+ *
+ *    Closed-loop load: at each concurrency level, that many clients send requests back to back for
+ *    --duration (after --warmup), picking a random id in 1..--ids for the {id} of each URL. A level
+ *    is sustained when p99 stays under --slo-p99-ms and errors under --max-error-rate; the first
+ *    level that is not ends the run. One line per level, then a JSON summary line.
+ *
+ *    Run it from source (JDK 11+), once against services started with threads.virtual.enabled=false
+ *    and once with true, e.g. through bench/compare-thread-modes.sh:
+ *
+ *    java bench/ConcurrencyBench.java --label platform --levels 50,100,200,400,800,1600 \
+ *         --url http://localhost:8100/api/v1/users/cars-and-lapTops/{id} \
+ *         --url http://localhost:8200/api/v1/cars/detail-car-and-user/{id}
+ */
+public class ConcurrencyBench {
+
+    public static void main(String[] args) throws Exception {
+        List<String> urls = new ArrayList<>();
+        String label = "run";
+        int[] levels = {50, 100, 200, 400, 800, 1600};
+        Duration duration = Duration.ofSeconds(20);
+        Duration warmup = Duration.ofSeconds(5);
+        long sloP99Millis = 500;
+        double maxErrorRate = 0.01;
+        int ids = 1000;
+        for (int i = 0; i < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--url": urls.add(value); break;
+                case "--label": label = value; break;
+                case "--levels": levels = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray(); break;
+                case "--duration": duration = Duration.ofSeconds(Long.parseLong(value)); break;
+                case "--warmup": warmup = Duration.ofSeconds(Long.parseLong(value)); break;
+                case "--slo-p99-ms": sloP99Millis = Long.parseLong(value); break;
+                case "--max-error-rate": maxErrorRate = Double.parseDouble(value); break;
+                case "--ids": ids = Integer.parseInt(value); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (urls.isEmpty())
+            throw new IllegalArgumentException("At least one --url is required");
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newCachedThreadPool())
+                .build();
+        StringBuilder json = new StringBuilder();
+        for (String url : urls) {
+            System.out.printf(Locale.ROOT, "%n%s %s%n%8s %10s %9s %9s %9s %8s%n", label, url, "clients", "req/s", "p50 ms", "p99 ms", "max ms", "errors");
+            int sustained = 0;
+            for (int level : levels) {
+                run(client, url, level, warmup, ids);
+                Result result = run(client, url, level, duration, ids);
+                boolean ok = result.percentileMillis(0.99) <= sloP99Millis && result.errorRate() <= maxErrorRate;
+                System.out.printf(Locale.ROOT, "%8d %10.1f %9.1f %9.1f %9.1f %7.2f%% %s%n", level, result.throughput(duration),
+                        result.percentileMillis(0.50), result.percentileMillis(0.99), result.percentileMillis(1.0),
+                        result.errorRate() * 100, ok ? "" : "<- over SLO");
+                if (!ok)
+                    break;
+                sustained = level;
+            }
+            System.out.printf("max sustainable concurrency: %d%n", sustained);
+            json.append(json.length() == 0 ? "" : ",")
+                    .append(String.format(Locale.ROOT, "{\"label\":\"%s\",\"url\":\"%s\",\"maxSustainableConcurrency\":%d}", label, url, sustained));
+        }
+        System.out.println("[" + json + "]");
+        System.exit(0);
+    }
+
+    private static Result run(HttpClient client, String url, int clients, Duration duration, int ids) throws InterruptedException {
+        long end = System.nanoTime() + duration.toNanos();
+        List<long[]> latencies = new ArrayList<>();
+        int[][] counts = new int[clients][2];
+        CountDownLatch done = new CountDownLatch(clients);
+        for (int c = 0; c < clients; c++) {
+            long[] samples = new long[1 << 16];
+            latencies.add(samples);
+            int[] count = counts[c];
+            Thread thread = new Thread(() -> {
+                try {
+                    while (System.nanoTime() < end) {
+                        String target = url.replace("{id}", String.valueOf(1 + ThreadLocalRandom.current().nextInt(ids)));
+                        HttpRequest request = HttpRequest.newBuilder(URI.create(target)).timeout(Duration.ofSeconds(30)).GET().build();
+                        long start = System.nanoTime();
+                        boolean failed;
+                        try {
+                            failed = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() >= 400;
+                        } catch (IOException ex) {
+                            failed = true;
+                        }
+                        if (count[0] < samples.length)
+                            samples[count[0]] = System.nanoTime() - start;
+                        count[0]++;
+                        if (failed)
+                            count[1]++;
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+        return new Result(latencies, counts);
+    }
+
+    private static class Result {
+
+        private final long[] sorted;
+        private final long requests;
+        private final long errors;
+
+        Result(List<long[]> latencies, int[][] counts) {
+            long requests = 0;
+            long errors = 0;
+            int kept = 0;
+            for (int c = 0; c < counts.length; c++) {
+                requests += counts[c][0];
+                errors += counts[c][1];
+                kept += Math.min(counts[c][0], latencies.get(c).length);
+            }
+            long[] all = new long[kept];
+            int next = 0;
+            for (int c = 0; c < counts.length; c++) {
+                int n = Math.min(counts[c][0], latencies.get(c).length);
+                System.arraycopy(latencies.get(c), 0, all, next, n);
+                next += n;
+            }
+            Arrays.sort(all);
+            this.sorted = all;
+            this.requests = requests;
+            this.errors = errors;
+        }
+
+        double throughput(Duration duration) {
+            return requests / (duration.toNanos() / 1e9);
+        }
+
+        double errorRate() {
+            return requests == 0 ? 1 : (double) errors / requests;
+        }
+
+        double percentileMillis(double percentile) {
+            if (sorted.length == 0)
+                return Double.MAX_VALUE;
+            int index = Math.min(sorted.length - 1, Math.max(0, (int) Math.ceil(percentile * sorted.length) - 1));
+            return sorted[index] / 1e6;
+        }
+    }
+}
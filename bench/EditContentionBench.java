@@ -0,0 +1,226 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ *    Compares the write throughput of the full update (PUT: the service reads the car, copies every
+ *    field and saves it) with the conditional one (PATCH: one UPDATE on id and version) when many
+ *    clients edit the same few cars.
+ *
+ *    Each client changes the price of a random car among 1..--ids until it succeeds, retrying on 409.
+ *    A PUT client reads the car before each write, since it has to send every field back; when the
+ *    saved version is not the one it read plus one, the PUT silently overwrote another client's edit.
+ *    A PATCH client sends the version it last saw; a 409 carries the current version as its ETag, and
+ *    the client retries on it at once, without reading the car again.
+ *
+ *    The criterion is the kept writes per second: successful writes minus those that silently
+ *    overwrote another edit, i.e. the edits that were not lost. One line per mode with the kept and
+ *    the successful writes per second, the overwrites, the conflicts and the latency of a successful
+ *    write (retries included), then a JSON summary line.
+ *
+ *    Run it from source (JDK 11+) against a car-service holding at least --ids cars:
+ *
+ *    java bench/EditContentionBench.java --base http://localhost:8200/api/v1/cars --clients 64 --ids 5
+ */
+public class EditContentionBench {
+
+    private static final Pattern VERSION = Pattern.compile("\"version\":(\\d+)");
+
+    public static void main(String[] args) throws Exception {
+        String base = "http://localhost:8200/api/v1/cars";
+        int clients = 64;
+        int ids = 5;
+        Duration duration = Duration.ofSeconds(20);
+        Duration warmup = Duration.ofSeconds(5);
+        List<String> modes = List.of("put", "patch");
+        for (int i = 0; i < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--base": base = value; break;
+                case "--clients": clients = Integer.parseInt(value); break;
+                case "--ids": ids = Integer.parseInt(value); break;
+                case "--duration": duration = Duration.ofSeconds(Long.parseLong(value)); break;
+                case "--warmup": warmup = Duration.ofSeconds(Long.parseLong(value)); break;
+                case "--modes": modes = Arrays.asList(value.split(",")); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newCachedThreadPool())
+                .build();
+        System.out.printf(Locale.ROOT, "%s, %d clients on %d cars%n%6s %9s %10s %12s %10s %9s %9s %8s%n", base, clients, ids,
+                "mode", "kept/s", "writes/s", "overwrites/s", "409s/s", "p50 ms", "p99 ms", "errors");
+        StringBuilder json = new StringBuilder();
+        for (String mode : modes) {
+            run(client, base, mode, clients, ids, warmup);
+            Result result = run(client, base, mode, clients, ids, duration);
+            double seconds = duration.toNanos() / 1e9;
+            System.out.printf(Locale.ROOT, "%6s %9.1f %10.1f %12.1f %10.1f %9.1f %9.1f %8d%n", mode,
+                    (result.writes - result.overwrites) / seconds, result.writes / seconds, result.overwrites / seconds,
+                    result.conflicts / seconds, result.percentileMillis(0.50), result.percentileMillis(0.99), result.errors);
+            json.append(json.length() == 0 ? "" : ",")
+                    .append(String.format(Locale.ROOT, "{\"mode\":\"%s\",\"keptWritesPerSecond\":%.1f,\"writesPerSecond\":%.1f,"
+                                    + "\"overwritesPerSecond\":%.1f,\"conflictsPerSecond\":%.1f,\"p99Ms\":%.1f}", mode,
+                            (result.writes - result.overwrites) / seconds, result.writes / seconds,
+                            result.overwrites / seconds, result.conflicts / seconds, result.percentileMillis(0.99)));
+        }
+        System.out.println("[" + json + "]");
+        System.exit(0);
+    }
+
+    private static Result run(HttpClient client, String base, String mode, int clients, int ids, Duration duration) throws InterruptedException {
+        long end = System.nanoTime() + duration.toNanos();
+        List<long[]> latencies = new ArrayList<>();
+        long[][] counts = new long[clients][4];
+        CountDownLatch done = new CountDownLatch(clients);
+        for (int c = 0; c < clients; c++) {
+            long[] samples = new long[1 << 16];
+            latencies.add(samples);
+            long[] count = counts[c];
+            Thread thread = new Thread(() -> {
+                Map<Integer, Long> versions = new HashMap<>();
+                try {
+                    while (System.nanoTime() < end) {
+                        int id = 1 + ThreadLocalRandom.current().nextInt(ids);
+                        long start = System.nanoTime();
+                        int status;
+                        do {
+                            status = "patch".equals(mode) ? patch(client, base, id, versions) : put(client, base, id, count);
+                            if (status == 409)
+                                count[1]++;
+                        } while (status == 409 && System.nanoTime() < end);
+                        if (status == 409)
+                            break;
+                        if (status >= 400) {
+                            count[2]++;
+                            continue;
+                        }
+                        int n = (int) count[0]++;
+                        if (n < samples.length)
+                            samples[n] = System.nanoTime() - start;
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+        return new Result(latencies, counts);
+    }
+
+    private static int put(HttpClient client, String base, int id, long[] count) throws InterruptedException {
+        Long version = version(send(client, HttpRequest.newBuilder(URI.create(base + "/" + id)).GET()));
+        if (version == null)
+            return 500;
+        String body = String.format(Locale.ROOT, "{\"id\":%d,\"name\":\"bench\",\"brand\":\"bench\",\"price\":%d,\"userId\":1}",
+                id, ThreadLocalRandom.current().nextInt(100_000));
+        HttpResponse<String> response = send(client, HttpRequest.newBuilder(URI.create(base + "/" + id))
+                .header("Content-Type", "application/json").PUT(HttpRequest.BodyPublishers.ofString(body)));
+        if (response == null)
+            return 500;
+        Long saved = response.statusCode() < 300 ? version(response) : null;
+        if (saved != null && saved != version + 1)
+            count[3]++;
+        return response.statusCode();
+    }
+
+    private static int patch(HttpClient client, String base, int id, Map<Integer, Long> versions) throws InterruptedException {
+        Long version = versions.get(id);
+        if (version == null) {
+            // First edit of this car by this client: read the current version
+            version = version(send(client, HttpRequest.newBuilder(URI.create(base + "/" + id)).GET()));
+            if (version == null)
+                return 500;
+        }
+        String body = String.format(Locale.ROOT, "{\"price\":%d,\"version\":%d}", ThreadLocalRandom.current().nextInt(100_000), version);
+        HttpResponse<String> response = send(client, HttpRequest.newBuilder(URI.create(base + "/" + id))
+                .header("Content-Type", "application/json").method("PATCH", HttpRequest.BodyPublishers.ofString(body)));
+        versions.put(id, response != null && response.statusCode() == 409 ? etag(response) : version(response));
+        return response == null ? 500 : response.statusCode();
+    }
+
+    private static HttpResponse<String> send(HttpClient client, HttpRequest.Builder request) throws InterruptedException {
+        try {
+            return client.send(request.timeout(Duration.ofSeconds(30)).build(), HttpResponse.BodyHandlers.ofString());
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    private static Long version(HttpResponse<String> response) {
+        if (response == null || response.statusCode() >= 300)
+            return null;
+        Matcher matcher = VERSION.matcher(response.body());
+        return matcher.find() ? Long.valueOf(matcher.group(1)) : null;
+    }
+
+    // The current version a 409 carries, e.g. ETag: "7"
+    private static Long etag(HttpResponse<String> response) {
+        return response.headers().firstValue("ETag").map(etag -> Long.valueOf(etag.replace("\"", ""))).orElse(null);
+    }
+
+    private static class Result {
+
+        private final long[] sorted;
+        private final long writes;
+        private final long conflicts;
+        private final long errors;
+        private final long overwrites;
+
+        Result(List<long[]> latencies, long[][] counts) {
+            long writes = 0;
+            long conflicts = 0;
+            long errors = 0;
+            long overwrites = 0;
+            int kept = 0;
+            for (int c = 0; c < counts.length; c++) {
+                writes += counts[c][0];
+                conflicts += counts[c][1];
+                errors += counts[c][2];
+                overwrites += counts[c][3];
+                kept += (int) Math.min(counts[c][0], latencies.get(c).length);
+            }
+            long[] all = new long[kept];
+            int next = 0;
+            for (int c = 0; c < counts.length; c++) {
+                int n = (int) Math.min(counts[c][0], latencies.get(c).length);
+                System.arraycopy(latencies.get(c), 0, all, next, n);
+                next += n;
+            }
+            Arrays.sort(all);
+            this.sorted = all;
+            this.writes = writes;
+            this.conflicts = conflicts;
+            this.errors = errors;
+            this.overwrites = overwrites;
+        }
+
+        double percentileMillis(double percentile) {
+            if (sorted.length == 0)
+                return Double.MAX_VALUE;
+            int index = Math.min(sorted.length - 1, Math.max(0, (int) Math.ceil(percentile * sorted.length) - 1));
+            return sorted[index] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+import com.ndourcodeur.carservice.ids.IdGenerator;
+import com.ndourcodeur.carservice.ids.RandomIdGenerator;
+import com.ndourcodeur.carservice.ids.TimeOrderedIdGenerator;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.ToLongFunction;
+
+/**
+ *    Ids per second of UUID.randomUUID() against the time-ordered generator, with 1..N threads
+ *    generating as fast as they can. Each thread also checks that its time-ordered ids increase.
+ *
+ *    Run it from source (JDK 11+) on the compiled car-service classes:
+ *
+ *    (cd car-service && mvn -q compile)
+ *    java -cp car-service/target/classes bench/IdGeneratorBench.java --threads 1,4,16 --duration 5
+ */
+public class IdGeneratorBench {
+
+    private static volatile long sink;
+
+    public static void main(String[] args) throws Exception {
+        int[] threads = {1, 4, 16};
+        Duration duration = Duration.ofSeconds(5);
+        Duration warmup = Duration.ofSeconds(2);
+        for (int i = 0; i < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--threads": threads = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray(); break;
+                case "--duration": duration = Duration.ofSeconds(Long.parseLong(value)); break;
+                case "--warmup": warmup = Duration.ofSeconds(Long.parseLong(value)); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        IdGenerator random = new RandomIdGenerator();
+        IdGenerator timeOrdered = new TimeOrderedIdGenerator(1);
+        Map<String, ToLongFunction<long[]>> candidates = new LinkedHashMap<>();
+        candidates.put("UUID.randomUUID", last -> random.nextUuid().getLeastSignificantBits());
+        candidates.put("time-ordered UUID", last -> ordered(last, timeOrdered.nextUuid().getMostSignificantBits()));
+        candidates.put("time-ordered long", last -> ordered(last, timeOrdered.nextId()));
+
+        System.out.printf(Locale.ROOT, "%-18s %8s %14s%n", "generator", "threads", "ids/s");
+        StringBuilder json = new StringBuilder();
+        for (Map.Entry<String, ToLongFunction<long[]>> candidate : candidates.entrySet()) {
+            for (int count : threads) {
+                run(candidate.getValue(), count, warmup);
+                double perSecond = run(candidate.getValue(), count, duration) / (duration.toNanos() / 1e9);
+                System.out.printf(Locale.ROOT, "%-18s %8d %,14.0f%n", candidate.getKey(), count, perSecond);
+                json.append(json.length() == 0 ? "" : ",")
+                        .append(String.format(Locale.ROOT, "{\"generator\":\"%s\",\"threads\":%d,\"idsPerSecond\":%.0f}",
+                                candidate.getKey(), count, perSecond));
+            }
+        }
+        System.out.println("[" + json + "]");
+    }
+
+    // The UUID's first 64 bits are only non-decreasing within a thread, the long ids are increasing
+    private static long ordered(long[] last, long id) {
+        if (Long.compareUnsigned(id, last[0]) < 0)
+            throw new IllegalStateException("Id " + Long.toHexString(id) + " after " + Long.toHexString(last[0]));
+        last[0] = id;
+        return id;
+    }
+
+    private static long run(ToLongFunction<long[]> next, int threads, Duration duration) throws InterruptedException {
+        long end = System.nanoTime() + duration.toNanos();
+        long[] counts = new long[threads];
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int index = t;
+            Thread thread = new Thread(() -> {
+                long[] last = new long[1];
+                long count = 0;
+                long hash = 0;
+                // Check the clock every 1024 ids only
+                while ((count & 1023) != 0 || System.nanoTime() < end) {
+                    hash ^= next.applyAsLong(last);
+                    count++;
+                }
+                sink = hash;
+                counts[index] = count;
+                done.countDown();
+            });
+            thread.start();
+        }
+        done.await();
+        return Arrays.stream(counts).sum();
+    }
+}
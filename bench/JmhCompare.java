@@ -0,0 +1,110 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ *    Compares two JMH result files of the benchmarks module (-rf json), e.g. of the previous release
+ *    and of this one: for each benchmark and parameters found in both, the score and the bytes
+ *    allocated per operation (with -prof gc) before and after, and the change in percent.
+ *
+ *    A change counts when it exceeds --threshold percent and the two scores' error margins do not
+ *    overlap. Slower (or, for throughput, lower) scores are printed as REGRESSION, and with --fail
+ *    true the exit code is then 1. One line per benchmark, then a JSON summary line.
+ *
+ *    Run it from source (JDK 11+) with Jackson on the class path:
+ *
+ *    java -cp $(cat /tmp/car-service.cp) bench/JmhCompare.java --baseline jmh-1.2.json --candidate jmh-1.3.json
+ */
+public class JmhCompare {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        String baseline = null;
+        String candidate = null;
+        double threshold = 5;
+        boolean fail = false;
+        for (int i = 0; i < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--baseline": baseline = value; break;
+                case "--candidate": candidate = value; break;
+                case "--threshold": threshold = Double.parseDouble(value); break;
+                case "--fail": fail = Boolean.parseBoolean(value); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (baseline == null || candidate == null)
+            throw new IllegalArgumentException("--baseline and --candidate are required");
+
+        Map<String, JsonNode> before = results(baseline);
+        Map<String, JsonNode> after = results(candidate);
+        System.out.printf(Locale.ROOT, "%-90s %14s %14s %8s %12s %12s%n", "benchmark", "baseline", "candidate", "change", "B/op before", "B/op after");
+        StringBuilder json = new StringBuilder();
+        int regressions = 0;
+        for (Map.Entry<String, JsonNode> entry : after.entrySet()) {
+            JsonNode old = before.get(entry.getKey());
+            if (old == null)
+                continue;
+            JsonNode now = entry.getValue();
+            double oldScore = old.at("/primaryMetric/score").asDouble();
+            double newScore = now.at("/primaryMetric/score").asDouble();
+            double change = (newScore - oldScore) / oldScore * 100;
+            // Lower is better for times, higher for throughput ("thrpt")
+            boolean worse = "thrpt".equals(now.get("mode").asText()) ? change < 0 : change > 0;
+            boolean significant = Math.abs(change) > threshold && !overlap(old, now);
+            String verdict = !significant ? "" : worse ? "REGRESSION" : "improvement";
+            if (significant && worse)
+                regressions++;
+            double oldBytes = allocated(old);
+            double newBytes = allocated(now);
+            System.out.printf(Locale.ROOT, "%-90s %14.3f %14.3f %+7.1f%% %12.0f %12.0f %s%n", entry.getKey(),
+                    oldScore, newScore, change, oldBytes, newBytes, verdict);
+            json.append(json.length() == 0 ? "" : ",")
+                    .append(String.format(Locale.ROOT, "{\"benchmark\":\"%s\",\"unit\":\"%s\",\"baseline\":%.3f,\"candidate\":%.3f,\"changePercent\":%.1f,"
+                                    + "\"baselineBytesPerOp\":%s,\"candidateBytesPerOp\":%s,\"verdict\":\"%s\"}",
+                            entry.getKey(), now.at("/primaryMetric/scoreUnit").asText(), oldScore, newScore, change,
+                            bytes(oldBytes), bytes(newBytes), verdict));
+        }
+        System.out.println("[" + json + "]");
+        System.exit(fail && regressions > 0 ? 1 : 0);
+    }
+
+    // By benchmark method and parameters, e.g. JsonBenchmark.writeCars{blackbird=true, format=json, size=500}
+    private static Map<String, JsonNode> results(String file) throws Exception {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : MAPPER.readTree(new File(file))) {
+            String benchmark = result.get("benchmark").asText();
+            Map<String, String> params = new TreeMap<>();
+            if (result.has("params"))
+                result.get("params").fields().forEachRemaining(param -> params.put(param.getKey(), param.getValue().asText()));
+            results.put(benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1)
+                    + (params.isEmpty() ? "" : params.toString()), result);
+        }
+        return results;
+    }
+
+    // Confidence intervals are NaN with a single iteration: then only the threshold applies
+    private static boolean overlap(JsonNode before, JsonNode after) {
+        JsonNode a = before.at("/primaryMetric/scoreConfidence");
+        JsonNode b = after.at("/primaryMetric/scoreConfidence");
+        if (!a.get(0).isNumber() || !b.get(0).isNumber())
+            return false;
+        return a.get(0).asDouble() <= b.get(1).asDouble() && b.get(0).asDouble() <= a.get(1).asDouble();
+    }
+
+    // Without -prof gc there is no allocation figure
+    private static String bytes(double bytes) {
+        return Double.isNaN(bytes) ? "null" : String.format(Locale.ROOT, "%.0f", bytes);
+    }
+
+    private static double allocated(JsonNode result) {
+        JsonNode norm = result.at("/secondaryMetrics/\u00b7gc.alloc.rate.norm/score");
+        return norm.isMissingNode() ? Double.NaN : norm.asDouble();
+    }
+}
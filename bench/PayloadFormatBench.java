@@ -0,0 +1,85 @@
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ *    Bytes on the wire and decode time of one answer of a service, in JSON, Smile and CBOR, with
+ *    and without gzip. The answer is fetched once per combination; decoding (inflating first when
+ *    gzipped) is then repeated --iterations times after as many warm-up rounds.
+ *
+ *    Run it from source (JDK 11+) with Jackson on the class path, e.g. against a page of cars:
+ *
+ *    (cd car-service && mvn -q dependency:build-classpath -Dmdep.outputFile=/tmp/car-service.cp)
+ *    java -cp $(cat /tmp/car-service.cp) bench/PayloadFormatBench.java \
+ *         --url "http://localhost:8200/api/v1/cars/byUserId/1?size=500"
+ */
+public class PayloadFormatBench {
+
+    public static void main(String[] args) throws Exception {
+        String url = null;
+        int iterations = 2000;
+        for (int i = 0; i < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--url": url = value; break;
+                case "--iterations": iterations = Integer.parseInt(value); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (url == null)
+            throw new IllegalArgumentException("--url is required");
+
+        Map<String, JsonFactory> formats = new LinkedHashMap<>();
+        formats.put("application/json", new JsonFactory());
+        formats.put("application/x-jackson-smile", new SmileFactory());
+        formats.put("application/cbor", new CBORFactory());
+
+        HttpClient client = HttpClient.newHttpClient();
+        System.out.printf(Locale.ROOT, "%s%n%-28s %6s %12s %14s%n", url, "format", "gzip", "wire bytes", "decode us");
+        StringBuilder json = new StringBuilder();
+        for (Map.Entry<String, JsonFactory> format : formats.entrySet()) {
+            ObjectMapper mapper = new ObjectMapper(format.getValue());
+            for (boolean gzip : new boolean[]{false, true}) {
+                HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url)).header("Accept", format.getKey());
+                if (gzip)
+                    request.header("Accept-Encoding", "gzip");
+                HttpResponse<byte[]> response = client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+                String contentType = response.headers().firstValue("Content-Type").orElse("");
+                if (response.statusCode() != 200 || !contentType.startsWith(format.getKey()))
+                    throw new IllegalStateException(format.getKey() + " answered with " + response.statusCode() + " " + contentType);
+                byte[] body = response.body();
+                boolean gzipped = response.headers().firstValue("Content-Encoding").orElse("").contains("gzip");
+                for (int i = 0; i < iterations; i++)
+                    decode(mapper, body, gzipped);
+                long start = System.nanoTime();
+                for (int i = 0; i < iterations; i++)
+                    decode(mapper, body, gzipped);
+                double micros = (System.nanoTime() - start) / 1e3 / iterations;
+                System.out.printf(Locale.ROOT, "%-28s %6s %12d %14.1f%n", format.getKey(), gzipped ? "yes" : "no", body.length, micros);
+                json.append(json.length() == 0 ? "" : ",")
+                        .append(String.format(Locale.ROOT, "{\"format\":\"%s\",\"gzip\":%b,\"wireBytes\":%d,\"decodeMicros\":%.1f}",
+                                format.getKey(), gzipped, body.length, micros));
+            }
+        }
+        System.out.println("[" + json + "]");
+    }
+
+    private static Object decode(ObjectMapper mapper, byte[] body, boolean gzipped) throws IOException {
+        try (InputStream in = gzipped ? new GZIPInputStream(new ByteArrayInputStream(body)) : new ByteArrayInputStream(body)) {
+            return mapper.readTree(in);
+        }
+    }
+}
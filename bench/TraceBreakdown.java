@@ -0,0 +1,184 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ *    Where the time of one endpoint goes, hop by hop: calls --url --requests times, each call
+ *    starting a sampled trace of its own (b3 header), then reads the spans of the trace back from
+ *    every service (GET /api/v1/tracing/spans, the services run with tracing.in-memory.enabled=true).
+ *
+ *    Spans are grouped by their path from the root (service:span > service:span > ...) and each
+ *    group is printed, as a tree, with its count and p50/p99/max in ms, then a JSON summary line. With --budget
+ *    "name=ms,..." the p99 of every span of that name must stay within its budget, otherwise the
+ *    offending spans are printed and the exit code is 1: a latency regression of one hop.
+ *
+ *    Run it from source (JDK 11+) with Jackson on the class path:
+ *
+ *    (cd car-service && mvn -q dependency:build-classpath -Dmdep.outputFile=/tmp/car-service.cp)
+ *    java -cp $(cat /tmp/car-service.cp) bench/TraceBreakdown.java \
+ *         --url "http://localhost:8100/api/v1/users/cars-and-lapTops/1" \
+ *         --budget "CarRepository.findResponsesByUserIdAfter=20,LapTopRepository.findResponsesByUserIdAfter=20"
+ */
+public class TraceBreakdown {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        String url = "http://localhost:8100/api/v1/users/cars-and-lapTops/1";
+        Map<String, String> services = new LinkedHashMap<>(Map.of(
+                "user-service", "http://localhost:8100", "car-service", "http://localhost:8200", "laptop-service", "http://localhost:8300"));
+        int requests = 200;
+        int warmup = 50;
+        Map<String, Double> budgets = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--url": url = value; break;
+                case "--services": services = pairs(value, v -> v); break;
+                case "--requests": requests = Integer.parseInt(value); break;
+                case "--warmup": warmup = Integer.parseInt(value); break;
+                case "--budget": budgets = pairs(value, Double::parseDouble); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        for (int i = 0; i < warmup; i++)
+            call(client, url, hex(), hex());
+        for (String base : services.values())
+            client.send(HttpRequest.newBuilder(URI.create(base + "/api/v1/tracing/spans")).DELETE().build(), HttpResponse.BodyHandlers.discarding());
+
+        Map<String, List<Double>> byPath = new TreeMap<>();
+        Map<String, List<Double>> byName = new HashMap<>();
+        List<Double> totals = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            String traceId = hex();
+            String rootId = hex();
+            long start = System.nanoTime();
+            call(client, url, traceId, rootId);
+            totals.add((System.nanoTime() - start) / 1e6);
+            Map<String, JsonNode> spans = spans(client, services, traceId, rootId);
+            for (JsonNode span : spans.values()) {
+                double ms = span.get("durationMicros").asLong() / 1e3;
+                byPath.computeIfAbsent(path(span, spans), key -> new ArrayList<>()).add(ms);
+                byName.computeIfAbsent(span.get("name").asText(), key -> new ArrayList<>()).add(ms);
+            }
+        }
+
+        System.out.printf(Locale.ROOT, "%s, %d requests%n%-80s %6s %9s %9s %9s%n", url, requests, "span", "count", "p50 ms", "p99 ms", "max ms");
+        print("(client)", totals);
+        StringBuilder json = new StringBuilder();
+        for (Map.Entry<String, List<Double>> entry : byPath.entrySet()) {
+            // Sorted by path, so every span comes right after its parent: print the tree
+            String[] path = entry.getKey().split(" > ");
+            print("  ".repeat(path.length - 1) + path[path.length - 1], entry.getValue());
+            json.append(json.length() == 0 ? "" : ",")
+                    .append(String.format(Locale.ROOT, "{\"span\":\"%s\",\"count\":%d,\"p50Ms\":%.2f,\"p99Ms\":%.2f}", entry.getKey(),
+                            entry.getValue().size(), percentile(entry.getValue(), 0.5), percentile(entry.getValue(), 0.99)));
+        }
+        System.out.println("[" + json + "]");
+
+        boolean failed = false;
+        for (Map.Entry<String, Double> budget : budgets.entrySet()) {
+            List<Double> durations = byName.get(budget.getKey());
+            if (durations == null) {
+                System.out.printf(Locale.ROOT, "FAIL %s: no such span%n", budget.getKey());
+                failed = true;
+            } else if (percentile(durations, 0.99) > budget.getValue()) {
+                System.out.printf(Locale.ROOT, "FAIL %s: p99 %.2f ms over its budget of %.2f ms%n",
+                        budget.getKey(), percentile(durations, 0.99), budget.getValue());
+                failed = true;
+            }
+        }
+        System.exit(failed ? 1 : 0);
+    }
+
+    private static void call(HttpClient client, String url, String traceId, String spanId) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url)).header("Accept", "application/json")
+                .header("b3", traceId + "-" + spanId + "-1").timeout(Duration.ofSeconds(30)).build();
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200)
+            throw new IllegalStateException(url + " answered " + response.statusCode());
+    }
+
+    // Spans by id and kind, each tagged with its service. The first server span joins the caller's span (same id),
+    // and is ended after the answer is sent: wait for it
+    private static Map<String, JsonNode> spans(HttpClient client, Map<String, String> services, String traceId, String rootId) throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            Map<String, JsonNode> spans = new HashMap<>();
+            for (Map.Entry<String, String> service : services.entrySet()) {
+                HttpResponse<String> response = client.send(HttpRequest.newBuilder(
+                        URI.create(service.getValue() + "/api/v1/tracing/spans?traceId=" + traceId)).build(), HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() != 200)
+                    throw new IllegalStateException(service.getKey() + " answered " + response.statusCode() + ": is tracing.in-memory.enabled set?");
+                for (JsonNode span : MAPPER.readTree(response.body()))
+                    spans.put(span.get("spanId").asText() + "/" + kind(span),
+                            ((ObjectNode) span).put("service", service.getKey()));
+            }
+            boolean rootEnded = spans.values().stream().anyMatch(span -> rootId.equals(span.get("spanId").asText()));
+            if (rootEnded || attempt == 50)
+                return spans;
+            Thread.sleep(10);
+        }
+    }
+
+    // service:name of the span and of its ancestors, root first. A client span and the server span answering it share their id
+    private static String path(JsonNode span, Map<String, JsonNode> spans) {
+        String label = span.get("service").asText() + ":" + span.get("name").asText()
+                + (span.get("remoteServiceName").isTextual() ? " (" + span.get("remoteServiceName").asText() + ")" : "");
+        String parentId = span.get("parentId").asText();
+        if ("SERVER".equals(kind(span)) && spans.containsKey(span.get("spanId").asText() + "/CLIENT"))
+            return path(spans.get(span.get("spanId").asText() + "/CLIENT"), spans) + " > " + label;
+        // The parent is in the same service, unless the span is the first of its service
+        JsonNode parent = null;
+        for (String kind : new String[]{"", "SERVER", "CLIENT", "PRODUCER", "CONSUMER"}) {
+            JsonNode candidate = spans.get(parentId + "/" + kind);
+            if (candidate != null && (parent == null || candidate.get("service").equals(span.get("service"))))
+                parent = candidate;
+        }
+        return parent == null ? label : path(parent, spans) + " > " + label;
+    }
+
+    private static String kind(JsonNode span) {
+        return span.get("kind").isTextual() ? span.get("kind").asText() : "";
+    }
+
+    private static void print(String span, List<Double> durations) {
+        System.out.printf(Locale.ROOT, "%-80s %6d %9.2f %9.2f %9.2f%n", span, durations.size(),
+                percentile(durations, 0.5), percentile(durations, 0.99), percentile(durations, 1.0));
+    }
+
+    private static double percentile(List<Double> values, double p) {
+        List<Double> sorted = new ArrayList<>(values);
+        sorted.sort(null);
+        return sorted.get(Math.max(0, (int) Math.ceil(p * sorted.size()) - 1));
+    }
+
+    private static String hex() {
+        return String.format("%016x", ThreadLocalRandom.current().nextLong());
+    }
+
+    private static <T> Map<String, T> pairs(String value, Function<String, T> parse) {
+        Map<String, T> pairs = new LinkedHashMap<>();
+        for (String pair : value.split(",")) {
+            String[] keyValue = pair.split("=", 2);
+            pairs.put(keyValue[0].trim(), parse.apply(keyValue[1].trim()));
+        }
+        return pairs;
+    }
+}
@@ -0,0 +1,56 @@
+#!/usr/bin/env bash
+# Benchmarks the three services with platform threads, then with virtual threads (JDK 21+),
+# using bench/ConcurrencyBench.java. Needs the MySQL databases of application.properties
+# and packaged jars: mvn -B package -DskipTests in each service directory (target/*-exec.jar).
+#
+# With STORE=h2 the services run instead from the benchmarks jar (mvn -B install -DskipTests in each
+# service directory, then mvn -B package in benchmarks/)
+# on in-memory H2 databases seeded with USERS users (1000 by default, see LoadTestService).
+# JAVA picks the java binary, JAVA_OPTS are passed to each service, e.g.
+#   JAVA=~/jdk-21/bin/java JAVA_OPTS="-Xmx512m -Djdk.virtualThreadScheduler.parallelism=4" STORE=h2 bench/compare-thread-modes.sh
+#
+# usage: bench/compare-thread-modes.sh [extra ConcurrencyBench options, e.g. --levels 100,200,400]
+set -euo pipefail
+cd "$(dirname "$0")/.."
+JAVA=${JAVA:-java}
+JAVA_OPTS=${JAVA_OPTS:-}
+STORE=${STORE:-mysql}
+USERS=${USERS:-1000}
+
+start() {
+  for service in user-service car-service laptop-service; do
+    if [ "$STORE" = h2 ]; then
+      # shellcheck disable=SC2086
+      "$JAVA" $JAVA_OPTS -cp benchmarks/target/benchmarks.jar com.ndourcodeur.benchmarks.loadtest.LoadTestService \
+        "$service" "$USERS" 42 2.0 200 --threads.virtual.enabled="$1" > "bench/$service-$1.log" 2>&1 &
+    else
+      # shellcheck disable=SC2086
+      "$JAVA" $JAVA_OPTS -jar "$service"/target/"$service"-0.0.1-SNAPSHOT-exec.jar --threads.virtual.enabled="$1" \
+        > "bench/$service-$1.log" 2>&1 &
+    fi
+    pids+=($!)
+  done
+  for port in 8100 8200 8300; do
+    until curl -sf "http://localhost:$port/actuator/health" > /dev/null; do sleep 1; done
+  done
+  if [ "$STORE" = h2 ]; then
+    for service in user-service car-service laptop-service; do
+      until grep -q SEEDED "bench/$service-$1.log"; do sleep 1; done
+    done
+  fi
+}
+
+stop() {
+  kill "${pids[@]}" 2> /dev/null || true
+  wait "${pids[@]}" 2> /dev/null || true
+}
+
+trap stop EXIT
+for virtual in false true; do
+  pids=()
+  start "$virtual"
+  "$JAVA" bench/ConcurrencyBench.java --label "virtual-threads=$virtual" --ids "$USERS" \
+    --url "http://localhost:8100/api/v1/users/cars-and-lapTops/{id}" \
+    --url "http://localhost:8200/api/v1/cars/detail-car-and-user/{id}" "$@" | tee "bench/results-virtual-$virtual.txt"
+  stop
+done
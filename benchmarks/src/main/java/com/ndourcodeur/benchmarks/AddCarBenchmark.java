@@ -0,0 +1,108 @@
+package com.ndourcodeur.benchmarks;
+
+import com.ndourcodeur.carservice.dto.CarRequest;
+import com.ndourcodeur.carservice.dto.CarResponse;
+import com.ndourcodeur.carservice.entity.Car;
+import com.ndourcodeur.carservice.ids.IdGenerator;
+import com.ndourcodeur.carservice.ids.RandomIdGenerator;
+import com.ndourcodeur.carservice.ids.TimeOrderedIdGenerator;
+import com.ndourcodeur.carservice.outbox.Outbox;
+import com.ndourcodeur.carservice.repository.CarRepository;
+import com.ndourcodeur.carservice.services.CarServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *    CarServiceImpl.addCar with the persistence left out: the repository hands the car back with an
+ *    id and the outbox records nothing, so what is measured is the mapping of the request to the
+ *    entity (registration number included) and of the entity to the answer. The insert itself is in
+ *    CarRepositoryBenchmark.
+ *
+ *    generator is ids.generator (see IdGeneratorConfig); the contended variants share it between
+ *    4 threads, as concurrent requests do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AddCarBenchmark {
+
+    @Param({"time-ordered", "random"})
+    String generator;
+
+    private CarServiceImpl carService;
+    private IdGenerator idGenerator;
+    private CarRequest request;
+
+    @Setup
+    public void setUp() {
+        idGenerator = "random".equals(generator) ? new RandomIdGenerator() : new TimeOrderedIdGenerator(1);
+        carService = new CarServiceImpl(repository(), new DiscardingOutbox(), idGenerator);
+        request = new CarRequest(null, "Corolla", 23_500.0, "Toyota", true, 1L);
+    }
+
+    @Benchmark
+    public CarResponse addCar() {
+        return carService.addCar(request);
+    }
+
+    @Benchmark
+    public UUID nextUuid() {
+        return idGenerator.nextUuid();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public CarResponse addCarContended() {
+        return carService.addCar(request);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public UUID nextUuidContended() {
+        return idGenerator.nextUuid();
+    }
+
+    // carsSaved is all addCar calls: no JDBC, serialization nor relay is reached, hence no collaborators
+    private static class DiscardingOutbox extends Outbox {
+
+        DiscardingOutbox() {
+            super(null, null, null, null, 168);
+        }
+
+        @Override
+        public void carsSaved(Collection<Car> cars) {
+        }
+    }
+
+    // Only save is called: it gives the car its id, as the sequence would
+    private static CarRepository repository() {
+        AtomicLong ids = new AtomicLong();
+        return (CarRepository) Proxy.newProxyInstance(CarRepository.class.getClassLoader(), new Class<?>[]{CarRepository.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("save"))
+                        throw new UnsupportedOperationException(method.getName());
+                    Car car = (Car) args[0];
+                    car.setId(ids.incrementAndGet());
+                    return car;
+                });
+    }
+}
@@ -0,0 +1,202 @@
+package com.ndourcodeur.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ndourcodeur.userservice.cache.UserCache;
+import com.ndourcodeur.userservice.config.AggregationConfig;
+import com.ndourcodeur.userservice.feignClients.CarClient;
+import com.ndourcodeur.userservice.feignClients.CarFeignClient;
+import com.ndourcodeur.userservice.feignClients.LapTopClient;
+import com.ndourcodeur.userservice.feignClients.LapTopFeignClient;
+import com.ndourcodeur.userservice.message.Message;
+import com.ndourcodeur.userservice.model.Car;
+import com.ndourcodeur.userservice.model.LapTop;
+import com.ndourcodeur.userservice.pagination.CursorPage;
+import com.ndourcodeur.userservice.pagination.Cursors;
+import com.ndourcodeur.userservice.projection.ProjectionPoller;
+import com.ndourcodeur.userservice.repository.UserRepository;
+import com.ndourcodeur.userservice.services.UserServiceImpl;
+import feign.Request;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ *    UserServiceImpl.getUserAndCars without the network: the Feign clients answer pages already
+ *    decoded and the user is in the cache, so what is measured is the assembly itself (fan-out on the
+ *    aggregation executor, paging through Cursors.stream, cache lookup, the response map) and, for
+ *    getUserAndCarsJson, writing the response as the controller does. Decoding is in JsonBenchmark.
+ *
+ *    executor pool is the production one (see AggregationConfig), direct runs both calls inline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AggregationBenchmark {
+
+    private static final long USER_ID = 1L;
+
+    // Cars and lapTops of the user; above Cursors.MAX_PAGE_SIZE, they come in several pages
+    @Param({"5", "50", "1000"})
+    int items;
+
+    @Param({"pool", "direct"})
+    String executor;
+
+    private UserServiceImpl userService;
+    private TaskExecutor aggregationExecutor;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        Map<String, CursorPage<Car>> carPages = pages(Samples.cars(USER_ID, items), Car::getId);
+        Map<String, CursorPage<LapTop>> lapTopPages = pages(Samples.lapTops(USER_ID, items), LapTop::getId);
+
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCacheSpecification("maximumSize=10000,expireAfterWrite=5m,recordStats");
+        UserRepository userRepository = repository(Samples.userResponse(USER_ID));
+        userService = new UserServiceImpl(userRepository, new UserCache(cacheManager, null), null);
+
+        aggregationExecutor = "pool".equals(executor)
+                ? new AggregationConfig().aggregationExecutor(16, 100, false) : new SyncTaskExecutor();
+        if (aggregationExecutor instanceof ThreadPoolTaskExecutor)
+            ((ThreadPoolTaskExecutor) aggregationExecutor).initialize();
+        // The projections are off: both sections come from the clients
+        DirectFieldAccessor fields = new DirectFieldAccessor(userService);
+        fields.setPropertyValue("carClient", new CarClient(new StubCarFeignClient(carPages)));
+        fields.setPropertyValue("lapTopClient", new LapTopClient(new StubLapTopFeignClient(lapTopPages)));
+        fields.setPropertyValue("projectionPoller", new ProjectionPoller(null, null, new SimpleMeterRegistry(), false, 500, 10_000, 15_000));
+        fields.setPropertyValue("aggregationExecutor", aggregationExecutor);
+        fields.setPropertyValue("aggregationTimeoutMs", 2000L);
+
+        objectMapper = Samples.objectMapper("json", true);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (aggregationExecutor instanceof ThreadPoolTaskExecutor)
+            ((ThreadPoolTaskExecutor) aggregationExecutor).shutdown();
+    }
+
+    @Benchmark
+    public Map<String, Object> getUserAndCars() {
+        return userService.getUserAndCars(USER_ID);
+    }
+
+    @Benchmark
+    public byte[] getUserAndCarsJson() throws Exception {
+        return objectMapper.writeValueAsBytes(userService.getUserAndCars(USER_ID));
+    }
+
+    // Pages by cursor, "" for the first one, as car-service and laptop-service would answer them
+    private static <T> Map<String, CursorPage<T>> pages(List<T> rows, Function<T, Long> id) {
+        Map<String, CursorPage<T>> pages = new HashMap<>();
+        String cursor = "";
+        for (int from = 0; from < rows.size(); from += Cursors.MAX_PAGE_SIZE) {
+            List<T> items = rows.subList(from, Math.min(rows.size(), from + Cursors.MAX_PAGE_SIZE));
+            String next = from + Cursors.MAX_PAGE_SIZE < rows.size() ? Cursors.encode(id.apply(items.get(items.size() - 1))) : null;
+            pages.put(cursor, new CursorPage<>(items, next));
+            cursor = next;
+        }
+        return pages;
+    }
+
+    // Only findResponseById is called, and only once: the user stays cached
+    private static UserRepository repository(Object user) {
+        return (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(), new Class<?>[]{UserRepository.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("findResponseById"))
+                        return Optional.of(user);
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static class StubCarFeignClient implements CarFeignClient {
+
+        private final Map<String, CursorPage<Car>> pages;
+
+        StubCarFeignClient(Map<String, CursorPage<Car>> pages) {
+            this.pages = pages;
+        }
+
+        @Override
+        public CursorPage<Car> fetchCarsPageByUserId(Long userId, String cursor, Integer size) {
+            return pages.get(cursor == null ? "" : cursor);
+        }
+
+        @Override
+        public Car addNewCar(Car car) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Car updateCarById(Long id, Car car) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void deleteCarById(Long id) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Message deleteAllCarsByUserId(Long userId, Request.Options options) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Car> fetchAllCarsByUserIds(Collection<Long> userIds) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class StubLapTopFeignClient implements LapTopFeignClient {
+
+        private final Map<String, CursorPage<LapTop>> pages;
+
+        StubLapTopFeignClient(Map<String, CursorPage<LapTop>> pages) {
+            this.pages = pages;
+        }
+
+        @Override
+        public CursorPage<LapTop> fetchLapTopsPageByUserId(Long userId, String cursor, Integer size) {
+            return pages.get(cursor == null ? "" : cursor);
+        }
+
+        @Override
+        public Message deleteAllLapTopsByUserId(Long userId, Request.Options options) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<LapTop> fetchAllLapTopsByUserIds(Collection<Long> userIds) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
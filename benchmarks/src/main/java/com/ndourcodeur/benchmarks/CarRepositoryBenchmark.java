@@ -0,0 +1,98 @@
+package com.ndourcodeur.benchmarks;
+
+import com.ndourcodeur.carservice.CarServiceApplication;
+import com.ndourcodeur.carservice.dto.CarRequest;
+import com.ndourcodeur.carservice.dto.CarResponse;
+import com.ndourcodeur.carservice.entity.Car;
+import com.ndourcodeur.carservice.pagination.Cursors;
+import com.ndourcodeur.carservice.repository.CarRepository;
+import com.ndourcodeur.carservice.services.CarService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *    CarRepository on the embedded database, in the whole car-service context (its Hibernate settings,
+ *    sequences and auditing): the cars of a random user as entities (findByUserId) and as the page the
+ *    API answers (findResponsesByUserIdAfter), and the insert of one car in its own transaction.
+ *
+ *    The database holds 100 users with carsPerUser cars each, inserted through CarService.addCars.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CarRepositoryBenchmark {
+
+    private static final int USERS = 100;
+
+    @Param({"10", "100"})
+    int carsPerUser;
+
+    private ConfigurableApplicationContext context;
+    private CarRepository carRepository;
+
+    @Setup
+    public void setUp() {
+        context = Contexts.start(CarServiceApplication.class, "car-service");
+        carRepository = context.getBean(CarRepository.class);
+        CarService carService = context.getBean(CarService.class);
+        for (long userId = 1; userId <= USERS; userId++) {
+            List<CarRequest> requests = new ArrayList<>(carsPerUser);
+            for (int i = 0; i < carsPerUser; i++)
+                requests.add(new CarRequest(null, "Car " + i, 15_000.0 + i, "Toyota", true, userId));
+            carService.addCars(requests);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Car> findByUserId() {
+        return carRepository.findByUserId(randomUserId());
+    }
+
+    @Benchmark
+    public List<CarResponse> findResponsesByUserIdAfter() {
+        return carRepository.findResponsesByUserIdAfter(randomUserId(), 0L, PageRequest.of(0, Cursors.MAX_PAGE_SIZE + 1));
+    }
+
+    // Cars of user 0, which no read asks for
+    @Benchmark
+    public Car save() {
+        Car car = new Car();
+        car.setName("Corolla");
+        car.setPrice(23_500.0);
+        car.setBrand("Toyota");
+        car.setRegistrationNumber(UUID.randomUUID().toString());
+        car.setIsInStock(true);
+        car.setUserId(0L);
+        return carRepository.save(car);
+    }
+
+    private static long randomUserId() {
+        return ThreadLocalRandom.current().nextLong(1, USERS + 1);
+    }
+}
@@ -0,0 +1,48 @@
+package com.ndourcodeur.benchmarks;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ *    Starts a whole service on its own application.properties (copied under the service's name by the
+ *    build) with an in-memory H2 database in MySQL mode instead of MySQL: without its web server for
+ *    the benchmarks, with it (on the port of its configuration) for the load test.
+ */
+public final class Contexts {
+
+    private Contexts() {
+    }
+
+    public static ConfigurableApplicationContext start(Class<?> application, String service, String... properties) {
+        return run(application, service, WebApplicationType.NONE, properties);
+    }
+
+    public static ConfigurableApplicationContext serve(Class<?> application, String service, String... properties) {
+        return run(application, service, WebApplicationType.SERVLET, properties);
+    }
+
+    private static ConfigurableApplicationContext run(Class<?> application, String service, WebApplicationType web, String... properties) {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.config.location=classpath:/" + service + "/",
+                "--spring.datasource.url=jdbc:h2:mem:" + service + ";MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+                "--logging.level.org.hibernate.SQL=WARN",
+                "--logging.level.org.hibernate.type=WARN",
+                // Spring Boot reads its version from the manifest of its jar, which the shaded jar replaces
+                "--spring.cloud.compatibility-verifier.enabled=false"));
+        args.addAll(Arrays.asList(properties));
+        return new SpringApplicationBuilder(application)
+                .web(web)
+                .logStartupInfo(false)
+                .run(args.toArray(new String[0]));
+    }
+}
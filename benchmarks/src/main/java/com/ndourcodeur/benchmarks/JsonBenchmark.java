@@ -0,0 +1,102 @@
+package com.ndourcodeur.benchmarks;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ndourcodeur.carservice.dto.CarResponse;
+import com.ndourcodeur.laptopservice.dto.LaptopResponse;
+import com.ndourcodeur.userservice.dto.UserResponse;
+import com.ndourcodeur.userservice.model.Car;
+import com.ndourcodeur.userservice.model.LapTop;
+import com.ndourcodeur.userservice.pagination.CursorPage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *    Jackson on the bodies the services exchange: cars, lapTops and users written as the controllers
+ *    answer them, and read back as the callers do (user-service reads pages of cars and lapTops,
+ *    car-service and laptop-service read users). size 500 is a full page (Cursors.MAX_PAGE_SIZE).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBenchmark {
+
+    @Param({"1", "50", "500"})
+    int size;
+
+    @Param({"json", "smile"})
+    String format;
+
+    @Param({"true", "false"})
+    boolean blackbird;
+
+    private ObjectMapper objectMapper;
+    private List<CarResponse> cars;
+    private List<LaptopResponse> lapTops;
+    private List<UserResponse> users;
+    private byte[] carsPage;
+    private byte[] lapTopsPage;
+    private byte[] usersBody;
+    private JavaType carsPageType;
+    private JavaType lapTopsPageType;
+    private JavaType usersType;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = Samples.objectMapper(format, blackbird);
+        cars = Samples.carResponses(1, size);
+        lapTops = Samples.lapTopResponses(1, size);
+        users = Samples.userResponses(size);
+        carsPage = objectMapper.writeValueAsBytes(new CursorPage<>(cars, "NTAw"));
+        lapTopsPage = objectMapper.writeValueAsBytes(new CursorPage<>(lapTops, "NTAw"));
+        usersBody = objectMapper.writeValueAsBytes(users);
+        carsPageType = objectMapper.getTypeFactory().constructParametricType(CursorPage.class, Car.class);
+        lapTopsPageType = objectMapper.getTypeFactory().constructParametricType(CursorPage.class, LapTop.class);
+        usersType = objectMapper.getTypeFactory().constructCollectionType(List.class, com.ndourcodeur.carservice.model.User.class);
+    }
+
+    @Benchmark
+    public byte[] writeCars() throws Exception {
+        return objectMapper.writeValueAsBytes(cars);
+    }
+
+    @Benchmark
+    public byte[] writeLapTops() throws Exception {
+        return objectMapper.writeValueAsBytes(lapTops);
+    }
+
+    @Benchmark
+    public byte[] writeUsers() throws Exception {
+        return objectMapper.writeValueAsBytes(users);
+    }
+
+    @Benchmark
+    public CursorPage<Car> readCarsPage() throws Exception {
+        return objectMapper.readValue(carsPage, carsPageType);
+    }
+
+    @Benchmark
+    public CursorPage<LapTop> readLapTopsPage() throws Exception {
+        return objectMapper.readValue(lapTopsPage, lapTopsPageType);
+    }
+
+    @Benchmark
+    public List<com.ndourcodeur.carservice.model.User> readUsers() throws Exception {
+        return objectMapper.readValue(usersBody, usersType);
+    }
+}
@@ -0,0 +1,92 @@
+package com.ndourcodeur.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import com.ndourcodeur.carservice.dto.CarResponse;
+import com.ndourcodeur.laptopservice.dto.LaptopResponse;
+import com.ndourcodeur.userservice.dto.UserResponse;
+import com.ndourcodeur.userservice.model.Car;
+import com.ndourcodeur.userservice.model.LapTop;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ *    Rows shaped like the real ones (names, brands, UUID registration numbers, audit dates) and the
+ *    ObjectMapper the services use, so every benchmark measures the same data.
+ */
+public final class Samples {
+
+    private static final String[] BRANDS = {"Toyota", "Peugeot", "Renault", "Volkswagen", "Mercedes-Benz", "Hyundai"};
+    private static final String[] LAPTOP_BRANDS = {"Lenovo", "Dell", "Apple", "HP", "Asus", "Acer"};
+    private static final Date CREATED_AT = new Date(1_640_995_200_000L);
+
+    private Samples() {
+    }
+
+    /**
+     *    Built like Spring Boot builds the services' ObjectMapper: Jackson2ObjectMapperBuilder,
+     *    ISO dates and, when blackbird, the module of JacksonConfig.
+     */
+    public static ObjectMapper objectMapper(String format, boolean blackbird) {
+        Jackson2ObjectMapperBuilder builder = new Jackson2ObjectMapperBuilder()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        if (blackbird)
+            builder.modulesToInstall(new BlackbirdModule());
+        if ("smile".equals(format))
+            builder.factory(new SmileFactory());
+        return builder.build();
+    }
+
+    public static List<CarResponse> carResponses(long userId, int count) {
+        List<CarResponse> cars = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            cars.add(new CarResponse(userId * 1000 + i, "Car " + i, 15_000.0 + i * 125.5, BRANDS[i % BRANDS.length],
+                    registrationNumber(userId, i), i % 3 != 0, userId, 0L, CREATED_AT, CREATED_AT));
+        return cars;
+    }
+
+    public static List<LaptopResponse> lapTopResponses(long userId, int count) {
+        List<LaptopResponse> lapTops = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            lapTops.add(new LaptopResponse(userId * 1000 + i, "LapTop " + i, 899.99 + i * 10, LAPTOP_BRANDS[i % LAPTOP_BRANDS.length],
+                    i % 3 != 0, "16GB RAM, 512GB SSD, 14 inch display", userId, 0L, CREATED_AT, CREATED_AT));
+        return lapTops;
+    }
+
+    public static List<UserResponse> userResponses(int count) {
+        List<UserResponse> users = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++)
+            users.add(userResponse(i));
+        return users;
+    }
+
+    public static UserResponse userResponse(long id) {
+        return new UserResponse(id, "First" + id, "Last" + id, "user" + id, "user" + id + "@example.com", 0L, CREATED_AT, CREATED_AT);
+    }
+
+    // As user-service reads them from car-service and laptop-service
+    public static List<Car> cars(long userId, int count) {
+        List<Car> cars = new ArrayList<>(count);
+        for (CarResponse car : carResponses(userId, count))
+            cars.add(new Car(car.getId(), car.getName(), car.getPrice(), car.getBrand(), car.getRegistrationNumber(),
+                    car.getIsInStock(), car.getUserId()));
+        return cars;
+    }
+
+    public static List<LapTop> lapTops(long userId, int count) {
+        List<LapTop> lapTops = new ArrayList<>(count);
+        for (LaptopResponse lapTop : lapTopResponses(userId, count))
+            lapTops.add(new LapTop(lapTop.getId(), lapTop.getLapTopName(), lapTop.getLapTopPrice(), lapTop.getLapTopBrand(),
+                    lapTop.getIsInStock(), lapTop.getDescription(), lapTop.getUserId()));
+        return lapTops;
+    }
+
+    private static String registrationNumber(long userId, int i) {
+        return String.format("%08x-%04x-7000-8000-%012x", userId, i, (long) i * 7919);
+    }
+}
@@ -0,0 +1,93 @@
+package com.ndourcodeur.benchmarks;
+
+import com.ndourcodeur.userservice.UserServiceApplication;
+import com.ndourcodeur.userservice.dto.UserResponse;
+import com.ndourcodeur.userservice.entity.User;
+import com.ndourcodeur.userservice.repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *    UserRepository on the embedded database, in the whole user-service context (projections off, so
+ *    nothing calls the other services): the username check of a registration, taken or free, the user
+ *    lookup behind UserCache, and the insert of one user in its own transaction.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserRepositoryBenchmark {
+
+    private static final int USERS = 10_000;
+
+    private final AtomicLong newUsers = new AtomicLong();
+
+    private ConfigurableApplicationContext context;
+    private UserRepository userRepository;
+    private List<Long> ids;
+
+    @Setup
+    public void setUp() {
+        context = Contexts.start(UserServiceApplication.class, "user-service", "--projection.enabled=false");
+        userRepository = context.getBean(UserRepository.class);
+        List<User> users = new ArrayList<>(USERS);
+        for (int i = 1; i <= USERS; i++)
+            users.add(user("user" + i));
+        ids = new ArrayList<>(USERS);
+        for (User user : userRepository.saveAll(users))
+            ids.add(user.getId());
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public boolean existsByUsername() {
+        return userRepository.existsByUsername("user" + ThreadLocalRandom.current().nextInt(1, USERS + 1));
+    }
+
+    @Benchmark
+    public boolean existsByUsernameFree() {
+        return userRepository.existsByUsername("free" + ThreadLocalRandom.current().nextInt(1, USERS + 1));
+    }
+
+    @Benchmark
+    public Optional<UserResponse> findResponseById() {
+        return userRepository.findResponseById(ids.get(ThreadLocalRandom.current().nextInt(USERS)));
+    }
+
+    @Benchmark
+    public User save() {
+        return userRepository.save(user("new" + newUsers.incrementAndGet()));
+    }
+
+    private static User user(String username) {
+        User user = new User();
+        user.setFirstName("First");
+        user.setLastName("Last");
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        return user;
+    }
+}
@@ -0,0 +1,79 @@
+package com.ndourcodeur.benchmarks.loadtest;
+
+import java.util.SplittableRandom;
+import java.util.function.IntSupplier;
+
+/**
+ *    The synthetic data of a load test, the same for a given seed: users 1..users, and for each user,
+ *    in user order, a number of cars and of lapTops drawn from a Zipf distribution over
+ *    0..maxPerUser, so that most users own a few and some own many (skewed ownership).
+ *
+ *    Every process derives the part it needs on its own: the services their rows, the load
+ *    generator the number of cars and the popularity of users.
+ */
+final class Dataset {
+
+    static final String CARS = "cars";
+    static final String LAPTOPS = "lapTops";
+
+    final int users;
+    final long seed;
+    final double ownershipSkew;
+    final int maxPerUser;
+
+    private final long stride;
+
+    Dataset(int users, long seed, double ownershipSkew, int maxPerUser) {
+        this.users = users;
+        this.seed = seed;
+        this.ownershipSkew = ownershipSkew;
+        this.maxPerUser = maxPerUser;
+        long stride = 1_000_003;
+        while (gcd(stride, users) != 1)
+            stride++;
+        this.stride = stride;
+    }
+
+    /**
+     *    Number of cars (or lapTops) of user 1, then of user 2, and so on.
+     */
+    IntSupplier ownership(String items) {
+        SplittableRandom random = random(items);
+        Zipf zipf = new Zipf(maxPerUser + 1, ownershipSkew);
+        return () -> zipf.sample(random) - 1;
+    }
+
+    long count(String items) {
+        IntSupplier ownership = ownership(items);
+        long count = 0;
+        for (int user = 1; user <= users; user++)
+            count += ownership.getAsInt();
+        return count;
+    }
+
+    SplittableRandom random(String stream) {
+        return new SplittableRandom(seed ^ stream.hashCode());
+    }
+
+    /**
+     *    The user of a popularity rank (1 is the most requested). Ranks are spread over the ids by a
+     *    stride coprime with the number of users, so the popular users are not the first ones, whose
+     *    rows were inserted first.
+     */
+    long userOfRank(int rank) {
+        return 1 + (rank - 1) * stride % users;
+    }
+
+    private static long gcd(long a, long b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    String[] args() {
+        return new String[]{Integer.toString(users), Long.toString(seed), Double.toString(ownershipSkew), Integer.toString(maxPerUser)};
+    }
+
+    static Dataset of(String[] args, int from) {
+        return new Dataset(Integer.parseInt(args[from]), Long.parseLong(args[from + 1]), Double.parseDouble(args[from + 2]),
+                Integer.parseInt(args[from + 3]));
+    }
+}
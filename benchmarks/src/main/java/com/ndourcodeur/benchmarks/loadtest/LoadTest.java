@@ -0,0 +1,442 @@
+package com.ndourcodeur.benchmarks.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ *    End-to-end load test of the three services, offline: each service runs in a JVM of its own on
+ *    its usual port, on an in-memory H2 database seeded with a Dataset (--users users, cars and
+ *    lapTops with skewed ownership, see Dataset), and nothing else is needed, neither MySQL nor a
+ *    network beyond localhost.
+ *
+ *    The load is an open model: requests start on a fixed schedule, --rate per second mixed by
+ *    --mix weights, whether or not the previous ones have been answered. Latency is measured from
+ *    the time a request was scheduled to start, so the time a request waits behind a slow one is
+ *    counted (no coordinated omission); the time from the actual send is kept too, as "service".
+ *    Errors and timeouts (30 s) are recorded too, at the time they took to fail. Requests dropped
+ *    because --max-in-flight were already waiting are never sent: they count as errors but have no
+ *    latency, so the percentiles understate a run that drops any, and the report says so.
+ *    Users are picked by popularity (Zipf, --hot-skew), cars uniformly.
+ *
+ *    After --warmup seconds, --duration seconds are measured. One line per endpoint with its
+ *    percentiles, the full histograms in --out-dir (endpoint.hgrm, HdrHistogram percentile format)
+ *    with summary.json, then the gate: --slo "endpoint.p99=ms,...", --max-error-rate, and with
+ *    --baseline (the summary.json of an earlier run) no p50/p99 more than --tolerance percent (plus
+ *    --tolerance-ms) above it. The exit code is 1 when the gate fails.
+ *
+ *    cd benchmarks && java -cp target/benchmarks.jar com.ndourcodeur.benchmarks.loadtest.LoadTest \
+ *         --users 1000000 --rate 300 --duration 120 --slo "aggregate.p99=250,detail.p99=150" --baseline last/summary.json
+ */
+public class LoadTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private static final String[] SERVICES = {"car-service", "laptop-service", "user-service"};
+    private static final String USERS = "http://localhost:8100/api/v1/users";
+    private static final String CARS = "http://localhost:8200/api/v1/cars";
+    private static final String LAPTOPS = "http://localhost:8300/api/v1/lapTops";
+    private static final String USAGE = "usage: LoadTest [--users n] [--seed n] [--ownership-skew x] [--max-per-user n]"
+            + " [--hot-skew x] [--rate per-s] [--warmup s] [--duration s] [--max-in-flight n] [--mix endpoint=weight,...]"
+            + " [--slo endpoint.p99=ms,...] [--max-error-rate x] [--baseline summary.json] [--tolerance %] [--tolerance-ms ms]"
+            + " [--out-dir dir] [--jvm-args \"...\"] [--service-args \"...\"] [--external true|false]";
+
+    public static void main(String[] args) throws Exception {
+        int users = 1_000_000;
+        long seed = 42;
+        double ownershipSkew = 2.0;
+        int maxPerUser = 200;
+        double hotSkew = 1.0;
+        double rate = 200;
+        int warmup = 30;
+        int duration = 60;
+        int maxInFlight = 2_000;
+        Map<String, Double> mix = pairs("aggregate=40,carsByUserId=20,lapTopsByUserId=10,detail=15,addCar=6,addLapTop=5,addUser=4");
+        Map<String, Double> slos = new LinkedHashMap<>();
+        double maxErrorRate = 0.001;
+        String baseline = null;
+        double tolerance = 10;
+        double toleranceMs = 2;
+        String outDir = "target/loadtest";
+        List<String> jvmArgs = new ArrayList<>();
+        List<String> serviceArgs = new ArrayList<>();
+        boolean external = false;
+        if (args.length % 2 != 0)
+            usage("Every option takes a value");
+        for (int i = 0; i < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--users": users = Integer.parseInt(value); break;
+                case "--seed": seed = Long.parseLong(value); break;
+                case "--ownership-skew": ownershipSkew = Double.parseDouble(value); break;
+                case "--max-per-user": maxPerUser = Integer.parseInt(value); break;
+                case "--hot-skew": hotSkew = Double.parseDouble(value); break;
+                case "--rate": rate = Double.parseDouble(value); break;
+                case "--warmup": warmup = Integer.parseInt(value); break;
+                case "--duration": duration = Integer.parseInt(value); break;
+                case "--max-in-flight": maxInFlight = Integer.parseInt(value); break;
+                case "--mix": mix = pairs(value); break;
+                case "--slo": slos = pairs(value); break;
+                case "--max-error-rate": maxErrorRate = Double.parseDouble(value); break;
+                case "--baseline": baseline = value; break;
+                case "--tolerance": tolerance = Double.parseDouble(value); break;
+                case "--tolerance-ms": toleranceMs = Double.parseDouble(value); break;
+                case "--out-dir": outDir = value; break;
+                case "--jvm-args": jvmArgs = Arrays.asList(value.trim().split("\\s+")); break;
+                case "--service-args": serviceArgs = Arrays.asList(value.trim().split("\\s+")); break;
+                // Services already running, seeded with the same dataset options
+                case "--external": external = Boolean.parseBoolean(value); break;
+                default: usage("Unknown option " + args[i]);
+            }
+        }
+
+        Dataset dataset = new Dataset(users, seed, ownershipSkew, maxPerUser);
+        List<Process> processes = new ArrayList<>();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> processes.forEach(Process::destroy)));
+        Path out = Files.createDirectories(Paths.get(outDir));
+        if (!external)
+            start(dataset, jvmArgs, serviceArgs, out, processes);
+
+        Load load = new Load(dataset, hotSkew, endpoints(dataset, mix), maxInFlight);
+        System.out.printf(Locale.ROOT, "%d users, %d cars, %d lapTops; %.0f requests/s, %d s warmup, %d s measured%n",
+                users, load.cars, dataset.count(Dataset.LAPTOPS), rate, warmup, duration);
+        load.run(rate, warmup, false);
+        load.run(rate, duration, true);
+        processes.forEach(Process::destroy);
+
+        Map<String, Object> summary = report(load, rate, duration, out);
+        boolean passed = gate(summary, slos, maxErrorRate, baseline == null ? null : MAPPER.readTree(new File(baseline)), tolerance, toleranceMs);
+        MAPPER.writeValue(out.resolve("summary.json").toFile(), summary);
+        System.out.println(MAPPER.copy().disable(SerializationFeature.INDENT_OUTPUT).writeValueAsString(summary));
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static void usage(String message) {
+        System.err.println(message);
+        System.err.println(USAGE);
+        System.exit(2);
+    }
+
+    // Starts the three services from this class path and waits until each has seeded its database
+    private static void start(Dataset dataset, List<String> jvmArgs, List<String> serviceArgs, Path out, List<Process> processes)
+            throws Exception {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<CompletableFuture<String>> seeded = new ArrayList<>();
+        for (String service : SERVICES) {
+            List<String> command = new ArrayList<>(List.of(java));
+            command.addAll(jvmArgs);
+            command.addAll(List.of("-cp", System.getProperty("java.class.path"), LoadTestService.class.getName(), service));
+            command.addAll(Arrays.asList(dataset.args()));
+            command.addAll(serviceArgs);
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            processes.add(process);
+            seeded.add(follow(process, out.resolve(service + ".log")));
+        }
+        for (CompletableFuture<String> service : seeded)
+            System.out.println(service.get(1, TimeUnit.HOURS));
+    }
+
+    // Copies the output of a service to its log, completing with the SEEDED line
+    private static CompletableFuture<String> follow(Process process, Path log) {
+        CompletableFuture<String> seeded = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+                 PrintWriter writer = new PrintWriter(Files.newBufferedWriter(log), true)) {
+                for (String line; (line = reader.readLine()) != null; ) {
+                    writer.println(line);
+                    if (line.startsWith(LoadTestService.SEEDED))
+                        seeded.complete(line);
+                }
+            } catch (IOException ex) {
+                seeded.completeExceptionally(ex);
+            }
+            seeded.completeExceptionally(new IllegalStateException("Service stopped before it was seeded, see " + log));
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return seeded;
+    }
+
+    private static List<Endpoint> endpoints(Dataset dataset, Map<String, Double> mix) {
+        Map<String, Function<Load, HttpRequest>> requests = new LinkedHashMap<>();
+        requests.put("aggregate", load -> get(USERS + "/cars-and-lapTops/" + load.hotUser()));
+        requests.put("carsByUserId", load -> get(CARS + "/byUserId/" + load.hotUser() + "?size=50"));
+        requests.put("lapTopsByUserId", load -> get(LAPTOPS + "/byUserId/" + load.hotUser() + "?size=50"));
+        requests.put("detail", load -> get(CARS + "/detail-car-and-user/" + load.randomCar()));
+        requests.put("addCar", load -> post(CARS + "/add", String.format(Locale.ROOT,
+                "{\"name\":\"Corolla\",\"price\":23500.0,\"brand\":\"Toyota\",\"isInStock\":true,\"userId\":%d}", load.hotUser())));
+        requests.put("addLapTop", load -> post(LAPTOPS + "/add", String.format(Locale.ROOT,
+                "{\"lapTopName\":\"ThinkPad\",\"lapTopPrice\":1299.0,\"lapTopBrand\":\"Lenovo\",\"isInStock\":true,"
+                        + "\"description\":\"16GB RAM, 512GB SSD\",\"userId\":%d}", load.hotUser())));
+        requests.put("addUser", load -> {
+            long n = load.newUsers.incrementAndGet();
+            return post(USERS + "/add", String.format(Locale.ROOT,
+                    "{\"firstName\":\"Load\",\"lastName\":\"Test\",\"username\":\"load%d\",\"email\":\"load%d@example.com\"}", n, n));
+        });
+        List<Endpoint> endpoints = new ArrayList<>();
+        for (Map.Entry<String, Double> weight : mix.entrySet()) {
+            Function<Load, HttpRequest> request = requests.get(weight.getKey());
+            if (request == null)
+                throw new IllegalArgumentException("Unknown endpoint " + weight.getKey() + ", expected one of " + requests.keySet());
+            endpoints.add(new Endpoint(weight.getKey(), weight.getValue(), request));
+        }
+        return endpoints;
+    }
+
+    private static HttpRequest get(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).header("Accept", "application/json").timeout(Duration.ofSeconds(30)).build();
+    }
+
+    private static HttpRequest post(String url, String body) {
+        return HttpRequest.newBuilder(URI.create(url)).header("Content-Type", "application/json").header("Accept", "application/json")
+                .timeout(Duration.ofSeconds(30)).POST(HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+
+    private static Map<String, Object> report(Load load, double rate, int duration, Path out) throws IOException {
+        System.out.printf(Locale.ROOT, "%-16s %8s %7s %7s %9s %9s %9s %9s %9s %9s %12s%n", "endpoint", "count", "errors", "dropped",
+                "per s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "service p99");
+        List<Map<String, Object>> endpoints = new ArrayList<>();
+        Histogram all = new Histogram(3);
+        Histogram allService = new Histogram(3);
+        long errors = 0;
+        long dropped = 0;
+        for (Endpoint endpoint : load.endpoints) {
+            Histogram latency = endpoint.latency.getIntervalHistogram();
+            Histogram service = endpoint.service.getIntervalHistogram();
+            all.add(latency);
+            allService.add(service);
+            errors += endpoint.errors.get();
+            dropped += endpoint.dropped.get();
+            endpoints.add(line(endpoint.name, latency, service, endpoint.errors.get(), endpoint.dropped.get(), duration));
+            try (PrintStream hgrm = new PrintStream(out.resolve(endpoint.name + ".hgrm").toFile(), StandardCharsets.UTF_8)) {
+                latency.outputPercentileDistribution(hgrm, 1000.0);
+            }
+        }
+        endpoints.add(line("all", all, allService, errors, dropped, duration));
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("rate", rate);
+        summary.put("durationSeconds", duration);
+        summary.put("endpoints", endpoints);
+        if (dropped > 0) {
+            String note = String.format(Locale.ROOT, "%d requests dropped at --max-in-flight %d were never sent and are not in the "
+                    + "percentiles, which are lower than the latency those requests would have seen", dropped, load.maxInFlight);
+            System.out.println("NOTE " + note);
+            summary.put("note", note);
+        }
+        return summary;
+    }
+
+    private static Map<String, Object> line(String name, Histogram latency, Histogram service, long errors, long dropped, int duration) {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("endpoint", name);
+        // Answered or failed, errors included; dropped requests have no latency
+        line.put("count", latency.getTotalCount());
+        line.put("errors", errors);
+        line.put("dropped", dropped);
+        line.put("perSecond", round((double) latency.getTotalCount() / duration));
+        line.put("p50Ms", ms(latency, 50));
+        line.put("p90Ms", ms(latency, 90));
+        line.put("p99Ms", ms(latency, 99));
+        line.put("p999Ms", ms(latency, 99.9));
+        line.put("maxMs", round(latency.getMaxValue() / 1000.0));
+        line.put("serviceP99Ms", ms(service, 99));
+        System.out.printf(Locale.ROOT, "%-16s %8d %7d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f %12.2f%n", name, latency.getTotalCount(),
+                errors, dropped, line.get("perSecond"), line.get("p50Ms"), line.get("p90Ms"), line.get("p99Ms"), line.get("p999Ms"),
+                line.get("maxMs"), line.get("serviceP99Ms"));
+        return line;
+    }
+
+    private static boolean gate(Map<String, Object> summary, Map<String, Double> slos, double maxErrorRate, JsonNode baseline,
+                                double tolerance, double toleranceMs) {
+        Map<String, JsonNode> current = new LinkedHashMap<>();
+        for (JsonNode endpoint : MAPPER.valueToTree(summary).get("endpoints"))
+            current.put(endpoint.get("endpoint").asText(), endpoint);
+        List<String> failures = new ArrayList<>();
+        JsonNode all = current.get("all");
+        long requests = all.get("count").asLong() + all.get("dropped").asLong();
+        double errorRate = requests == 0 ? 1 : (double) (all.get("errors").asLong() + all.get("dropped").asLong()) / requests;
+        if (errorRate > maxErrorRate)
+            failures.add(String.format(Locale.ROOT, "error rate %.4f over %.4f", errorRate, maxErrorRate));
+        // endpoint.p99=ms, the percentile being one of the summary's
+        for (Map.Entry<String, Double> slo : slos.entrySet()) {
+            String[] key = slo.getKey().split("\\.", 2);
+            JsonNode endpoint = current.get(key[0]);
+            JsonNode value = endpoint == null ? null : endpoint.get(key[1].replace(".", "") + "Ms");
+            if (value == null)
+                failures.add(slo.getKey() + ": no such endpoint or percentile");
+            else if (value.asDouble() > slo.getValue())
+                failures.add(String.format(Locale.ROOT, "%s %.2f ms over its objective of %.2f ms", slo.getKey(), value.asDouble(), slo.getValue()));
+        }
+        if (baseline != null) {
+            for (JsonNode before : baseline.get("endpoints")) {
+                JsonNode after = current.get(before.get("endpoint").asText());
+                if (after == null)
+                    continue;
+                for (String percentile : new String[]{"p50Ms", "p99Ms"}) {
+                    double limit = before.get(percentile).asDouble() * (1 + tolerance / 100) + toleranceMs;
+                    if (after.get(percentile).asDouble() > limit)
+                        failures.add(String.format(Locale.ROOT, "%s %s %.2f ms, baseline %.2f ms (limit %.2f ms)", after.get("endpoint").asText(),
+                                percentile, after.get(percentile).asDouble(), before.get(percentile).asDouble(), limit));
+                }
+            }
+        }
+        failures.forEach(failure -> System.out.println("FAIL " + failure));
+        System.out.println(failures.isEmpty() ? "PASS" : "FAIL");
+        summary.put("passed", failures.isEmpty());
+        summary.put("failures", failures);
+        return failures.isEmpty();
+    }
+
+    private static double ms(Histogram histogram, double percentile) {
+        return round(histogram.getValueAtPercentile(percentile) / 1000.0);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private static Map<String, Double> pairs(String value) {
+        Map<String, Double> pairs = new LinkedHashMap<>();
+        for (String pair : value.split(",")) {
+            String[] keyValue = pair.split("=", 2);
+            pairs.put(keyValue[0].trim(), Double.parseDouble(keyValue[1].trim()));
+        }
+        return pairs;
+    }
+
+    private static class Endpoint {
+
+        private final String name;
+        private final double weight;
+        private final Function<Load, HttpRequest> request;
+        // Microseconds from the scheduled start, and from the actual send, of answered and failed requests
+        private final Recorder latency = new Recorder(3);
+        private final Recorder service = new Recorder(3);
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+
+        Endpoint(String name, double weight, Function<Load, HttpRequest> request) {
+            this.name = name;
+            this.weight = weight;
+            this.request = request;
+        }
+    }
+
+    private static class Load {
+
+        private final Dataset dataset;
+        private final Zipf popularity;
+        private final List<Endpoint> endpoints;
+        private final double totalWeight;
+        private final long cars;
+        private final int maxInFlight;
+        private final SplittableRandom random;
+        private final AtomicLong newUsers = new AtomicLong();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5)).build();
+
+        Load(Dataset dataset, double hotSkew, List<Endpoint> endpoints, int maxInFlight) {
+            this.dataset = dataset;
+            this.popularity = new Zipf(dataset.users, hotSkew);
+            this.endpoints = endpoints;
+            this.totalWeight = endpoints.stream().mapToDouble(endpoint -> endpoint.weight).sum();
+            this.cars = dataset.count(Dataset.CARS);
+            this.maxInFlight = maxInFlight;
+            this.random = dataset.random("load");
+        }
+
+        long hotUser() {
+            return dataset.userOfRank(popularity.sample(random));
+        }
+
+        long randomCar() {
+            return 1 + random.nextLong(Math.max(1, cars));
+        }
+
+        /**
+         *    Starts requests on schedule for the given seconds, then waits for those still in flight.
+         *    Only a measured run records; the recorders are reset when it starts.
+         */
+        void run(double rate, int seconds, boolean measured) throws InterruptedException {
+            for (Endpoint endpoint : endpoints) {
+                endpoint.latency.reset();
+                endpoint.service.reset();
+                endpoint.errors.set(0);
+                endpoint.dropped.set(0);
+            }
+            long start = System.nanoTime();
+            long end = start + TimeUnit.SECONDS.toNanos(seconds);
+            for (long i = 0; ; i++) {
+                long scheduled = start + (long) (i * 1e9 / rate);
+                if (scheduled >= end)
+                    break;
+                long wait = scheduled - System.nanoTime();
+                if (wait > 0)
+                    LockSupport.parkNanos(wait);
+                Endpoint endpoint = pick();
+                HttpRequest request = endpoint.request.apply(this);
+                if (inFlight.get() >= maxInFlight) {
+                    if (measured)
+                        endpoint.dropped.incrementAndGet();
+                    continue;
+                }
+                inFlight.incrementAndGet();
+                long sent = System.nanoTime();
+                client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, ex) -> {
+                    long done = System.nanoTime();
+                    inFlight.decrementAndGet();
+                    if (!measured)
+                        return;
+                    // A failure is a wait too: timeouts land at 30 s
+                    if (ex != null || response.statusCode() >= 300)
+                        endpoint.errors.incrementAndGet();
+                    endpoint.latency.recordValue(TimeUnit.NANOSECONDS.toMicros(done - scheduled));
+                    endpoint.service.recordValue(TimeUnit.NANOSECONDS.toMicros(done - sent));
+                });
+            }
+            while (inFlight.get() > 0)
+                Thread.sleep(10);
+        }
+
+        private Endpoint pick() {
+            double point = random.nextDouble() * totalWeight;
+            for (Endpoint endpoint : endpoints) {
+                point -= endpoint.weight;
+                if (point < 0)
+                    return endpoint;
+            }
+            return endpoints.get(endpoints.size() - 1);
+        }
+    }
+}
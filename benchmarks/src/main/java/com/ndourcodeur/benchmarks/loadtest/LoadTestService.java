@@ -0,0 +1,58 @@
+package com.ndourcodeur.benchmarks.loadtest;
+
+import com.ndourcodeur.benchmarks.Contexts;
+import com.ndourcodeur.carservice.CarServiceApplication;
+import com.ndourcodeur.laptopservice.LaptopServiceApplication;
+import com.ndourcodeur.userservice.UserServiceApplication;
+import com.ndourcodeur.userservice.services.UserIdentityFilter;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ *    One service of a load test, started by LoadTest in a JVM of its own: the whole service on its
+ *    port, with its part of the Dataset inserted, then SEEDED on the standard output.
+ *
+ *    args: service users seed ownership-skew max-per-user [service properties...]
+ */
+public class LoadTestService {
+
+    public static final String SEEDED = "SEEDED";
+
+    public static void main(String[] args) {
+        String service = args[0];
+        Dataset dataset = Dataset.of(args, 1);
+        List<String> properties = new ArrayList<>(Arrays.asList(args).subList(5, args.length));
+        long start = System.nanoTime();
+        ConfigurableApplicationContext context;
+        long rows;
+        switch (service) {
+            case "user-service":
+                // Reads go to car-service and laptop-service, whose rows are not in the outboxes
+                properties.add(0, "--projection.enabled=false");
+                context = Contexts.serve(UserServiceApplication.class, service, properties.toArray(new String[0]));
+                rows = seeder(context, dataset).seedUsers();
+                context.getBean(UserIdentityFilter.class).rebuild();
+                break;
+            case "car-service":
+                context = Contexts.serve(CarServiceApplication.class, service, properties.toArray(new String[0]));
+                rows = seeder(context, dataset).seedCars();
+                break;
+            case "laptop-service":
+                context = Contexts.serve(LaptopServiceApplication.class, service, properties.toArray(new String[0]));
+                rows = seeder(context, dataset).seedLapTops();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown service " + service);
+        }
+        System.out.printf("%s %s: %d rows in %d s%n", SEEDED, service, rows, (System.nanoTime() - start) / 1_000_000_000L);
+    }
+
+    private static Seeder seeder(ConfigurableApplicationContext context, Dataset dataset) {
+        return new Seeder(context.getBean(JdbcTemplate.class), context.getBean(TransactionTemplate.class), dataset);
+    }
+}
@@ -0,0 +1,98 @@
+package com.ndourcodeur.benchmarks.loadtest;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.function.IntSupplier;
+
+/**
+ *    Inserts the rows of a Dataset with plain JDBC batches, ids included, then moves the id sequence
+ *    past them so that the write endpoints keep working. The rows bypass the outboxes: the load
+ *    test runs with the projections of user-service off.
+ */
+final class Seeder {
+
+    private static final int CHUNK = 10_000;
+    private static final Timestamp CREATED_AT = new Timestamp(1_640_995_200_000L);
+    private static final String[] BRANDS = {"Toyota", "Peugeot", "Renault", "Volkswagen", "Mercedes-Benz", "Hyundai"};
+    private static final String[] LAPTOP_BRANDS = {"Lenovo", "Dell", "Apple", "HP", "Asus", "Acer"};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Dataset dataset;
+
+    Seeder(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, Dataset dataset) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.dataset = dataset;
+    }
+
+    long seedUsers() {
+        List<Object[]> rows = new ArrayList<>(CHUNK);
+        for (long id = 1; id <= dataset.users; id++) {
+            rows.add(new Object[]{id, "First" + id, "Last" + id, "user" + id, "user" + id + "@example.com", 0L, CREATED_AT, CREATED_AT});
+            flushIfFull(rows, "insert into user (id, first_name, last_name, username, email, version, created_at, updated_at) values (?, ?, ?, ?, ?, ?, ?, ?)");
+        }
+        flush(rows, "insert into user (id, first_name, last_name, username, email, version, created_at, updated_at) values (?, ?, ?, ?, ?, ?, ?, ?)");
+        return restart("user_seq", dataset.users);
+    }
+
+    long seedCars() {
+        String insert = "insert into car (id, name, price, brand, registration_number, is_in_stock, user_id, version, created_at, updated_at) "
+                + "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        SplittableRandom random = dataset.random("car rows");
+        IntSupplier ownership = dataset.ownership(Dataset.CARS);
+        List<Object[]> rows = new ArrayList<>(CHUNK);
+        long id = 0;
+        for (long userId = 1; userId <= dataset.users; userId++) {
+            for (int cars = ownership.getAsInt(); cars > 0; cars--) {
+                id++;
+                rows.add(new Object[]{id, "Car " + id, 5_000 + random.nextInt(95_000) + 0.99, BRANDS[random.nextInt(BRANDS.length)],
+                        new UUID(random.nextLong(), random.nextLong()).toString(), random.nextInt(4) != 0, userId, 0L, CREATED_AT, CREATED_AT});
+                flushIfFull(rows, insert);
+            }
+        }
+        flush(rows, insert);
+        return restart("car_seq", id);
+    }
+
+    long seedLapTops() {
+        String insert = "insert into laptop (id, lap_top_name, lap_top_price, lap_top_brand, is_in_stock, description, user_id, version, created_at, updated_at) "
+                + "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        SplittableRandom random = dataset.random("lapTop rows");
+        IntSupplier ownership = dataset.ownership(Dataset.LAPTOPS);
+        List<Object[]> rows = new ArrayList<>(CHUNK);
+        long id = 0;
+        for (long userId = 1; userId <= dataset.users; userId++) {
+            for (int lapTops = ownership.getAsInt(); lapTops > 0; lapTops--) {
+                id++;
+                rows.add(new Object[]{id, "LapTop " + id, 300 + random.nextInt(2_700) + 0.99, LAPTOP_BRANDS[random.nextInt(LAPTOP_BRANDS.length)],
+                        random.nextInt(4) != 0, (8 << random.nextInt(3)) + "GB RAM, 512GB SSD", userId, 0L, CREATED_AT, CREATED_AT});
+                flushIfFull(rows, insert);
+            }
+        }
+        flush(rows, insert);
+        return restart("laptop_seq", id);
+    }
+
+    private void flushIfFull(List<Object[]> rows, String insert) {
+        if (rows.size() == CHUNK)
+            flush(rows, insert);
+    }
+
+    private void flush(List<Object[]> rows, String insert) {
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(insert, rows));
+        rows.clear();
+    }
+
+    // The pooled optimizer hands out the increment (50) ids below each sequence value: leave room for them
+    private long restart(String sequence, long lastId) {
+        jdbcTemplate.execute("alter sequence " + sequence + " restart with " + (lastId + 1_000));
+        return lastId;
+    }
+}
@@ -0,0 +1,29 @@
+package com.ndourcodeur.benchmarks.loadtest;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ *    Zipf distribution over 1..n: rank k is drawn with a probability proportional to 1 / k^exponent.
+ *    The cumulative probabilities are tabulated once, so a draw is a binary search.
+ */
+final class Zipf {
+
+    private final double[] cumulative;
+
+    Zipf(int n, double exponent) {
+        cumulative = new double[n];
+        double sum = 0;
+        for (int k = 1; k <= n; k++) {
+            sum += 1 / Math.pow(k, exponent);
+            cumulative[k - 1] = sum;
+        }
+        for (int k = 0; k < n; k++)
+            cumulative[k] /= sum;
+    }
+
+    int sample(SplittableRandom random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(cumulative.length, (index < 0 ? -index - 1 : index) + 1);
+    }
+}
@@ -0,0 +1,70 @@
+package com.ndourcodeur.carservice.config;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *    Shared pooled HTTP client used for every outbound call of the service.
+ *
+ *    Connections are kept alive and reused across requests; the pool is bounded in total and per
+ *    route (host:port), and its usage is published as httpcomponents.httpclient.pool.* meters.
+ *    With virtual threads, callers wait for a connection without pinning their carrier (see
+ *    VirtualThreadConnectionManager).
+ */
+@Configuration
+public class HttpClientConfig {
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager httpClientConnectionManager(
+            @Value("${http.client.max-connections:200}") int maxConnections,
+            @Value("${http.client.max-connections-per-route:50}") int maxConnectionsPerRoute,
+            @Value("${http.client.validate-after-inactivity-ms:2000}") int validateAfterInactivityMs,
+            @Value("${threads.virtual.enabled:false}") boolean virtualThreads) {
+        PoolingHttpClientConnectionManager connectionManager = virtualThreads && VirtualThreads.isAvailable()
+                ? new VirtualThreadConnectionManager(maxConnections, maxConnectionsPerRoute)
+                : new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        connectionManager.setValidateAfterInactivity(validateAfterInactivityMs);
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient httpClient(PoolingHttpClientConnectionManager connectionManager,
+            @Value("${http.client.connect-timeout-ms:2000}") int connectTimeoutMs,
+            @Value("${http.client.read-timeout-ms:5000}") int readTimeoutMs,
+            @Value("${http.client.pool-timeout-ms:1000}") int poolTimeoutMs,
+            @Value("${http.client.keep-alive-ms:30000}") long keepAliveMs) {
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMs)
+                .setSocketTimeout(readTimeoutMs)
+                .setConnectionRequestTimeout(poolTimeoutMs)
+                .build();
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                // Honour the server's Keep-Alive header, otherwise keep idle connections for keepAliveMs
+                .setKeepAliveStrategy((response, context) -> {
+                    long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return serverKeepAlive > 0 ? Math.min(serverKeepAlive, keepAliveMs) : keepAliveMs;
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(keepAliveMs, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    @Bean
+    public MeterBinder httpClientPoolMetrics(PoolingHttpClientConnectionManager connectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "default");
+    }
+}
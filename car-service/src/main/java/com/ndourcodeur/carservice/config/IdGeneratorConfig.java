@@ -0,0 +1,48 @@
+package com.ndourcodeur.carservice.config;
+
+import com.ndourcodeur.carservice.ids.IdGenerator;
+import com.ndourcodeur.carservice.ids.PrimaryKeyGenerator;
+import com.ndourcodeur.carservice.ids.RandomIdGenerator;
+import com.ndourcodeur.carservice.ids.TimeOrderedIdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ *    ids.generator=time-ordered (default) or random picks the IdGenerator used for registration
+ *    numbers and, with ids.primary-keys=generator, for primary keys.
+ *
+ *    Time-ordered ids are unique across instances only if each has its own ids.node-id (0..1023).
+ *    When unset, it is derived from the host name and process id, which can collide.
+ */
+@Configuration
+@Slf4j
+public class IdGeneratorConfig {
+
+    @Value("${ids.generator:time-ordered}")
+    private String generator;
+
+    @Value("${ids.node-id:-1}")
+    private int nodeId;
+
+    @Value("${ids.primary-keys:sequence}")
+    private String primaryKeys;
+
+    @Bean
+    public IdGenerator idGenerator() {
+        IdGenerator idGenerator = "random".equals(generator) ? new RandomIdGenerator() : new TimeOrderedIdGenerator(resolveNodeId());
+        PrimaryKeyGenerator.use("generator".equals(primaryKeys) ? idGenerator : null);
+        log.info("Ids from {} (node {}), primary keys from {}", generator, nodeId, primaryKeys);
+        return idGenerator;
+    }
+
+    private int resolveNodeId() {
+        // pid@host
+        if (nodeId < 0)
+            nodeId = Math.floorMod(ManagementFactory.getRuntimeMXBean().getName().hashCode(), TimeOrderedIdGenerator.MAX_NODE_ID + 1);
+        return nodeId;
+    }
+}
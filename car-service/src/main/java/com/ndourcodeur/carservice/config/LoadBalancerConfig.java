@@ -0,0 +1,15 @@
+package com.ndourcodeur.carservice.config;
+
+import com.ndourcodeur.carservice.loadbalancer.LeastOutstandingLoadBalancerConfiguration;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ *    Client-side load balancing of the calls made with the @LoadBalanced RestTemplate. Instances
+ *    come from the discovery clients available, by default the static
+ *    spring.cloud.discovery.client.simple.instances list of application.properties.
+ */
+@Configuration
+@LoadBalancerClients(defaultConfiguration = LeastOutstandingLoadBalancerConfiguration.class)
+public class LoadBalancerConfig {
+}
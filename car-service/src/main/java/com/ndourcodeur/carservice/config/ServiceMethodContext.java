@@ -0,0 +1,40 @@
+package com.ndourcodeur.carservice.config;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ *    Remembers which public service method the current thread is running, so that resources used
+ *    underneath it (JDBC connections) can be attributed to it. Nested calls keep the outermost name.
+ *    Runs outside the transaction advice, which borrows the connection when the transaction begins.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ServiceMethodContext {
+
+    public static final String NONE = "none";
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    public static String current() {
+        String method = CURRENT.get();
+        return method == null ? NONE : method;
+    }
+
+    @Around("execution(public * com.ndourcodeur.carservice.services..*(..))")
+    public Object track(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (CURRENT.get() != null)
+            return joinPoint.proceed();
+        CURRENT.set(joinPoint.getSignature().getDeclaringType().getSimpleName() + "." + joinPoint.getSignature().getName());
+        try {
+            return joinPoint.proceed();
+        } finally {
+            CURRENT.remove();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.ndourcodeur.carservice.config;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ *    Virtual threads (JDK 21+) looked up reflectively, since the services are still compiled for
+ *    Java 11. On an older JVM every method answers "not available" and callers keep platform threads.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isAvailable() {
+        return threadFactory("probe-").isPresent();
+    }
+
+    /**
+     *    An executor starting one new virtual thread per task, named prefix0, prefix1...
+     */
+    public static Optional<ExecutorService> newThreadPerTaskExecutor(String prefix) {
+        return threadFactory(prefix).map(factory -> {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory);
+            } catch (ReflectiveOperationException ex) {
+                throw new IllegalStateException("Unable to create a virtual thread executor", ex);
+            }
+        });
+    }
+
+    /**
+     *    A factory of virtual threads named prefix0, prefix1..., e.g. for a bounded pool of them.
+     */
+    public static Optional<ThreadFactory> threadFactory(String prefix) {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return Optional.of((ThreadFactory) builderType.getMethod("factory").invoke(builder));
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            // No such API before JDK 19; UnsupportedOperationException on 19-20 without --enable-preview
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.ndourcodeur.carservice.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *    threads.virtual.enabled=true: Tomcat handles every request, and Spring MVC runs async work,
+ *    on a new virtual thread instead of a pooled platform thread.
+ *
+ *    Outbound calls are made on the calling thread, so Feign and RestTemplate calls run on virtual
+ *    threads too. A virtual thread blocking inside synchronized pins its carrier thread. None of our
+ *    own code does; on the hot path:
+ *    - Tomcat held the socket's monitor for the whole request before 9.0.76, hence tomcat.version;
+ *    - HttpClient 4 waits for a pooled connection inside one, see VirtualThreadConnectionManager;
+ *    - the MySQL driver ran every query inside one before Connector/J 9.0, hence
+ *      mysql-connector-j.version: the Hikari pool keeps its configured size.
+ *    -Djdk.tracePinnedThreads=short prints any other pinning.
+ */
+@Configuration
+@ConditionalOnProperty(name = "threads.virtual.enabled", havingValue = "true")
+@Slf4j
+public class VirtualThreadsConfig implements WebMvcConfigurer, DisposableBean {
+
+    private final ExecutorService requestExecutor;
+
+    public VirtualThreadsConfig() {
+        this.requestExecutor = VirtualThreads.newThreadPerTaskExecutor("request-").orElse(null);
+        if (requestExecutor == null)
+            log.warn("threads.virtual.enabled is set but Java {} cannot run virtual threads "
+                    + "(JDK 21+ needed): keeping platform threads", Runtime.version());
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> {
+            if (requestExecutor != null)
+                protocolHandler.setExecutor(requestExecutor);
+        };
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        if (requestExecutor != null)
+            configurer.setTaskExecutor(new TaskExecutorAdapter(requestExecutor));
+    }
+
+    // Tomcat does not shut down an executor it was given; it has stopped by the time beans are destroyed
+    @Override
+    public void destroy() throws InterruptedException {
+        if (requestExecutor == null)
+            return;
+        requestExecutor.shutdown();
+        if (!requestExecutor.awaitTermination(10, TimeUnit.SECONDS))
+            requestExecutor.shutdownNow();
+    }
+}
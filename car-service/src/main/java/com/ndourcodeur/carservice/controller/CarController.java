@@ -1,14 +1,28 @@
 package com.ndourcodeur.carservice.controller;
 
+import com.ndourcodeur.carservice.dto.BatchItemResult;
+import com.ndourcodeur.carservice.dto.CarPatch;
 import com.ndourcodeur.carservice.dto.CarRequest;
-import com.ndourcodeur.carservice.entity.Car;
+import com.ndourcodeur.carservice.dto.CarResponse;
 import com.ndourcodeur.carservice.message.Message;
+import com.ndourcodeur.carservice.pagination.CursorPage;
 import com.ndourcodeur.carservice.services.CarService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
 
 @RestController
@@ -16,10 +30,20 @@ import java.util.List;
 @RequestMapping(path = "/api/v1/cars")
 public class CarController {
 
+    private static final int MAX_USER_IDS = 500;
+    private static final int MAX_BATCH_SIZE = 5000;
+    private static final int MAX_EVENTS = 1000;
+
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int EXPORT_FLUSH_EVERY = 500;
+
     private final CarService carService;
 
-    public CarController(CarService carService) {
+    private final ObjectMapper objectMapper;
+
+    public CarController(CarService carService, ObjectMapper objectMapper) {
         this.carService = carService;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -32,6 +56,20 @@ public class CarController {
         return new ResponseEntity<>(carService.addCar(request), HttpStatus.CREATED);
     }
 
+    /**
+     *    Adding Many Cars At Once (Inserted Using JDBC Batches); Invalid Items Are Reported, Not Inserted
+     *
+     *    URL ===> http://localhost:8200/api/v1/cars/batch
+     */
+    @PostMapping(path = "/batch")
+    public ResponseEntity<?> addNewCarsInBatch(@RequestBody List<CarRequest> requests){
+        if (requests.isEmpty() || requests.size() > MAX_BATCH_SIZE)
+            return new ResponseEntity<>(new Message("Sorry, A Batch Must Contain Between 1 And " + MAX_BATCH_SIZE + " Cars!"), HttpStatus.BAD_REQUEST);
+        List<BatchItemResult> results = carService.addCars(requests);
+        boolean allCreated = results.stream().allMatch(result -> BatchItemResult.CREATED.equals(result.getStatus()));
+        return new ResponseEntity<>(results, allCreated ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS);
+    }
+
     /**
      *     Updating A Single Car By id From The Database
      *
@@ -43,15 +81,23 @@ public class CarController {
     }
 
     /**
-     *      Fetching All Car From The Database
+     *     Updating Some Fields Of A Car, If It Is Still At The Given version (409 Otherwise)
+     *
+     *    URL ===> http://localhost:8200/api/v1/cars/{id}
+     */
+    @PatchMapping(path = "/{id}")
+    public ResponseEntity<?> patchCarById(@PathVariable Long id, @Valid @RequestBody CarPatch patch){
+        return new ResponseEntity<>(carService.patchCar(id, patch), HttpStatus.OK);
+    }
+
+    /**
+     *      Fetching All Car From The Database, One Page At A Time (nextCursor Gives The Following Page)
      *
-     *    URL ===> http://localhost:8200/api/v1/cars/all
+     *    URL ===> http://localhost:8200/api/v1/cars/all?cursor=&size=50
      */
     @GetMapping(path = "/all")
-    public ResponseEntity<?> fetchAllCars(){
-        List<Car> cars = carService.findAllCars();
-        if (cars.isEmpty())
-            return new ResponseEntity<>(new Message("Sorry, No Content Here!"), HttpStatus.BAD_REQUEST);
+    public ResponseEntity<?> fetchAllCars(@RequestParam(required = false) String cursor, @RequestParam(required = false) Integer size){
+        CursorPage<CarResponse> cars = carService.findAllCars(cursor, size);
         return new ResponseEntity<>(cars, HttpStatus.OK);
     }
 
@@ -77,18 +123,97 @@ public class CarController {
     }
 
     /**
-     *        Fetching All Cars By User id From User Microservice
+     *      Deleting Several Cars By id At Once, In A Single Statement
+     *
+     *    URL ===> http://localhost:8200/api/v1/cars/batch?ids=1,2,3
+     */
+    @DeleteMapping(path = "/batch")
+    public ResponseEntity<?> deleteCarsByIds(@RequestParam List<Long> ids){
+        if (ids.isEmpty() || ids.size() > MAX_BATCH_SIZE)
+            return new ResponseEntity<>(new Message("Sorry, Between 1 And " + MAX_BATCH_SIZE + " Car Ids Are Allowed!"), HttpStatus.BAD_REQUEST);
+        int deleted = carService.deleteCars(new LinkedHashSet<>(ids));
+        return new ResponseEntity<>(new Message(deleted + " Car(s) deleted successfully"), HttpStatus.OK);
+    }
+
+    /**
+     *      Deleting All Cars Of A User (In Chunks, Each In Its Own Transaction)
      *
      *    URL ===> http://localhost:8200/api/v1/cars/byUserId/{userId}
      */
+    @DeleteMapping(path = "/byUserId/{userId}")
+    public ResponseEntity<?> deleteCarsByUserId(@PathVariable Long userId){
+        long deleted = carService.deleteCarsByUserId(userId);
+        return new ResponseEntity<>(new Message(deleted + " Car(s) deleted successfully for user with ID:" + userId), HttpStatus.OK);
+    }
+
+    /**
+     *        Fetching All Cars By User id From User Microservice, One Page At A Time
+     *
+     *    URL ===> http://localhost:8200/api/v1/cars/byUserId/{userId}?cursor=&size=50
+     */
     @GetMapping(path = "/byUserId/{userId}")
-    public ResponseEntity<?> fetchAllCarsByUserId(@PathVariable Long userId){
-        List<Car> cars = carService.findByUserId(userId);
-        if (cars.isEmpty())
-            return new ResponseEntity<>(new Message("Sorry, No Almost Content!"), HttpStatus.BAD_REQUEST);
+    public ResponseEntity<?> fetchAllCarsByUserId(@PathVariable Long userId, @RequestParam(required = false) String cursor,
+                                                  @RequestParam(required = false) Integer size){
+        CursorPage<CarResponse> cars = carService.findByUserId(userId, cursor, size);
+        return new ResponseEntity<>(cars, HttpStatus.OK);
+    }
+
+    /**
+     *        Fetching All Cars Of Several Users At Once (Single Query) From User Microservice
+     *
+     *    URL ===> http://localhost:8200/api/v1/cars/byUserIds?userIds=1,2,3
+     */
+    @GetMapping(path = "/byUserIds")
+    public ResponseEntity<?> fetchAllCarsByUserIds(@RequestParam List<Long> userIds){
+        if (userIds.size() > MAX_USER_IDS)
+            return new ResponseEntity<>(new Message("Sorry, At Most " + MAX_USER_IDS + " User Ids Are Allowed!"), HttpStatus.BAD_REQUEST);
+        List<CarResponse> cars = carService.findByUserIds(new LinkedHashSet<>(userIds));
         return new ResponseEntity<>(cars, HttpStatus.OK);
     }
 
+    /**
+     *      Exporting All Cars As Newline-Delimited JSON, Written As The Rows Are Read
+     *      (Optional Filters: userId, brand, since = ISO Date-Time Of Last Update)
+     *
+     *    URL ===> http://localhost:8200/api/v1/cars/export?userId=&brand=&since=2022-01-01T00:00:00Z
+     */
+    @GetMapping(path = "/export", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> exportCars(@RequestParam(required = false) Long userId,
+                                                         @RequestParam(required = false) String brand,
+                                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME,
+                                                                 fallbackPatterns = "yyyy-MM-dd'T'HH:mm:ssXXX") Date since){
+        StreamingResponseBody body = outputStream -> {
+            ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                int[] written = {0};
+                carService.exportCars(userId, brand, since, row -> {
+                    try {
+                        writer.writeValue(generator, row);
+                        generator.writeRaw('\n');
+                        if (++written[0] % EXPORT_FLUSH_EVERY == 0)
+                            generator.flush();
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+    }
+
+    /**
+     *      Fetching The Car Change Events Following A Given Event id, Oldest First (Read By User Microservice)
+     *
+     *    URL ===> http://localhost:8200/api/v1/cars/events?after=0&limit=500
+     */
+    @GetMapping(path = "/events")
+    public ResponseEntity<?> fetchChangeEvents(@RequestParam(defaultValue = "0") Long after, @RequestParam(defaultValue = "500") Integer limit){
+        if (limit < 1 || limit > MAX_EVENTS)
+            return new ResponseEntity<>(new Message("Sorry, limit Must Be Between 1 And " + MAX_EVENTS + "!"), HttpStatus.BAD_REQUEST);
+        return new ResponseEntity<>(carService.findChangeEvents(after, limit), HttpStatus.OK);
+    }
+
     /**
      *      Fetching Car And User Detail (From User Microservice) By Car id
      *
@@ -0,0 +1,24 @@
+package com.ndourcodeur.carservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ *    Outcome of one element of a batch request, identified by its position in the request.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchItemResult {
+
+    public static final String CREATED = "CREATED";
+    public static final String INVALID = "INVALID";
+
+    private int index;
+    private String status;
+    private Long id;
+    private List<String> errors;
+}
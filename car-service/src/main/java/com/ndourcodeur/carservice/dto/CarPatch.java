@@ -0,0 +1,35 @@
+package com.ndourcodeur.carservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+
+/**
+ *    Partial update of a car: null fields are left unchanged. version is the version the change was
+ *    based on; the update is rejected with 409 if the car has changed since.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CarPatch {
+
+    @Pattern(regexp = ".*\\S.*", message = "This field must not be blank!")
+    private String name;
+
+    @Min(0)
+    private Double price;
+
+    @Pattern(regexp = ".*\\S.*", message = "This field must not be blank!")
+    private String brand;
+
+    private Boolean isInStock;
+
+    private Long userId;
+
+    @NotNull(message = "This field is required!")
+    private Long version;
+}
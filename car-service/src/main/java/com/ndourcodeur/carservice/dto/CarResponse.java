@@ -0,0 +1,32 @@
+package com.ndourcodeur.carservice.dto;
+
+import com.ndourcodeur.carservice.entity.Car;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Date;
+
+/**
+ *    A car as answered by the API, same JSON as the entity. Read queries build it directly from the
+ *    selected columns (select new ...), so no managed entity nor dirty-checking snapshot is created.
+ */
+@Getter
+@AllArgsConstructor
+public class CarResponse {
+
+    private final Long id;
+    private final String name;
+    private final Double price;
+    private final String brand;
+    private final String registrationNumber;
+    private final Boolean isInStock;
+    private final Long userId;
+    private final Long version;
+    private final Date createdAt;
+    private final Date updatedAt;
+
+    public static CarResponse of(Car car) {
+        return new CarResponse(car.getId(), car.getName(), car.getPrice(), car.getBrand(), car.getRegistrationNumber(),
+                car.getIsInStock(), car.getUserId(), car.getVersion(), car.getCreatedAt(), car.getUpdatedAt());
+    }
+}
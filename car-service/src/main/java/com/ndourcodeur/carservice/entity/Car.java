@@ -4,19 +4,27 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 
 @Entity
+@Table(indexes = @Index(name = "idx_car_user_id_id", columnList = "userId, id"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @ToString
 public class Car extends DateAudit {
 
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Id
+    @GeneratedValue(generator = "car_seq")
+    @GenericGenerator(name = "car_seq", strategy = "com.ndourcodeur.carservice.ids.PrimaryKeyGenerator", parameters = {
+            @Parameter(name = "sequence_name", value = "car_seq"),
+            @Parameter(name = "increment_size", value = "50")
+    })
     @Column(nullable = false, updatable = false)
     private Long id;
 
@@ -34,4 +42,9 @@ public class Car extends DateAudit {
     private Boolean isInStock;
 
     private Long userId;
+
+    // Checked by every update: a concurrent edit fails with 409 instead of being overwritten
+    @Version
+    @Column(nullable = false)
+    private Long version;
 }
@@ -0,0 +1,44 @@
+package com.ndourcodeur.carservice.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ *    One change of a car, written in the same transaction as the change itself (see Outbox).
+ *
+ *    Ids come from an auto-increment column: they are assigned while the car row is locked, so the
+ *    events of one car are numbered in commit order. The payload is the car as JSON, null on delete.
+ */
+@Entity
+@Table(name = "outbox_event", indexes = @Index(name = "idx_outbox_event_aggregate_id_id", columnList = "aggregateId, id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+
+    public static final String UPSERTED = "UPSERTED";
+    public static final String DELETED = "DELETED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long aggregateId;
+
+    private Long userId;
+
+    @Column(nullable = false, length = 16)
+    private String type;
+
+    @Column(length = 4000)
+    private String payload;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(nullable = false)
+    private Date createdAt;
+}
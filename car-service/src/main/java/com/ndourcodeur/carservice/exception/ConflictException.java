@@ -0,0 +1,22 @@
+package com.ndourcodeur.carservice.exception;
+
+public class ConflictException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    // The version the resource is at, when known: sent back as the ETag of the 409
+    private final Long currentVersion;
+
+    public ConflictException(String message) {
+        this(message, null);
+    }
+
+    public ConflictException(String message, Long currentVersion) {
+        super(message);
+        this.currentVersion = currentVersion;
+    }
+
+    public Long getCurrentVersion() {
+        return currentVersion;
+    }
+}
@@ -0,0 +1,80 @@
+package com.ndourcodeur.carservice.loadbalancer;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ *    Statistics of every downstream instance this service has called, shared by the load balancers
+ *    of all services. Each instance is published as loadbalancer.instance.outstanding and
+ *    loadbalancer.instance.ejected gauges tagged with its service and address.
+ */
+@Component
+@Slf4j
+public class LoadBalancerStats {
+
+    private final ConcurrentMap<String, InstanceStats> instances = new ConcurrentHashMap<>();
+
+    private final MeterRegistry meterRegistry;
+
+    private final int failureThreshold;
+
+    private final long baseEjectionMillis;
+
+    private final long maxEjectionMillis;
+
+    public LoadBalancerStats(MeterRegistry meterRegistry,
+                             @Value("${load-balancer.ejection.consecutive-failures:5}") int failureThreshold,
+                             @Value("${load-balancer.ejection.base-time-ms:10000}") long baseEjectionMillis,
+                             @Value("${load-balancer.ejection.max-time-ms:120000}") long maxEjectionMillis) {
+        this.meterRegistry = meterRegistry;
+        this.failureThreshold = failureThreshold;
+        this.baseEjectionMillis = baseEjectionMillis;
+        this.maxEjectionMillis = maxEjectionMillis;
+    }
+
+    public InstanceStats of(ServiceInstance instance) {
+        return instances.computeIfAbsent(key(instance), key -> register(instance, new InstanceStats()));
+    }
+
+    void started(ServiceInstance instance) {
+        of(instance).started();
+    }
+
+    void completed(ServiceInstance instance, long latencyNanos, boolean failed) {
+        InstanceStats stats = of(instance);
+        stats.finished();
+        if (latencyNanos > 0)
+            stats.recordLatency(latencyNanos);
+        if (!failed)
+            stats.recordSuccess();
+        else if (stats.recordFailure(failureThreshold, baseEjectionMillis, maxEjectionMillis, System.currentTimeMillis()))
+            log.warn("Ejecting {} {} after {} consecutive failures", instance.getServiceId(), address(instance), failureThreshold);
+    }
+
+    private InstanceStats register(ServiceInstance instance, InstanceStats stats) {
+        Gauge.builder("loadbalancer.instance.outstanding", stats, InstanceStats::getOutstanding)
+                .tag("service", instance.getServiceId())
+                .tag("instance", address(instance))
+                .register(meterRegistry);
+        Gauge.builder("loadbalancer.instance.ejected", stats, s -> s.isEjected(System.currentTimeMillis()) ? 1 : 0)
+                .tag("service", instance.getServiceId())
+                .tag("instance", address(instance))
+                .register(meterRegistry);
+        return stats;
+    }
+
+    private static String key(ServiceInstance instance) {
+        return instance.getServiceId() + "/" + address(instance);
+    }
+
+    private static String address(ServiceInstance instance) {
+        return instance.getHost() + ":" + instance.getPort();
+    }
+}
@@ -0,0 +1,71 @@
+package com.ndourcodeur.carservice.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.client.loadbalancer.TimedRequestContext;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ *    Feeds LoadBalancerStats from every load-balanced call, Feign or RestTemplate. A call fails
+ *    when it throws (connection refused, timeout...) or answers with a 5xx status.
+ */
+@Component
+public class LoadBalancerStatsLifecycle implements LoadBalancerLifecycle<Object, Object, ServiceInstance> {
+
+    private final LoadBalancerStats stats;
+
+    public LoadBalancerStatsLifecycle(LoadBalancerStats stats) {
+        this.stats = stats;
+    }
+
+    @Override
+    public boolean supports(Class requestContextClass, Class responseClass, Class serverTypeClass) {
+        return ServiceInstance.class.isAssignableFrom(serverTypeClass);
+    }
+
+    @Override
+    public void onStart(Request<Object> request) {
+    }
+
+    @Override
+    public void onStartRequest(Request<Object> request, Response<ServiceInstance> lbResponse) {
+        if (!lbResponse.hasServer())
+            return;
+        if (request.getContext() instanceof TimedRequestContext)
+            ((TimedRequestContext) request.getContext()).setRequestStartTime(System.nanoTime());
+        stats.started(lbResponse.getServer());
+    }
+
+    @Override
+    public void onComplete(CompletionContext<Object, ServiceInstance, Object> completionContext) {
+        Response<ServiceInstance> lbResponse = completionContext.getLoadBalancerResponse();
+        if (completionContext.status() == CompletionContext.Status.DISCARD || lbResponse == null || !lbResponse.hasServer())
+            return;
+        Object context = completionContext.getLoadBalancerRequest().getContext();
+        long latencyNanos = context instanceof TimedRequestContext
+                ? System.nanoTime() - ((TimedRequestContext) context).getRequestStartTime() : 0;
+        boolean failed = completionContext.status() == CompletionContext.Status.FAILED
+                || statusCode(completionContext.getClientResponse()) >= 500;
+        stats.completed(lbResponse.getServer(), latencyNanos, failed);
+    }
+
+    private static int statusCode(Object clientResponse) {
+        if (clientResponse instanceof ResponseData && ((ResponseData) clientResponse).getHttpStatus() != null)
+            return ((ResponseData) clientResponse).getHttpStatus().value();
+        if (clientResponse instanceof ClientHttpResponse) {
+            try {
+                return ((ClientHttpResponse) clientResponse).getRawStatusCode();
+            } catch (IOException ex) {
+                return 500;
+            }
+        }
+        return 0;
+    }
+}
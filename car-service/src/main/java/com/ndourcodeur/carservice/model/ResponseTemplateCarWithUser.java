@@ -1,6 +1,6 @@
 package com.ndourcodeur.carservice.model;
 
-import com.ndourcodeur.carservice.entity.Car;
+import com.ndourcodeur.carservice.dto.CarResponse;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -10,6 +10,6 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class ResponseTemplateCarWithUser {
 
-    private Car car;
+    private CarResponse car;
     private User user;
 }
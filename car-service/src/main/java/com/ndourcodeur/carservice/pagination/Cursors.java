@@ -0,0 +1,55 @@
+package com.ndourcodeur.carservice.pagination;
+
+import com.ndourcodeur.carservice.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ *    Keyset pagination on id: a cursor is an opaque token holding the last id of the previous page.
+ */
+public final class Cursors {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private Cursors() {
+    }
+
+    /**
+     *    Returns the id after which the page starts, 0 for the first page.
+     */
+    public static long decode(String cursor) {
+        if (cursor == null || cursor.isEmpty())
+            return 0L;
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII));
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidCursorException("Invalid cursor: " + cursor);
+        }
+    }
+
+    public static String encode(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Long.toString(lastId).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public static int pageSize(Integer size) {
+        if (size == null)
+            return DEFAULT_PAGE_SIZE;
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    /**
+     *    Builds a page from rows fetched with a limit of size + 1; the extra row only tells that
+     *    another page exists and is not returned.
+     */
+    public static <T> CursorPage<T> page(List<T> rows, int size, Function<T, Long> id) {
+        if (rows.size() <= size)
+            return new CursorPage<>(rows, null);
+        List<T> items = rows.subList(0, size);
+        return new CursorPage<>(items, encode(id.apply(items.get(size - 1))));
+    }
+}
@@ -1,16 +1,84 @@
 package com.ndourcodeur.carservice.repository;
 
+import com.ndourcodeur.carservice.dto.CarPatch;
+import com.ndourcodeur.carservice.dto.CarResponse;
 import com.ndourcodeur.carservice.entity.Car;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface CarRepository extends JpaRepository<Car, Long> {
 
+    // Read queries answer CarResponse rows built from the columns: no entity is managed nor snapshotted
+    String SELECT_RESPONSE = "select new com.ndourcodeur.carservice.dto.CarResponse(c.id, c.name, c.price, c.brand,"
+            + " c.registrationNumber, c.isInStock, c.userId, c.version, c.createdAt, c.updatedAt) from Car c";
+
+    /**
+     *    Forward-only, read-only scan of the export, run by the service with a fetch size fitting the
+     *    database: EXPORT_FETCH_SIZE rows at a time, or row by row on MySQL.
+     */
+    String EXPORT = SELECT_RESPONSE + " where (:userId is null or c.userId = :userId)"
+            + " and (:brand is null or c.brand = :brand)"
+            + " and (:since is null or c.updatedAt >= :since) order by c.id";
+    int EXPORT_FETCH_SIZE = 500;
+
     List<Car> findByUserId(Long userId);
 
+    @Query(SELECT_RESPONSE + " where c.id = :id")
+    Optional<CarResponse> findResponseById(@Param("id") Long id);
+
+    @Query(SELECT_RESPONSE + " where c.userId in :userIds")
+    List<CarResponse> findResponsesByUserIdIn(@Param("userIds") Collection<Long> userIds);
+
+    @Query(SELECT_RESPONSE + " where c.id > :after order by c.id")
+    List<CarResponse> findResponsesAfter(@Param("after") Long after, Pageable pageable);
+
+    @Query(SELECT_RESPONSE + " where c.userId = :userId and c.id > :after order by c.id")
+    List<CarResponse> findResponsesByUserIdAfter(@Param("userId") Long userId, @Param("after") Long after, Pageable pageable);
+
+    @Query("select c.id from Car c where c.userId = :userId order by c.id")
+    List<Long> findIdsByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("select c.id from Car c where c.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     *    Applies the non-null fields of the patch if the car is still at the expected version, in one
+     *    UPDATE that neither reads the row first nor rewrites the other columns. Returns 0 when the car
+     *    does not exist or has another version.
+     */
+    default int patch(Long id, CarPatch patch, Date now) {
+        return patch(id, patch.getVersion(), patch.getName(), patch.getPrice(), patch.getBrand(), patch.getIsInStock(), patch.getUserId(), now);
+    }
+
+    // Plain parameters rather than SpEL on the patch: this runs on every PATCH
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Car c set c.name = coalesce(:name, c.name), c.price = coalesce(:price, c.price),"
+            + " c.brand = coalesce(:brand, c.brand), c.isInStock = coalesce(:isInStock, c.isInStock),"
+            + " c.userId = coalesce(:userId, c.userId), c.version = c.version + 1, c.updatedAt = :now"
+            + " where c.id = :id and c.version = :version")
+    int patch(@Param("id") Long id, @Param("version") Long version, @Param("name") String name, @Param("price") Double price,
+              @Param("brand") String brand, @Param("isInStock") Boolean isInStock, @Param("userId") Long userId, @Param("now") Date now);
+
+    @Query("select c.version from Car c where c.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    /**
+     *    One DELETE statement, by primary key: only the given rows are locked.
+     */
+    @Modifying
+    @Query("delete from Car c where c.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
     //public Car findByNameContaining(String name);
     //public boolean existsByName(String name);
 }
@@ -0,0 +1,34 @@
+package com.ndourcodeur.carservice.repository;
+
+import com.ndourcodeur.carservice.entity.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    List<OutboxEvent> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @Query("select max(e.id) from OutboxEvent e")
+    Long findHeadId();
+
+    /**
+     *    The clock of the database, which also stamps the events (see Outbox).
+     */
+    @Query(value = "select localtimestamp", nativeQuery = true)
+    Date findDatabaseTime();
+
+    /**
+     *    Events older than the cutoff that a replay does not need: superseded by a later event of the
+     *    same car, or deletions (a replay starts from an empty projection).
+     */
+    @Query("select e.id from OutboxEvent e where e.createdAt < :before and (e.type = :deleted"
+            + " or exists (select n.id from OutboxEvent n where n.aggregateId = e.aggregateId and n.id > e.id)) order by e.id")
+    List<Long> findCompactableIds(@Param("before") Date before, @Param("deleted") String deleted, Pageable pageable);
+}
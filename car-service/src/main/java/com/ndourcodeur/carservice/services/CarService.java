@@ -1,21 +1,35 @@
 package com.ndourcodeur.carservice.services;
 
+import com.ndourcodeur.carservice.dto.BatchItemResult;
+import com.ndourcodeur.carservice.dto.CarPatch;
 import com.ndourcodeur.carservice.dto.CarRequest;
-import com.ndourcodeur.carservice.entity.Car;
+import com.ndourcodeur.carservice.dto.CarResponse;
+import com.ndourcodeur.carservice.dto.OutboxPage;
+import com.ndourcodeur.carservice.pagination.CursorPage;
 import com.ndourcodeur.carservice.model.ResponseTemplateCarWithUser;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 public interface CarService {
 
-    public Car addCar(CarRequest request);
-    public Car editCar(Long id, CarRequest request);
-    public List<Car> findAllCars();
-    public Car findCar(Long id);
-    public List<Car> findByUserId(Long userId);
+    public CarResponse addCar(CarRequest request);
+    public List<BatchItemResult> addCars(List<CarRequest> requests);
+    public CarResponse editCar(Long id, CarRequest request);
+    public CarResponse patchCar(Long id, CarPatch patch);
+    public CursorPage<CarResponse> findAllCars(String cursor, Integer size);
+    public CarResponse findCar(Long id);
+    public CursorPage<CarResponse> findByUserId(Long userId, String cursor, Integer size);
+    public void exportCars(Long userId, String brand, Date since, Consumer<CarResponse> sink);
+    public List<CarResponse> findByUserIds(Collection<Long> userIds);
     public void deleteCar(Long id);
+    public int deleteCars(Collection<Long> ids);
+    public long deleteCarsByUserId(Long userId);
+    public OutboxPage findChangeEvents(Long after, Integer limit);
     //public Car getName(String name);
     //public Boolean existsByName(String name);
     public ResponseTemplateCarWithUser findCarWithUser(Long carId);
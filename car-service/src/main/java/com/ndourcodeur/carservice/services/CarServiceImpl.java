@@ -1,22 +1,46 @@
 package com.ndourcodeur.carservice.services;
 
+import com.ndourcodeur.carservice.dto.BatchItemResult;
+import com.ndourcodeur.carservice.dto.CarPatch;
 import com.ndourcodeur.carservice.dto.CarRequest;
+import com.ndourcodeur.carservice.dto.CarResponse;
+import com.ndourcodeur.carservice.dto.OutboxPage;
 import com.ndourcodeur.carservice.entity.Car;
+import com.ndourcodeur.carservice.entity.OutboxEvent;
+import com.ndourcodeur.carservice.exception.ConflictException;
 import com.ndourcodeur.carservice.exception.ResourceNotFoundException;
+import com.ndourcodeur.carservice.ids.IdGenerator;
 import com.ndourcodeur.carservice.model.ResponseTemplateCarWithUser;
 import com.ndourcodeur.carservice.model.User;
+import com.ndourcodeur.carservice.outbox.Outbox;
+import com.ndourcodeur.carservice.pagination.CursorPage;
+import com.ndourcodeur.carservice.pagination.Cursors;
 import com.ndourcodeur.carservice.repository.CarRepository;
+import com.ndourcodeur.carservice.repository.OutboxEventRepository;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.jpa.QueryHints;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.client.RestTemplate;
 
-import javax.transaction.Transactional;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
-import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+// Transactions are declared per method so that no remote call is ever made while holding a connection
 @Component
-@Transactional
 @Slf4j
 public class CarServiceImpl implements CarService {
 
@@ -25,72 +49,255 @@ public class CarServiceImpl implements CarService {
 
     private final CarRepository carRepository;
 
-    public CarServiceImpl(CarRepository carRepository) {
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    private final Outbox outbox;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Time-ordered and lock-free, unlike UUID.randomUUID() (see IdGeneratorConfig)
+    private final IdGenerator idGenerator;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    @Value("${spring.datasource.url:}")
+    private String datasourceUrl;
+
+    @Value("${cars.delete.chunk-size:500}")
+    private int deleteChunkSize;
+
+    public CarServiceImpl(CarRepository carRepository, Outbox outbox, IdGenerator idGenerator) {
         this.carRepository = carRepository;
+        this.outbox = outbox;
+        this.idGenerator = idGenerator;
     }
 
     @Override
-    public Car addCar(CarRequest request) {
-        log.info("Inside addCar of CarService");
+    @Transactional
+    public CarResponse addCar(CarRequest request) {
+        log.debug("Inside addCar of CarService");
+        Car car = newCar(request);
+        // The id is always generated: with a version attribute, an entity carrying an id is not new
+        Car savedCar = carRepository.save(car);
+        outbox.carsSaved(List.of(savedCar));
+        return CarResponse.of(savedCar);
+    }
+
+    @Override
+    @Transactional
+    public List<BatchItemResult> addCars(List<CarRequest> requests) {
+        log.debug("Inside addCars of CarService");
+        List<BatchItemResult> results = new ArrayList<>(requests.size());
+        List<Car> chunk = new ArrayList<>(batchSize);
+        for (int index = 0; index < requests.size(); index++) {
+            List<String> errors = validate(requests.get(index));
+            if (!errors.isEmpty()) {
+                results.add(new BatchItemResult(index, BatchItemResult.INVALID, null, errors));
+                continue;
+            }
+            // Ids come from the pooled sequence, so Hibernate can group the inserts into JDBC batches
+            Car car = newCar(requests.get(index));
+            entityManager.persist(car);
+            results.add(new BatchItemResult(index, BatchItemResult.CREATED, car.getId(), null));
+            chunk.add(car);
+            if (chunk.size() == batchSize) {
+                outbox.carsSaved(chunk);
+                entityManager.clear();
+                chunk.clear();
+            }
+        }
+        outbox.carsSaved(chunk);
+        entityManager.flush();
+        entityManager.clear();
+        return results;
+    }
+
+    private Car newCar(CarRequest request) {
         Car car = new Car();
-        car.setId(request.getId());
         car.setName(request.getName());
         car.setPrice(request.getPrice());
         car.setBrand(request.getBrand());
-        car.setRegistrationNumber(UUID.randomUUID().toString());
+        car.setRegistrationNumber(idGenerator.nextUuid().toString());
         car.setIsInStock(request.getIsInStock());
         car.setUserId(request.getUserId());
-        return carRepository.save(car);
+        return car;
+    }
+
+    private List<String> validate(CarRequest request) {
+        if (request == null)
+            return List.of("Car must not be null");
+        List<String> errors = new ArrayList<>();
+        for (ConstraintViolation<CarRequest> violation : validator.validate(request))
+            errors.add(violation.getPropertyPath() + ": " + violation.getMessage());
+        return errors;
     }
 
     @Override
-    public Car editCar(Long id, CarRequest request) {
-        log.info("Inside editCar of CarService");
+    @Transactional
+    public CarResponse editCar(Long id, CarRequest request) {
+        log.debug("Inside editCar of CarService");
         Car car = carRepository.findById(id)
                 .orElseThrow( () -> new ResourceNotFoundException("Car does not exist with ID:"+id));
         car.setId(request.getId());
         car.setName(request.getName());
         car.setPrice(request.getPrice());
         car.setBrand(request.getBrand());
-        car.setRegistrationNumber(UUID.randomUUID().toString());
+        car.setRegistrationNumber(idGenerator.nextUuid().toString());
         car.setIsInStock(request.getIsInStock());
         car.setUserId(request.getUserId());
-        return carRepository.save(car);
+        Car savedCar;
+        try {
+            // Flushed here so that a concurrent edit between the read and the write is a precise 409
+            savedCar = carRepository.saveAndFlush(car);
+        } catch (ObjectOptimisticLockingFailureException ex) {
+            throw new ConflictException("Car with ID:" + id + " was modified concurrently, please retry");
+        }
+        outbox.carsSaved(List.of(savedCar));
+        return CarResponse.of(savedCar);
+    }
+
+    @Override
+    @Transactional
+    public CarResponse patchCar(Long id, CarPatch patch) {
+        log.debug("Inside patchCar of CarService");
+        if (carRepository.patch(id, patch, new Date()) == 0) {
+            Long version = carRepository.findVersionById(id)
+                    .orElseThrow( () -> new ResourceNotFoundException("Car does not exist with ID:"+id));
+            throw new ConflictException("Car with ID:" + id + " is at version " + version + ", not " + patch.getVersion(), version);
+        }
+        // Read back for the outbox (and the answer); the row is locked by the update already
+        Car car = carRepository.findById(id)
+                .orElseThrow( () -> new ResourceNotFoundException("Car does not exist with ID:"+id));
+        outbox.carsSaved(List.of(car));
+        return CarResponse.of(car);
     }
 
     @Override
-    public List<Car> findAllCars() {
-        log.info("Inside findAllCars of CarService");
-        return carRepository.findAll();
+    @Transactional(readOnly = true)
+    public CursorPage<CarResponse> findAllCars(String cursor, Integer size) {
+        log.debug("Inside findAllCars of CarService");
+        int pageSize = Cursors.pageSize(size);
+        List<CarResponse> rows = carRepository.findResponsesAfter(Cursors.decode(cursor), PageRequest.of(0, pageSize + 1));
+        return Cursors.page(rows, pageSize, CarResponse::getId);
     }
 
     @Override
-    public Car findCar(Long id) {
-        log.info("Inside findCar of CarService");
-        return carRepository.findById(id)
+    @Transactional(readOnly = true)
+    public CarResponse findCar(Long id) {
+        log.debug("Inside findCar of CarService");
+        return carRepository.findResponseById(id)
                 .orElseThrow( () -> new ResourceNotFoundException("Car does not exist with ID:"+id));
     }
 
     @Override
-    public List<Car> findByUserId(Long userId) {
-        log.info("Inside findByUserId of CarService");
-        return carRepository.findByUserId(userId);
+    @Transactional(readOnly = true)
+    public CursorPage<CarResponse> findByUserId(Long userId, String cursor, Integer size) {
+        log.debug("Inside findByUserId of CarService");
+        int pageSize = Cursors.pageSize(size);
+        List<CarResponse> rows = carRepository.findResponsesByUserIdAfter(userId, Cursors.decode(cursor), PageRequest.of(0, pageSize + 1));
+        return Cursors.page(rows, pageSize, CarResponse::getId);
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public List<CarResponse> findByUserIds(Collection<Long> userIds) {
+        log.debug("Inside findByUserIds of CarService");
+        return carRepository.findResponsesByUserIdIn(userIds);
+    }
+
+    @Override
+    // Not bound by spring.transaction.default-timeout: it writes nothing, so no outbox event waits on it
+    @Transactional(readOnly = true, timeoutString = "${cars.export.transaction-timeout-seconds:1800}")
+    public void exportCars(Long userId, String brand, Date since, Consumer<CarResponse> sink) {
+        log.debug("Inside exportCars of CarService");
+        // Rows are not entities, so the persistence context does not grow with the table
+        // MySQL streams rows one by one with this fetch size; it applies to this statement only, unlike useCursorFetch
+        // on the URL, which turns every statement of the pool into a server-side prepared statement
+        int fetchSize = datasourceUrl.startsWith("jdbc:mysql:") ? Integer.MIN_VALUE : CarRepository.EXPORT_FETCH_SIZE;
+        try (Stream<CarResponse> rows = entityManager.createQuery(CarRepository.EXPORT, CarResponse.class)
+                .setParameter("userId", userId)
+                .setParameter("brand", brand)
+                .setParameter("since", since)
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .getResultStream()) {
+            rows.forEach(sink);
+        }
+    }
+
+    @Override
+    @Transactional
     public void deleteCar(Long id) {
-        log.info("Inside deleteCar of CarService");
-        Car car = carRepository.findById(id)
-                .orElseThrow( () -> new ResourceNotFoundException("Car does not exist with ID:"+id));
-        carRepository.delete(car);
+        log.debug("Inside deleteCar of CarService");
+        // A single DELETE instead of loading the car first
+        if (carRepository.deleteByIdIn(List.of(id)) == 0)
+            throw new ResourceNotFoundException("Car does not exist with ID:"+id);
+        outbox.carsDeleted(null, List.of(id));
+    }
+
+    @Override
+    @Transactional
+    public int deleteCars(Collection<Long> ids) {
+        log.debug("Inside deleteCars of CarService");
+        List<Long> existingIds = carRepository.findExistingIds(ids);
+        if (existingIds.isEmpty())
+            return 0;
+        int deleted = carRepository.deleteByIdIn(existingIds);
+        outbox.carsDeleted(null, existingIds);
+        return deleted;
+    }
+
+    /**
+     *    Deletes the cars of a user deleteChunkSize at a time, each chunk in its own short transaction,
+     *    so that a user with many cars never holds many row locks for long.
+     */
+    @Override
+    public long deleteCarsByUserId(Long userId) {
+        log.debug("Inside deleteCarsByUserId of CarService");
+        long deleted = 0;
+        int chunk;
+        do {
+            chunk = transactionTemplate.execute(status -> {
+                List<Long> ids = carRepository.findIdsByUserId(userId, PageRequest.of(0, deleteChunkSize));
+                if (ids.isEmpty())
+                    return 0;
+                carRepository.deleteByIdIn(ids);
+                outbox.carsDeleted(userId, ids);
+                return ids.size();
+            });
+            deleted += chunk;
+        } while (chunk == deleteChunkSize);
+        return deleted;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public OutboxPage findChangeEvents(Long after, Integer limit) {
+        // Read before the events: an event stamped long enough before this time has committed by then (a
+        // transaction lasts less than spring.transaction.default-timeout), so none with a smaller id is missing
+        Date serverTime = outboxEventRepository.findDatabaseTime();
+        List<OutboxEvent> events = outboxEventRepository.findByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, limit));
+        // Read after the events, so that the head is never behind the last returned event
+        Long headId = outboxEventRepository.findHeadId();
+        return new OutboxPage(events, headId == null ? 0L : headId, serverTime);
     }
 
     @Override
     public ResponseTemplateCarWithUser findCarWithUser(Long carId) {
-        log.info("Inside findCarWithUser of CarService");
+        log.debug("Inside findCarWithUser of CarService");
         ResponseTemplateCarWithUser response = new ResponseTemplateCarWithUser();
-        Car car = findCar(carId);
-        User user = restTemplate.getForObject("http://localhost:8100/api/v1/users/user-detail/" + car.getUserId(), User.class);
+        // Self-call: the lookup runs in the repository's own transaction, released before the remote call
+        CarResponse car = findCar(carId);
+        // A URI template, so the http.client.requests timer has one uri tag rather than one per user
+        User user = restTemplate.getForObject("http://user-service/api/v1/users/user-detail/{id}", User.class, car.getUserId());
         response.setCar(car);
         response.setUser(user);
         return response;
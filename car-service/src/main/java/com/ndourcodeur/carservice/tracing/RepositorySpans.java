@@ -0,0 +1,56 @@
+package com.ndourcodeur.carservice.tracing;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.cloud.sleuth.Span;
+import org.springframework.cloud.sleuth.Tracer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ *    A span around every repository call made within a trace, named after the repository interface
+ *    and its method (CarRepository.findResponsesByUserIdAfter), so that a trace shows the time spent
+ *    in each query apart from the rest of the request. Calls outside any trace (scheduled jobs) are
+ *    not traced, rather than starting one trace per query.
+ */
+@Aspect
+@Component
+public class RepositorySpans {
+
+    private final Tracer tracer;
+    private final Map<Class<?>, String> repositoryNames = new ConcurrentHashMap<>();
+
+    public RepositorySpans(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..))")
+    public Object trace(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (tracer.currentSpan() == null)
+            return joinPoint.proceed();
+        String repository = repositoryNames.computeIfAbsent(joinPoint.getThis().getClass(), RepositorySpans::repositoryName);
+        Span span = tracer.nextSpan().name(repository + "." + joinPoint.getSignature().getName())
+                .tag("class", repository)
+                .tag("method", joinPoint.getSignature().getName())
+                .start();
+        try (Tracer.SpanInScope scope = tracer.withSpan(span)) {
+            return joinPoint.proceed();
+        } catch (Throwable ex) {
+            span.error(ex);
+            throw ex;
+        } finally {
+            span.end();
+        }
+    }
+
+    // The repository proxy implements the application's interface first, then Spring Data's own
+    private static String repositoryName(Class<?> proxyClass) {
+        for (Class<?> type : proxyClass.getInterfaces())
+            if (type.getName().startsWith("com.ndourcodeur."))
+                return type.getSimpleName();
+        return proxyClass.getSimpleName();
+    }
+}
@@ -0,0 +1,95 @@
+package com.ndourcodeur.carservice.ids;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class TimeOrderedIdGeneratorTests {
+
+	private static final long EPOCH = 1640995200000L;
+	private static final long NOW = 1700000000000L;
+	private static final int PER_MILLISECOND = 4096;
+
+	private final AtomicLong clock = new AtomicLong(NOW);
+	private final TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(TimeOrderedIdGenerator.MAX_NODE_ID, clock::get);
+
+	@Test
+	void idsArePositiveIncreasingAndCarryTheNodeId() {
+		long previous = 0;
+		for (int i = 0; i < 10_000; i++) {
+			if (i % 7 == 0)
+				clock.addAndGet(3);
+			long id = generator.nextId();
+			assertThat(id).isGreaterThan(previous);
+			assertThat((id >>> 12) & TimeOrderedIdGenerator.MAX_NODE_ID).isEqualTo(TimeOrderedIdGenerator.MAX_NODE_ID);
+			previous = id;
+		}
+		assertThat(millisecondOf(previous)).isEqualTo(clock.get());
+	}
+
+	@Test
+	void moreThan4096IdsInOneMillisecondRollOverIntoTheNext() {
+		long previous = 0;
+		for (int i = 0; i < PER_MILLISECOND + 10; i++) {
+			long id = generator.nextId();
+			assertThat(id).isGreaterThan(previous);
+			assertThat(millisecondOf(id)).isEqualTo(i < PER_MILLISECOND ? NOW : NOW + 1);
+			assertThat(id & 0xFFF).isEqualTo(i % PER_MILLISECOND);
+			previous = id;
+		}
+	}
+
+	@Test
+	void idsKeepIncreasingWhenTheClockGoesBackwards() {
+		generator.nextId();
+		long beforeTheJump = generator.nextId();
+
+		clock.set(NOW - 1_000);
+		long afterTheJump = generator.nextId();
+		assertThat(afterTheJump).isGreaterThan(beforeTheJump);
+		assertThat(millisecondOf(afterTheJump)).isEqualTo(NOW);
+
+		// Back to the clock's time once it has caught up
+		clock.set(NOW + 5);
+		assertThat(millisecondOf(generator.nextId())).isEqualTo(NOW + 5);
+	}
+
+	@Test
+	void uuidsAreVersion7WithTheRfcVariantAndTheTimeFirst() {
+		UUID uuid = generator.nextUuid();
+
+		assertThat(uuid.version()).isEqualTo(7);
+		assertThat(uuid.variant()).isEqualTo(2);
+		assertThat(uuid.getMostSignificantBits() >>> 16).isEqualTo(NOW);
+		assertThat((uuid.getLeastSignificantBits() >>> 52) & TimeOrderedIdGenerator.MAX_NODE_ID).isEqualTo(TimeOrderedIdGenerator.MAX_NODE_ID);
+	}
+
+	@Test
+	void uuidsOfOneThreadIncreaseThroughRolloverAndAClockGoingBackwards() {
+		UUID previous = generator.nextUuid();
+		for (int i = 1; i < 2 * PER_MILLISECOND; i++) {
+			if (i == PER_MILLISECOND + 100)
+				clock.set(NOW - 1_000);
+			UUID uuid = generator.nextUuid();
+			assertThat(uuid).isGreaterThan(previous);
+			assertThat(uuid.version()).isEqualTo(7);
+			assertThat(uuid.variant()).isEqualTo(2);
+			previous = uuid;
+		}
+		assertThat(previous.getMostSignificantBits() >>> 16).isEqualTo(NOW + 1);
+	}
+
+	@Test
+	void theNodeIdMustFitIn10Bits() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new TimeOrderedIdGenerator(TimeOrderedIdGenerator.MAX_NODE_ID + 1));
+		assertThatIllegalArgumentException().isThrownBy(() -> new TimeOrderedIdGenerator(-1));
+	}
+
+	private static long millisecondOf(long id) {
+		return (id >>> 22) + EPOCH;
+	}
+}
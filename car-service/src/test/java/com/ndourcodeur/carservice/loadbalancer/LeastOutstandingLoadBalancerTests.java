@@ -0,0 +1,102 @@
+package com.ndourcodeur.carservice.loadbalancer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LeastOutstandingLoadBalancerTests {
+
+	private static final int PICKS = 1000;
+
+	private final LoadBalancerStats stats = new LoadBalancerStats(new SimpleMeterRegistry(), 5, 10_000, 120_000);
+	private final ServiceInstance a = instance(8101);
+	private final ServiceInstance b = instance(8102);
+	private final ServiceInstance c = instance(8103);
+
+	@Test
+	void theLowerExpectedWaitOfTheTwoChoicesWins() {
+		// a: 10 requests in flight, b and c idle with the same latency
+		for (ServiceInstance instance : new ServiceInstance[]{a, b, c})
+			answered(instance, 5, false);
+		for (int i = 0; i < 10; i++)
+			stats.started(a);
+
+		// a loses against whichever of b and c it is drawn with, so it is never picked
+		Map<ServiceInstance, Integer> picks = pick(balancer(a, b, c));
+		assertThat(picks).doesNotContainKey(a);
+		assertThat(picks.get(b)).isGreaterThan(PICKS / 4);
+		assertThat(picks.get(c)).isGreaterThan(PICKS / 4);
+	}
+
+	@Test
+	void theFasterOfTwoIdleInstancesIsAlwaysPicked() {
+		answered(a, 30, false);
+		answered(b, 2, false);
+
+		assertThat(pick(balancer(a, b))).containsOnlyKeys(b);
+	}
+
+	@Test
+	void ejectedInstancesAreSkipped() {
+		eject(a);
+
+		assertThat(pick(balancer(a, b, c))).containsOnlyKeys(b, c);
+	}
+
+	@Test
+	void everyInstanceIsUsedAgainWhenAllAreEjected() {
+		// Ejected without recording latencies, which would decay unevenly and always leave the worst one out
+		long now = System.currentTimeMillis();
+		for (ServiceInstance instance : new ServiceInstance[]{a, b, c})
+			for (int i = 0; i < 5; i++)
+				stats.of(instance).recordFailure(5, 10_000, 120_000, now);
+
+		assertThat(pick(balancer(a, b, c))).containsOnlyKeys(a, b, c);
+	}
+
+	@Test
+	void noInstanceGivesAnEmptyResponse() {
+		Response<ServiceInstance> response = balancer().choose(new DefaultRequest<>()).block();
+		assertThat(response.hasServer()).isFalse();
+	}
+
+	private void eject(ServiceInstance instance) {
+		for (int i = 0; i < 5; i++)
+			answered(instance, 1, true);
+		assertThat(stats.of(instance).isEjected(System.currentTimeMillis())).isTrue();
+	}
+
+	private void answered(ServiceInstance instance, long latencyMs, boolean failed) {
+		stats.started(instance);
+		stats.completed(instance, TimeUnit.MILLISECONDS.toNanos(latencyMs), failed);
+	}
+
+	private LeastOutstandingLoadBalancer balancer(ServiceInstance... instances) {
+		StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+		beanFactory.addBean("supplier", ServiceInstanceListSuppliers.from("user-service", instances));
+		return new LeastOutstandingLoadBalancer(beanFactory.getBeanProvider(ServiceInstanceListSupplier.class), stats);
+	}
+
+	private static Map<ServiceInstance, Integer> pick(LeastOutstandingLoadBalancer balancer) {
+		Map<ServiceInstance, Integer> picks = new HashMap<>();
+		for (int i = 0; i < PICKS; i++)
+			picks.merge(balancer.choose(new DefaultRequest<>()).block().getServer(), 1, Integer::sum);
+		return picks;
+	}
+
+	private static ServiceInstance instance(int port) {
+		return new DefaultServiceInstance("user-service-" + port, "user-service", "localhost", port, false);
+	}
+}
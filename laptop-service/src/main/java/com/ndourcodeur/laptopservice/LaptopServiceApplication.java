@@ -1,13 +1,20 @@
 package com.ndourcodeur.laptopservice;
 
+import com.ndourcodeur.laptopservice.config.BinaryJsonConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.client.RestTemplate;
 
 @SpringBootApplication
 @EnableJpaAuditing
+@EnableScheduling
 public class LaptopServiceApplication {
 
 
@@ -16,8 +23,12 @@ public class LaptopServiceApplication {
 	}
 
 	@Bean
-	public RestTemplate restTemplate(){
-		return new RestTemplate();
+	@LoadBalanced
+	public RestTemplate restTemplate(RestTemplateBuilder builder, CloseableHttpClient httpClient){
+		// Boot's message converters, Smile and CBOR included, asking for Smile first (see BinaryJsonConfig)
+		return builder.requestFactory(() -> new HttpComponentsClientHttpRequestFactory(httpClient))
+				.additionalInterceptors(BinaryJsonConfig.preferSmile())
+				.build();
 	}
 
 }
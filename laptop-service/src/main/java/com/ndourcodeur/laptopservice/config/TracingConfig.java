@@ -0,0 +1,33 @@
+package com.ndourcodeur.laptopservice.config;
+
+import brave.sampler.RateLimitingSampler;
+import brave.sampler.Sampler;
+import com.ndourcodeur.laptopservice.tracing.InMemorySpanExporter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ *    Span exporters. Sleuth propagates the trace context on every RestTemplate call and hands each
+ *    sampled span to every SpanReporter bean: Zipkin with spring.zipkin.enabled, the in-memory
+ *    exporter below with tracing.in-memory.enabled, or any other SpanReporter bean.
+ *
+ *    Sleuth applies spring.sleuth.sampler.* only when a Zipkin reporter or a Brave SpanHandler is
+ *    present, and samples nothing otherwise: the in-memory exporter declares its own sampler.
+ */
+@Configuration
+public class TracingConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "tracing.in-memory.enabled", havingValue = "true")
+    public InMemorySpanExporter inMemorySpanExporter(@Value("${tracing.in-memory.max-spans:10000}") int maxSpans) {
+        return new InMemorySpanExporter(maxSpans);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "tracing.in-memory.enabled", havingValue = "true")
+    public Sampler inMemorySpanSampler(@Value("${spring.sleuth.sampler.rate:10}") int rate) {
+        return RateLimitingSampler.create(rate);
+    }
+}
@@ -0,0 +1,88 @@
+package com.ndourcodeur.laptopservice.config;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *    Connection pool of the HTTP client with threads.virtual.enabled: HttpClient 4 waits for a free
+ *    connection inside a synchronized method, which pins the carrier of a virtual thread for as long
+ *    as the pool is exhausted. Here a call first waits on semaphores sized like the pool, in total and
+ *    per route, which park a virtual thread without pinning it; once it holds them, a connection is
+ *    always free and the pool's own wait does not happen.
+ */
+public class VirtualThreadConnectionManager extends PoolingHttpClientConnectionManager {
+
+    private final Semaphore total;
+    private final Map<HttpRoute, Semaphore> routes = new ConcurrentHashMap<>();
+    private final Map<HttpClientConnection, HttpRoute> leased = new ConcurrentHashMap<>();
+
+    public VirtualThreadConnectionManager(int maxTotal, int maxPerRoute) {
+        setMaxTotal(maxTotal);
+        setDefaultMaxPerRoute(maxPerRoute);
+        this.total = new Semaphore(maxTotal);
+    }
+
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+        ConnectionRequest request = super.requestConnection(route, state);
+        return new ConnectionRequest() {
+            @Override
+            public HttpClientConnection get(long timeout, TimeUnit timeUnit)
+                    throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                Semaphore perRoute = routes.computeIfAbsent(route, key -> new Semaphore(getMaxPerRoute(key)));
+                long deadline = System.nanoTime() + timeUnit.toNanos(timeout);
+                if (!acquire(total, timeout, deadline))
+                    throw new ConnectionPoolTimeoutException("Timeout waiting for connection from pool");
+                if (!acquire(perRoute, timeout, deadline)) {
+                    total.release();
+                    throw new ConnectionPoolTimeoutException("Timeout waiting for connection from pool");
+                }
+                try {
+                    HttpClientConnection connection = request.get(timeout, timeUnit);
+                    leased.put(connection, route);
+                    return connection;
+                } catch (InterruptedException | ExecutionException | ConnectionPoolTimeoutException | RuntimeException ex) {
+                    perRoute.release();
+                    total.release();
+                    throw ex;
+                }
+            }
+
+            @Override
+            public boolean cancel() {
+                return request.cancel();
+            }
+        };
+    }
+
+    @Override
+    public void releaseConnection(HttpClientConnection managedConn, Object state, long keepalive, TimeUnit timeUnit) {
+        try {
+            super.releaseConnection(managedConn, state, keepalive, timeUnit);
+        } finally {
+            HttpRoute route = leased.remove(managedConn);
+            if (route != null) {
+                routes.get(route).release();
+                total.release();
+            }
+        }
+    }
+
+    // A timeout of 0 waits forever, as in HttpClient
+    private static boolean acquire(Semaphore semaphore, long timeout, long deadline) throws InterruptedException {
+        if (timeout <= 0) {
+            semaphore.acquire();
+            return true;
+        }
+        return semaphore.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+}
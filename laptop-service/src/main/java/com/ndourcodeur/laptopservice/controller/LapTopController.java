@@ -1,14 +1,28 @@
 package com.ndourcodeur.laptopservice.controller;
 
+import com.ndourcodeur.laptopservice.dto.BatchItemResult;
+import com.ndourcodeur.laptopservice.dto.LaptopPatch;
 import com.ndourcodeur.laptopservice.dto.LaptopRequest;
-import com.ndourcodeur.laptopservice.entity.Laptop;
+import com.ndourcodeur.laptopservice.dto.LaptopResponse;
 import com.ndourcodeur.laptopservice.message.Message;
+import com.ndourcodeur.laptopservice.pagination.CursorPage;
 import com.ndourcodeur.laptopservice.services.LapTopService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
 
 @RestController
@@ -16,10 +30,20 @@ import java.util.List;
 @RequestMapping(path = "/api/v1/lapTops")
 public class LapTopController {
 
+    private static final int MAX_USER_IDS = 500;
+    private static final int MAX_BATCH_SIZE = 5000;
+    private static final int MAX_EVENTS = 1000;
+
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int EXPORT_FLUSH_EVERY = 500;
+
     private final LapTopService lapTopService;
 
-    public LapTopController(LapTopService lapTopService) {
+    private final ObjectMapper objectMapper;
+
+    public LapTopController(LapTopService lapTopService, ObjectMapper objectMapper) {
         this.lapTopService = lapTopService;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -32,6 +56,20 @@ public class LapTopController {
         return new ResponseEntity<>(lapTopService.addLapTop(request), HttpStatus.CREATED);
     }
 
+    /**
+     *    Adding Many LapTops At Once (Inserted Using JDBC Batches); Invalid Items Are Reported, Not Inserted
+     *
+     *    URL ===> http://localhost:8300/api/v1/lapTops/batch
+     */
+    @PostMapping(path = "/batch")
+    public ResponseEntity<?> addNewLapTopsInBatch(@RequestBody List<LaptopRequest> requests){
+        if (requests.isEmpty() || requests.size() > MAX_BATCH_SIZE)
+            return new ResponseEntity<>(new Message("Sorry, A Batch Must Contain Between 1 And " + MAX_BATCH_SIZE + " LapTops!"), HttpStatus.BAD_REQUEST);
+        List<BatchItemResult> results = lapTopService.addLapTops(requests);
+        boolean allCreated = results.stream().allMatch(result -> BatchItemResult.CREATED.equals(result.getStatus()));
+        return new ResponseEntity<>(results, allCreated ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS);
+    }
+
     /**
      *    Updating A Single LapTop By id From The Database
      *
@@ -43,15 +81,23 @@ public class LapTopController {
     }
 
     /**
-     *     Fetching All LapTops From The Database
+     *    Updating Some Fields Of A LapTop, If It Is Still At The Given version (409 Otherwise)
+     *
+     *    URL ===> http://localhost:8300/api/v1/lapTops/{id}
+     */
+    @PatchMapping(path = "/{id}")
+    public ResponseEntity<?> patchLapTopById(@PathVariable Long id, @Valid @RequestBody LaptopPatch patch){
+        return new ResponseEntity<>(lapTopService.patchLapTop(id, patch), HttpStatus.OK);
+    }
+
+    /**
+     *     Fetching All LapTops From The Database, One Page At A Time (nextCursor Gives The Following Page)
      *
-     *    URL ===> http://localhost:8300/api/v1/lapTops/all
+     *    URL ===> http://localhost:8300/api/v1/lapTops/all?cursor=&size=50
      */
     @GetMapping(path = "/all")
-    public ResponseEntity<?> fetchAllLapTops(){
-        List<Laptop> laptops = lapTopService.findAllLapTops();
-        if (laptops.isEmpty())
-            return new ResponseEntity<>(new Message("Sorry, No Content Here!"), HttpStatus.BAD_REQUEST);
+    public ResponseEntity<?> fetchAllLapTops(@RequestParam(required = false) String cursor, @RequestParam(required = false) Integer size){
+        CursorPage<LaptopResponse> laptops = lapTopService.findAllLapTops(cursor, size);
         return new ResponseEntity<>(laptops, HttpStatus.OK);
     }
 
@@ -77,18 +123,97 @@ public class LapTopController {
     }
 
     /**
-     *    Fetching All LapTops By User id From User Microservice
+     *    Deleting Several LapTops By id At Once, In A Single Statement
+     *
+     *    URL ===> http://localhost:8300/api/v1/lapTops/batch?ids=1,2,3
+     */
+    @DeleteMapping(path = "/batch")
+    public ResponseEntity<?> deleteLapTopsByIds(@RequestParam List<Long> ids){
+        if (ids.isEmpty() || ids.size() > MAX_BATCH_SIZE)
+            return new ResponseEntity<>(new Message("Sorry, Between 1 And " + MAX_BATCH_SIZE + " LapTop Ids Are Allowed!"), HttpStatus.BAD_REQUEST);
+        int deleted = lapTopService.deleteLapTops(new LinkedHashSet<>(ids));
+        return new ResponseEntity<>(new Message(deleted + " LapTop(s) deleted successfully"), HttpStatus.OK);
+    }
+
+    /**
+     *    Deleting All LapTops Of A User (In Chunks, Each In Its Own Transaction)
      *
      *    URL ===> http://localhost:8300/api/v1/lapTops/byUserId/{userId}
      */
+    @DeleteMapping(path = "/byUserId/{userId}")
+    public ResponseEntity<?> deleteLapTopsByUserId(@PathVariable Long userId){
+        long deleted = lapTopService.deleteLapTopsByUserId(userId);
+        return new ResponseEntity<>(new Message(deleted + " LapTop(s) deleted successfully for user with ID:" + userId), HttpStatus.OK);
+    }
+
+    /**
+     *    Fetching All LapTops By User id From User Microservice, One Page At A Time
+     *
+     *    URL ===> http://localhost:8300/api/v1/lapTops/byUserId/{userId}?cursor=&size=50
+     */
     @GetMapping(path = "/byUserId/{userId}")
-    public ResponseEntity<?> fetchAllLapTopsByUserId(@PathVariable Long userId){
-        List<Laptop> laptops = lapTopService.findByUserId(userId);
-        if (laptops.isEmpty())
-            return new ResponseEntity<>(new Message("Sorry, No Content Almost!"), HttpStatus.BAD_REQUEST);
+    public ResponseEntity<?> fetchAllLapTopsByUserId(@PathVariable Long userId, @RequestParam(required = false) String cursor,
+                                                     @RequestParam(required = false) Integer size){
+        CursorPage<LaptopResponse> laptops = lapTopService.findByUserId(userId, cursor, size);
+        return new ResponseEntity<>(laptops, HttpStatus.OK);
+    }
+
+    /**
+     *    Fetching All LapTops Of Several Users At Once (Single Query) From User Microservice
+     *
+     *    URL ===> http://localhost:8300/api/v1/lapTops/byUserIds?userIds=1,2,3
+     */
+    @GetMapping(path = "/byUserIds")
+    public ResponseEntity<?> fetchAllLapTopsByUserIds(@RequestParam List<Long> userIds){
+        if (userIds.size() > MAX_USER_IDS)
+            return new ResponseEntity<>(new Message("Sorry, At Most " + MAX_USER_IDS + " User Ids Are Allowed!"), HttpStatus.BAD_REQUEST);
+        List<LaptopResponse> laptops = lapTopService.findByUserIds(new LinkedHashSet<>(userIds));
         return new ResponseEntity<>(laptops, HttpStatus.OK);
     }
 
+    /**
+     *      Exporting All LapTops As Newline-Delimited JSON, Written As The Rows Are Read
+     *      (Optional Filters: userId, brand, since = ISO Date-Time Of Last Update)
+     *
+     *    URL ===> http://localhost:8300/api/v1/lapTops/export?userId=&brand=&since=2022-01-01T00:00:00Z
+     */
+    @GetMapping(path = "/export", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> exportLapTops(@RequestParam(required = false) Long userId,
+                                                         @RequestParam(required = false) String brand,
+                                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME,
+                                                                 fallbackPatterns = "yyyy-MM-dd'T'HH:mm:ssXXX") Date since){
+        StreamingResponseBody body = outputStream -> {
+            ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                int[] written = {0};
+                lapTopService.exportLapTops(userId, brand, since, row -> {
+                    try {
+                        writer.writeValue(generator, row);
+                        generator.writeRaw('\n');
+                        if (++written[0] % EXPORT_FLUSH_EVERY == 0)
+                            generator.flush();
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+    }
+
+    /**
+     *    Fetching The LapTop Change Events Following A Given Event id, Oldest First (Read By User Microservice)
+     *
+     *    URL ===> http://localhost:8300/api/v1/lapTops/events?after=0&limit=500
+     */
+    @GetMapping(path = "/events")
+    public ResponseEntity<?> fetchChangeEvents(@RequestParam(defaultValue = "0") Long after, @RequestParam(defaultValue = "500") Integer limit){
+        if (limit < 1 || limit > MAX_EVENTS)
+            return new ResponseEntity<>(new Message("Sorry, limit Must Be Between 1 And " + MAX_EVENTS + "!"), HttpStatus.BAD_REQUEST);
+        return new ResponseEntity<>(lapTopService.findChangeEvents(after, limit), HttpStatus.OK);
+    }
+
     /**
      *    Fetching LapTop And User Detail (From User Microservice) By LapTop id
      *
@@ -0,0 +1,50 @@
+package com.ndourcodeur.laptopservice.controller;
+
+import com.ndourcodeur.laptopservice.message.Message;
+import com.ndourcodeur.laptopservice.tracing.InMemorySpanExporter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping(path = "/api/v1/tracing")
+public class TracingController {
+
+    private final ObjectProvider<InMemorySpanExporter> inMemorySpanExporter;
+
+    public TracingController(ObjectProvider<InMemorySpanExporter> inMemorySpanExporter) {
+        this.inMemorySpanExporter = inMemorySpanExporter;
+    }
+
+    /**
+     *    Fetching The Spans Of A Trace Kept In Memory (tracing.in-memory.enabled=true)
+     *
+     *    URL ===> http://localhost:8300/api/v1/tracing/spans?traceId={traceId}
+     */
+    @GetMapping(path = "/spans")
+    public ResponseEntity<?> fetchSpans(@RequestParam String traceId){
+        InMemorySpanExporter exporter = inMemorySpanExporter.getIfAvailable();
+        if (exporter == null)
+            return disabled();
+        return new ResponseEntity<>(exporter.spans(traceId), HttpStatus.OK);
+    }
+
+    /**
+     *    Deleting The Spans Kept In Memory
+     *
+     *    URL ===> http://localhost:8300/api/v1/tracing/spans
+     */
+    @DeleteMapping(path = "/spans")
+    public ResponseEntity<?> deleteSpans(){
+        InMemorySpanExporter exporter = inMemorySpanExporter.getIfAvailable();
+        if (exporter == null)
+            return disabled();
+        exporter.clear();
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    private ResponseEntity<?> disabled() {
+        return new ResponseEntity<>(new Message("Spans are not kept in memory, see tracing.in-memory.enabled"), HttpStatus.NOT_FOUND);
+    }
+}
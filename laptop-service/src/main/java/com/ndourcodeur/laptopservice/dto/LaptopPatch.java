@@ -0,0 +1,37 @@
+package com.ndourcodeur.laptopservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+
+/**
+ *    Partial update of a lapTop: null fields are left unchanged. version is the version the change was
+ *    based on; the update is rejected with 409 if the lapTop has changed since.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LaptopPatch {
+
+    @Pattern(regexp = ".*\\S.*", message = "This field must not be blank!")
+    private String lapTopName;
+
+    @Min(0)
+    private Double lapTopPrice;
+
+    @Pattern(regexp = ".*\\S.*", message = "This field must not be blank!")
+    private String lapTopBrand;
+
+    private Boolean isInStock;
+
+    private String description;
+
+    private Long userId;
+
+    @NotNull(message = "This field is required!")
+    private Long version;
+}
@@ -0,0 +1,33 @@
+package com.ndourcodeur.laptopservice.dto;
+
+import com.ndourcodeur.laptopservice.entity.Laptop;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Date;
+
+/**
+ *    A lapTop as answered by the API, same JSON as the entity. Read queries build it directly from the
+ *    selected columns (select new ...), so no managed entity nor dirty-checking snapshot is created.
+ */
+@Getter
+@AllArgsConstructor
+public class LaptopResponse {
+
+    private final Long id;
+    private final String lapTopName;
+    private final Double lapTopPrice;
+    private final String lapTopBrand;
+    private final Boolean isInStock;
+    private final String description;
+    private final Long userId;
+    private final Long version;
+    private final Date createdAt;
+    private final Date updatedAt;
+
+    public static LaptopResponse of(Laptop laptop) {
+        return new LaptopResponse(laptop.getId(), laptop.getLapTopName(), laptop.getLapTopPrice(), laptop.getLapTopBrand(),
+                laptop.getIsInStock(), laptop.getDescription(), laptop.getUserId(), laptop.getVersion(), laptop.getCreatedAt(),
+                laptop.getUpdatedAt());
+    }
+}
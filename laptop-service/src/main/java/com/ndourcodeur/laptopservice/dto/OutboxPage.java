@@ -0,0 +1,23 @@
+package com.ndourcodeur.laptopservice.dto;
+
+import com.ndourcodeur.laptopservice.entity.OutboxEvent;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ *    Outbox events following a given id, with the newest event id and the clock of this service so
+ *    that the reader can tell how far behind it is and which events are old enough to be settled.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxPage {
+
+    private List<OutboxEvent> events;
+    private Long headId;
+    private Date serverTime;
+}
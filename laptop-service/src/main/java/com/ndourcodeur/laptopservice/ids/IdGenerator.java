@@ -0,0 +1,13 @@
+package com.ndourcodeur.laptopservice.ids;
+
+import java.util.UUID;
+
+/**
+ *    Source of unique ids: 64-bit keys and 128-bit UUIDs. Chosen with ids.generator (see IdGeneratorConfig).
+ */
+public interface IdGenerator {
+
+    long nextId();
+
+    UUID nextUuid();
+}
@@ -0,0 +1,27 @@
+package com.ndourcodeur.laptopservice.ids;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
+import java.io.Serializable;
+
+/**
+ *    Primary keys from the entity's pooled sequence or, with ids.primary-keys=generator, from the
+ *    IdGenerator bean. Either way the key is known before the insert, so inserts are batched.
+ *
+ *    Hibernate instantiates key generators itself, hence the static hand-over from IdGeneratorConfig.
+ */
+public class PrimaryKeyGenerator extends SequenceStyleGenerator {
+
+    private static volatile IdGenerator idGenerator;
+
+    public static void use(IdGenerator generator) {
+        idGenerator = generator;
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) {
+        IdGenerator generator = idGenerator;
+        return generator != null ? generator.nextId() : super.generate(session, object);
+    }
+}
@@ -0,0 +1,72 @@
+package com.ndourcodeur.laptopservice.loadbalancer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *    Live view of one downstream instance, as seen by this client: requests in flight, smoothed
+ *    latency and passive health (consecutive failures, ejection deadline).
+ */
+public class InstanceStats {
+
+    private static final double LATENCY_WEIGHT = 0.3;
+
+    // A latency not refreshed for this long counts half as much, so that an instance that had one
+    // slow answer is tried again instead of being avoided forever
+    private static final double LATENCY_HALF_LIFE_MILLIS = 1000;
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicLong latencyNanos = new AtomicLong();
+    private volatile long latencyUpdatedMillis;
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicInteger ejections = new AtomicInteger();
+    private volatile long ejectedUntilMillis;
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     *    Exponentially weighted moving average of the response time, decayed with its age;
+     *    0 until the first response.
+     */
+    public long getLatencyNanos(long nowMillis) {
+        long age = nowMillis - latencyUpdatedMillis;
+        return Math.round(latencyNanos.get() * Math.pow(0.5, Math.max(0, age) / LATENCY_HALF_LIFE_MILLIS));
+    }
+
+    public boolean isEjected(long nowMillis) {
+        return ejectedUntilMillis > nowMillis;
+    }
+
+    void started() {
+        outstanding.incrementAndGet();
+    }
+
+    void finished() {
+        outstanding.decrementAndGet();
+    }
+
+    void recordLatency(long nanos) {
+        latencyNanos.updateAndGet(average -> average == 0 ? nanos : Math.round(average + LATENCY_WEIGHT * (nanos - average)));
+        latencyUpdatedMillis = System.currentTimeMillis();
+    }
+
+    void recordSuccess() {
+        consecutiveFailures.set(0);
+        ejections.set(0);
+    }
+
+    /**
+     *    Ejects the instance once failureThreshold failures happened in a row; every ejection in a
+     *    row lasts one more baseEjectionMillis, up to maxEjectionMillis.
+     */
+    boolean recordFailure(int failureThreshold, long baseEjectionMillis, long maxEjectionMillis, long nowMillis) {
+        if (consecutiveFailures.incrementAndGet() < failureThreshold)
+            return false;
+        consecutiveFailures.set(0);
+        long ejection = Math.min(maxEjectionMillis, baseEjectionMillis * ejections.incrementAndGet());
+        ejectedUntilMillis = nowMillis + ejection;
+        return true;
+    }
+}
@@ -0,0 +1,79 @@
+package com.ndourcodeur.laptopservice.loadbalancer;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *    Picks two random healthy instances and sends the request to the one with the lower expected
+ *    wait, (requests in flight + 1) x smoothed latency: the "power of two choices" variant of
+ *    least-outstanding-requests, which avoids herding on a single best instance.
+ *
+ *    Ejected instances are skipped; if every instance is ejected they are all used again rather
+ *    than failing every request.
+ */
+public class LeastOutstandingLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    // Latency assumed for an instance that has not answered yet, so that it gets tried quickly
+    private static final long UNKNOWN_LATENCY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider;
+
+    private final LoadBalancerStats stats;
+
+    public LeastOutstandingLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+                                        LoadBalancerStats stats) {
+        this.serviceInstanceListSupplierProvider = serviceInstanceListSupplierProvider;
+        this.stats = stats;
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = serviceInstanceListSupplierProvider.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().map(this::choose);
+    }
+
+    private Response<ServiceInstance> choose(List<ServiceInstance> instances) {
+        if (instances.isEmpty())
+            return new EmptyResponse();
+        List<ServiceInstance> candidates = healthy(instances);
+        if (candidates.size() == 1)
+            return new DefaultResponse(candidates.get(0));
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first)
+            second++;
+        ServiceInstance a = candidates.get(first);
+        ServiceInstance b = candidates.get(second);
+        long now = System.currentTimeMillis();
+        return new DefaultResponse(expectedWait(a, now) <= expectedWait(b, now) ? a : b);
+    }
+
+    private List<ServiceInstance> healthy(List<ServiceInstance> instances) {
+        long now = System.currentTimeMillis();
+        List<ServiceInstance> healthy = new ArrayList<>(instances.size());
+        for (ServiceInstance instance : instances)
+            if (!stats.of(instance).isEjected(now))
+                healthy.add(instance);
+        return healthy.isEmpty() ? instances : healthy;
+    }
+
+    private double expectedWait(ServiceInstance instance, long nowMillis) {
+        InstanceStats instanceStats = stats.of(instance);
+        long latency = instanceStats.getLatencyNanos(nowMillis);
+        return (instanceStats.getOutstanding() + 1) * (double) (latency == 0 ? UNKNOWN_LATENCY_NANOS : latency);
+    }
+}
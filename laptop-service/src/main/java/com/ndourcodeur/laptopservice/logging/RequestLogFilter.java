@@ -0,0 +1,112 @@
+package com.ndourcodeur.laptopservice.logging;
+
+import com.ndourcodeur.laptopservice.ids.IdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *    One summary line per request (method, path, status, duration, request id) instead of a line per
+ *    service method. The request id is taken from X-Request-Id when it is a plain token and generated
+ *    otherwise; it is sent back in the answer and tags every line logged for the request (MDC).
+ *
+ *    Decides too whether the request logs its SQL (logging.sql.sample-rate) and whether it is traced
+ *    (see RequestTracing); RequestLogTurboFilter applies both.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class RequestLogFilter extends OncePerRequestFilter {
+
+    public static final String REQUEST_ID_HEADER = "X-Request-Id";
+
+    private final RequestTracing requestTracing;
+    private final IdGenerator idGenerator;
+    private final double sqlSampleRate;
+
+    public RequestLogFilter(RequestTracing requestTracing, IdGenerator idGenerator,
+                            @Value("${logging.sql.sample-rate:1.0}") double sqlSampleRate) {
+        this.requestTracing = requestTracing;
+        this.idGenerator = idGenerator;
+        this.sqlSampleRate = sqlSampleRate;
+        RequestLogTurboFilter.sampleSql(sqlSampleRate < 1.0);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        String requestId = request.getHeader(REQUEST_ID_HEADER);
+        if (!RequestTracing.isValidRequestId(requestId))
+            requestId = Long.toHexString(idGenerator.nextId());
+        boolean traced = requestTracing.isTraced(requestId);
+        MDC.put(RequestLogTurboFilter.REQUEST_ID, requestId);
+        MDC.put(RequestLogTurboFilter.SQL_SAMPLED, String.valueOf(traced || ThreadLocalRandom.current().nextDouble() < sqlSampleRate));
+        if (traced)
+            MDC.put(RequestLogTurboFilter.TRACED, "true");
+        response.setHeader(REQUEST_ID_HEADER, requestId);
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = false;
+        } finally {
+            if (!failed && request.isAsyncStarted())
+                request.getAsyncContext().addListener(new SummaryOnCompletion(request, start, requestId));
+            else
+                summary(request, failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus(), start, requestId);
+            MDC.remove(RequestLogTurboFilter.REQUEST_ID);
+            MDC.remove(RequestLogTurboFilter.SQL_SAMPLED);
+            MDC.remove(RequestLogTurboFilter.TRACED);
+        }
+    }
+
+    private static void summary(HttpServletRequest request, int status, long start, String requestId) {
+        log.info("method={} path={} status={} durationMs={} requestId={}", request.getMethod(), request.getRequestURI(), status,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), requestId);
+    }
+
+    // Asynchronous requests (exports, reactive aggregations) are summed up once the answer is complete
+    private static class SummaryOnCompletion implements AsyncListener {
+
+        private final HttpServletRequest request;
+        private final long start;
+        private final String requestId;
+
+        SummaryOnCompletion(HttpServletRequest request, long start, String requestId) {
+            this.request = request;
+            this.start = start;
+            this.requestId = requestId;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            summary(request, ((HttpServletResponse) event.getSuppliedResponse()).getStatus(), start, requestId);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
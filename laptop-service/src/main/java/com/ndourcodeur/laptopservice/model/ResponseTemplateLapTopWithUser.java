@@ -1,6 +1,6 @@
 package com.ndourcodeur.laptopservice.model;
 
-import com.ndourcodeur.laptopservice.entity.Laptop;
+import com.ndourcodeur.laptopservice.dto.LaptopResponse;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -10,6 +10,6 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class ResponseTemplateLapTopWithUser {
 
-    private Laptop laptop;
+    private LaptopResponse laptop;
     private User user;
 }
@@ -0,0 +1,114 @@
+package com.ndourcodeur.laptopservice.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ndourcodeur.laptopservice.entity.Laptop;
+import com.ndourcodeur.laptopservice.entity.OutboxEvent;
+import com.ndourcodeur.laptopservice.repository.OutboxEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ *    Transactional outbox of lapTop changes, read by user-service to maintain its local copy of the lapTops.
+ *
+ *    Events are written in the transaction of the change, so a change is published if and only if it
+ *    commits. They are inserted with plain JDBC batches rather than persisted one by one, which would
+ *    force Hibernate to execute every auto-increment insert immediately and break the batching of
+ *    addLapTops. Old events that a replay does not need are compacted away (see OutboxEventRepository).
+ *
+ *    created_at is stamped by the database, whose clock also dates the pages read by user-service (see
+ *    findChangeEvents): a single clock then tells when an event is settled, whichever instance wrote it.
+ */
+@Component
+@Slf4j
+public class Outbox {
+
+    private static final String INSERT = "insert into outbox_event (aggregate_id, user_id, type, payload, created_at) values (?, ?, ?, ?, localtimestamp)";
+    private static final int COMPACTION_CHUNK = 1000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxRelay relay;
+    private final long retentionMs;
+
+    public Outbox(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, OutboxEventRepository outboxEventRepository, OutboxRelay relay,
+                  @Value("${outbox.retention-hours:168}") long retentionHours) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.outboxEventRepository = outboxEventRepository;
+        this.relay = relay;
+        this.retentionMs = TimeUnit.HOURS.toMillis(retentionHours);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void lapTopsSaved(Collection<Laptop> lapTops) {
+        append(lapTops.stream()
+                .map(laptop -> new OutboxEvent(null, laptop.getId(), laptop.getUserId(), OutboxEvent.UPSERTED, toJson(laptop), null))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     *    Records the deletion of the given lapTops; userId is that of all of them, or null when unknown.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void lapTopsDeleted(Long userId, Collection<Long> lapTopIds) {
+        append(lapTopIds.stream()
+                .map(lapTopId -> new OutboxEvent(null, lapTopId, userId, OutboxEvent.DELETED, null, null))
+                .collect(Collectors.toList()));
+    }
+
+    private void append(List<OutboxEvent> events) {
+        if (events.isEmpty())
+            return;
+        // The lapTop rows are written (and locked) first: events of one lapTop then get increasing ids in commit order
+        entityManager.flush();
+        jdbcTemplate.batchUpdate(INSERT, events, events.size(), (statement, event) -> {
+            statement.setLong(1, event.getAggregateId());
+            statement.setObject(2, event.getUserId());
+            statement.setString(3, event.getType());
+            statement.setString(4, event.getPayload());
+        });
+        relay.notifyAfterCommit();
+    }
+
+    private String toJson(Laptop laptop) {
+        try {
+            return objectMapper.writeValueAsString(laptop);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Unable to serialize lapTop " + laptop.getId(), ex);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.compaction.interval-ms:3600000}")
+    public void compact() {
+        Date before = new Date(System.currentTimeMillis() - retentionMs);
+        long deleted = 0;
+        List<Long> ids;
+        do {
+            ids = outboxEventRepository.findCompactableIds(before, OutboxEvent.DELETED, PageRequest.of(0, COMPACTION_CHUNK));
+            if (!ids.isEmpty())
+                outboxEventRepository.deleteAllByIdInBatch(ids);
+            deleted += ids.size();
+        } while (ids.size() == COMPACTION_CHUNK);
+        if (deleted > 0)
+            log.info("Compacted {} outbox events older than {}", deleted, before);
+    }
+}
@@ -0,0 +1,91 @@
+package com.ndourcodeur.laptopservice.outbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.client.RestTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ *    Tells user-service that new outbox events were committed, so that it reads them right away
+ *    instead of at its next catch-up poll.
+ *
+ *    Notifications carry no events and are coalesced: however many commits happen while one is being
+ *    sent, a single one follows. A lost notification only delays the changes until that next poll.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+
+    private final RestTemplate restTemplate;
+    private final String notifyUrl;
+    private final boolean enabled;
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private final ThreadPoolExecutor executor;
+    private final Counter delivered;
+    private final Counter failed;
+
+    public OutboxRelay(RestTemplate restTemplate, MeterRegistry meterRegistry,
+                       @Value("${outbox.push.url:http://user-service/api/v1/projections/lapTops/notify}") String notifyUrl,
+                       @Value("${outbox.push.enabled:true}") boolean enabled) {
+        this.restTemplate = restTemplate;
+        this.notifyUrl = notifyUrl;
+        this.enabled = enabled;
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1), runnable -> {
+            Thread thread = new Thread(runnable, "outbox-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.delivered = meterRegistry.counter("outbox.push", "outcome", "success");
+        this.failed = meterRegistry.counter("outbox.push", "outcome", "failure");
+    }
+
+    public void notifyAfterCommit() {
+        if (!enabled || !TransactionSynchronizationManager.isSynchronizationActive())
+            return;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                schedule();
+            }
+        });
+    }
+
+    private void schedule() {
+        if (!pending.compareAndSet(false, true))
+            return;
+        try {
+            executor.execute(() -> {
+                pending.set(false);
+                send();
+            });
+        } catch (RejectedExecutionException ex) {
+            pending.set(false);
+        }
+    }
+
+    private void send() {
+        try {
+            restTemplate.postForLocation(notifyUrl, null);
+            delivered.increment();
+        } catch (RuntimeException ex) {
+            failed.increment();
+            log.warn("Unable to notify {} of new outbox events: {}", notifyUrl, ex.toString());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -1,16 +1,87 @@
 package com.ndourcodeur.laptopservice.repository;
 
+import com.ndourcodeur.laptopservice.dto.LaptopPatch;
+import com.ndourcodeur.laptopservice.dto.LaptopResponse;
 import com.ndourcodeur.laptopservice.entity.Laptop;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface LapTopRepository extends JpaRepository<Laptop, Long> {
 
+    // Read queries answer LaptopResponse rows built from the columns: no entity is managed nor snapshotted
+    String SELECT_RESPONSE = "select new com.ndourcodeur.laptopservice.dto.LaptopResponse(l.id, l.lapTopName, l.lapTopPrice,"
+            + " l.lapTopBrand, l.isInStock, l.description, l.userId, l.version, l.createdAt, l.updatedAt) from Laptop l";
+
+    /**
+     *    Forward-only, read-only scan of the export, run by the service with a fetch size fitting the
+     *    database: EXPORT_FETCH_SIZE rows at a time, or row by row on MySQL.
+     */
+    String EXPORT = SELECT_RESPONSE + " where (:userId is null or l.userId = :userId)"
+            + " and (:brand is null or l.lapTopBrand = :brand)"
+            + " and (:since is null or l.updatedAt >= :since) order by l.id";
+    int EXPORT_FETCH_SIZE = 500;
+
     List<Laptop> findByUserId(Long userId);
 
+    @Query(SELECT_RESPONSE + " where l.id = :id")
+    Optional<LaptopResponse> findResponseById(@Param("id") Long id);
+
+    @Query(SELECT_RESPONSE + " where l.userId in :userIds")
+    List<LaptopResponse> findResponsesByUserIdIn(@Param("userIds") Collection<Long> userIds);
+
+    @Query(SELECT_RESPONSE + " where l.id > :after order by l.id")
+    List<LaptopResponse> findResponsesAfter(@Param("after") Long after, Pageable pageable);
+
+    @Query(SELECT_RESPONSE + " where l.userId = :userId and l.id > :after order by l.id")
+    List<LaptopResponse> findResponsesByUserIdAfter(@Param("userId") Long userId, @Param("after") Long after, Pageable pageable);
+
+    @Query("select l.id from Laptop l where l.userId = :userId order by l.id")
+    List<Long> findIdsByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("select l.id from Laptop l where l.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     *    Applies the non-null fields of the patch if the lapTop is still at the expected version, in one
+     *    UPDATE that neither reads the row first nor rewrites the other columns. Returns 0 when the lapTop
+     *    does not exist or has another version.
+     */
+    default int patch(Long id, LaptopPatch patch, Date now) {
+        return patch(id, patch.getVersion(), patch.getLapTopName(), patch.getLapTopPrice(), patch.getLapTopBrand(),
+                patch.getIsInStock(), patch.getDescription(), patch.getUserId(), now);
+    }
+
+    // Plain parameters rather than SpEL on the patch: this runs on every PATCH
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Laptop l set l.lapTopName = coalesce(:lapTopName, l.lapTopName),"
+            + " l.lapTopPrice = coalesce(:lapTopPrice, l.lapTopPrice), l.lapTopBrand = coalesce(:lapTopBrand, l.lapTopBrand),"
+            + " l.isInStock = coalesce(:isInStock, l.isInStock), l.description = coalesce(:description, l.description),"
+            + " l.userId = coalesce(:userId, l.userId), l.version = l.version + 1, l.updatedAt = :now"
+            + " where l.id = :id and l.version = :version")
+    int patch(@Param("id") Long id, @Param("version") Long version, @Param("lapTopName") String lapTopName,
+              @Param("lapTopPrice") Double lapTopPrice, @Param("lapTopBrand") String lapTopBrand, @Param("isInStock") Boolean isInStock,
+              @Param("description") String description, @Param("userId") Long userId, @Param("now") Date now);
+
+    @Query("select l.version from Laptop l where l.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    /**
+     *    One DELETE statement, by primary key: only the given rows are locked.
+     */
+    @Modifying
+    @Query("delete from Laptop l where l.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
     /*public Laptop findByNameContaining(String name);
     public boolean existsByName(String name);*/
 }
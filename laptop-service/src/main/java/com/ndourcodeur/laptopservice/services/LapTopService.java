@@ -1,22 +1,36 @@
 package com.ndourcodeur.laptopservice.services;
 
 
+import com.ndourcodeur.laptopservice.dto.BatchItemResult;
+import com.ndourcodeur.laptopservice.dto.LaptopPatch;
 import com.ndourcodeur.laptopservice.dto.LaptopRequest;
-import com.ndourcodeur.laptopservice.entity.Laptop;
+import com.ndourcodeur.laptopservice.dto.LaptopResponse;
+import com.ndourcodeur.laptopservice.dto.OutboxPage;
+import com.ndourcodeur.laptopservice.pagination.CursorPage;
 import com.ndourcodeur.laptopservice.model.ResponseTemplateLapTopWithUser;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 public interface LapTopService {
 
-    public Laptop addLapTop(LaptopRequest request);
-    public Laptop editLapTop(Long id, LaptopRequest request);
-    public List<Laptop> findAllLapTops();
-    public Laptop findLapTop(Long id);
-    public List<Laptop> findByUserId(Long userId);
+    public LaptopResponse addLapTop(LaptopRequest request);
+    public List<BatchItemResult> addLapTops(List<LaptopRequest> requests);
+    public LaptopResponse editLapTop(Long id, LaptopRequest request);
+    public LaptopResponse patchLapTop(Long id, LaptopPatch patch);
+    public CursorPage<LaptopResponse> findAllLapTops(String cursor, Integer size);
+    public LaptopResponse findLapTop(Long id);
+    public CursorPage<LaptopResponse> findByUserId(Long userId, String cursor, Integer size);
+    public void exportLapTops(Long userId, String brand, Date since, Consumer<LaptopResponse> sink);
+    public List<LaptopResponse> findByUserIds(Collection<Long> userIds);
     public void deleteLapTop(Long id);
+    public int deleteLapTops(Collection<Long> ids);
+    public long deleteLapTopsByUserId(Long userId);
+    public OutboxPage findChangeEvents(Long after, Integer limit);
 
     public ResponseTemplateLapTopWithUser findLapTopWithUser(Long lapTopId);
 
@@ -1,21 +1,45 @@
 package com.ndourcodeur.laptopservice.services;
 
+import com.ndourcodeur.laptopservice.dto.BatchItemResult;
+import com.ndourcodeur.laptopservice.dto.LaptopPatch;
 import com.ndourcodeur.laptopservice.dto.LaptopRequest;
+import com.ndourcodeur.laptopservice.dto.LaptopResponse;
+import com.ndourcodeur.laptopservice.dto.OutboxPage;
 import com.ndourcodeur.laptopservice.entity.Laptop;
+import com.ndourcodeur.laptopservice.entity.OutboxEvent;
+import com.ndourcodeur.laptopservice.exception.ConflictException;
 import com.ndourcodeur.laptopservice.exception.ResourceNotFoundException;
 import com.ndourcodeur.laptopservice.model.ResponseTemplateLapTopWithUser;
 import com.ndourcodeur.laptopservice.model.User;
+import com.ndourcodeur.laptopservice.outbox.Outbox;
+import com.ndourcodeur.laptopservice.pagination.CursorPage;
+import com.ndourcodeur.laptopservice.pagination.Cursors;
 import com.ndourcodeur.laptopservice.repository.LapTopRepository;
+import com.ndourcodeur.laptopservice.repository.OutboxEventRepository;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.jpa.QueryHints;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.client.RestTemplate;
 
-import javax.transaction.Transactional;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+// Transactions are declared per method so that no remote call is ever made while holding a connection
 @Component
-@Transactional
 @Slf4j
 public class LapTopServiceImpl implements LapTopService {
 
@@ -23,27 +47,98 @@ public class LapTopServiceImpl implements LapTopService {
     RestTemplate restTemplate;
     private final LapTopRepository lapTopRepository;
 
-    public LapTopServiceImpl(LapTopRepository lapTopRepository) {
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    private final Outbox outbox;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    @Value("${spring.datasource.url:}")
+    private String datasourceUrl;
+
+    @Value("${lapTops.delete.chunk-size:500}")
+    private int deleteChunkSize;
+
+    public LapTopServiceImpl(LapTopRepository lapTopRepository, Outbox outbox) {
         this.lapTopRepository = lapTopRepository;
+        this.outbox = outbox;
     }
 
     @Override
-    public Laptop addLapTop(LaptopRequest request) {
-        log.info("Inside addLopTop of LapTopService");
+    @Transactional
+    public LaptopResponse addLapTop(LaptopRequest request) {
+        log.debug("Inside addLopTop of LapTopService");
+        Laptop laptop = newLapTop(request);
+        // The id is always generated: with a version attribute, an entity carrying an id is not new
+        Laptop savedLapTop = lapTopRepository.save(laptop);
+        outbox.lapTopsSaved(List.of(savedLapTop));
+        return LaptopResponse.of(savedLapTop);
+    }
+
+    @Override
+    @Transactional
+    public List<BatchItemResult> addLapTops(List<LaptopRequest> requests) {
+        log.debug("Inside addLapTops of LapTopService");
+        List<BatchItemResult> results = new ArrayList<>(requests.size());
+        List<Laptop> chunk = new ArrayList<>(batchSize);
+        for (int index = 0; index < requests.size(); index++) {
+            List<String> errors = validate(requests.get(index));
+            if (!errors.isEmpty()) {
+                results.add(new BatchItemResult(index, BatchItemResult.INVALID, null, errors));
+                continue;
+            }
+            // Ids come from the pooled sequence, so Hibernate can group the inserts into JDBC batches
+            Laptop laptop = newLapTop(requests.get(index));
+            entityManager.persist(laptop);
+            results.add(new BatchItemResult(index, BatchItemResult.CREATED, laptop.getId(), null));
+            chunk.add(laptop);
+            if (chunk.size() == batchSize) {
+                outbox.lapTopsSaved(chunk);
+                entityManager.clear();
+                chunk.clear();
+            }
+        }
+        outbox.lapTopsSaved(chunk);
+        entityManager.flush();
+        entityManager.clear();
+        return results;
+    }
+
+    private Laptop newLapTop(LaptopRequest request) {
         Laptop laptop = new Laptop();
-        laptop.setId(request.getId());
         laptop.setLapTopName(request.getLapTopName());
         laptop.setLapTopPrice(request.getLapTopPrice());
         laptop.setLapTopBrand(request.getLapTopBrand());
         laptop.setIsInStock(request.getIsInStock());
         laptop.setDescription(request.getDescription());
         laptop.setUserId(request.getUserId());
-        return lapTopRepository.save(laptop);
+        return laptop;
+    }
+
+    private List<String> validate(LaptopRequest request) {
+        if (request == null)
+            return List.of("LapTop must not be null");
+        List<String> errors = new ArrayList<>();
+        for (ConstraintViolation<LaptopRequest> violation : validator.validate(request))
+            errors.add(violation.getPropertyPath() + ": " + violation.getMessage());
+        return errors;
     }
 
     @Override
-    public Laptop editLapTop(Long id, LaptopRequest request) {
-        log.info("Inside editLopTop of LapTopService");
+    @Transactional
+    public LaptopResponse editLapTop(Long id, LaptopRequest request) {
+        log.debug("Inside editLopTop of LapTopService");
         Laptop laptop = lapTopRepository.findById(id)
                         .orElseThrow( () -> new ResourceNotFoundException("LapTop does not exist with ID:"+id));
         laptop.setId(request.getId());
@@ -53,42 +148,150 @@ public class LapTopServiceImpl implements LapTopService {
         laptop.setIsInStock(request.getIsInStock());
         laptop.setDescription(request.getDescription());
         laptop.setUserId(request.getUserId());
-        return lapTopRepository.save(laptop);
+        Laptop savedLapTop;
+        try {
+            // Flushed here so that a concurrent edit between the read and the write is a precise 409
+            savedLapTop = lapTopRepository.saveAndFlush(laptop);
+        } catch (ObjectOptimisticLockingFailureException ex) {
+            throw new ConflictException("LapTop with ID:" + id + " was modified concurrently, please retry");
+        }
+        outbox.lapTopsSaved(List.of(savedLapTop));
+        return LaptopResponse.of(savedLapTop);
     }
 
     @Override
-    public List<Laptop> findAllLapTops() {
-        log.info("Inside findAllLopTop of LapTopService");
-        return lapTopRepository.findAll();
+    @Transactional
+    public LaptopResponse patchLapTop(Long id, LaptopPatch patch) {
+        log.debug("Inside patchLapTop of LapTopService");
+        if (lapTopRepository.patch(id, patch, new Date()) == 0) {
+            Long version = lapTopRepository.findVersionById(id)
+                    .orElseThrow( () -> new ResourceNotFoundException("LapTop does not exist with ID:"+id));
+            throw new ConflictException("LapTop with ID:" + id + " is at version " + version + ", not " + patch.getVersion(), version);
+        }
+        // Read back for the outbox (and the answer); the row is locked by the update already
+        Laptop laptop = lapTopRepository.findById(id)
+                .orElseThrow( () -> new ResourceNotFoundException("LapTop does not exist with ID:"+id));
+        outbox.lapTopsSaved(List.of(laptop));
+        return LaptopResponse.of(laptop);
     }
 
     @Override
-    public Laptop findLapTop(Long id) {
-        log.info("Inside findLopTop of LapTopService");
-        return lapTopRepository.findById(id)
+    @Transactional(readOnly = true)
+    public CursorPage<LaptopResponse> findAllLapTops(String cursor, Integer size) {
+        log.debug("Inside findAllLopTop of LapTopService");
+        int pageSize = Cursors.pageSize(size);
+        List<LaptopResponse> rows = lapTopRepository.findResponsesAfter(Cursors.decode(cursor), PageRequest.of(0, pageSize + 1));
+        return Cursors.page(rows, pageSize, LaptopResponse::getId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public LaptopResponse findLapTop(Long id) {
+        log.debug("Inside findLopTop of LapTopService");
+        return lapTopRepository.findResponseById(id)
                 .orElseThrow( () -> new ResourceNotFoundException("LapTop does not exist with ID:"+id));
     }
 
     @Override
-    public List<Laptop> findByUserId(Long userId) {
-        log.info("Inside findByUserId of LapTopService");
-        return lapTopRepository.findByUserId(userId);
+    @Transactional(readOnly = true)
+    public CursorPage<LaptopResponse> findByUserId(Long userId, String cursor, Integer size) {
+        log.debug("Inside findByUserId of LapTopService");
+        int pageSize = Cursors.pageSize(size);
+        List<LaptopResponse> rows = lapTopRepository.findResponsesByUserIdAfter(userId, Cursors.decode(cursor), PageRequest.of(0, pageSize + 1));
+        return Cursors.page(rows, pageSize, LaptopResponse::getId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<LaptopResponse> findByUserIds(Collection<Long> userIds) {
+        log.debug("Inside findByUserIds of LapTopService");
+        return lapTopRepository.findResponsesByUserIdIn(userIds);
     }
 
     @Override
+    // Not bound by spring.transaction.default-timeout: it writes nothing, so no outbox event waits on it
+    @Transactional(readOnly = true, timeoutString = "${lapTops.export.transaction-timeout-seconds:1800}")
+    public void exportLapTops(Long userId, String brand, Date since, Consumer<LaptopResponse> sink) {
+        log.debug("Inside exportLapTops of LapTopService");
+        // Rows are not entities, so the persistence context does not grow with the table
+        // MySQL streams rows one by one with this fetch size; it applies to this statement only, unlike useCursorFetch
+        // on the URL, which turns every statement of the pool into a server-side prepared statement
+        int fetchSize = datasourceUrl.startsWith("jdbc:mysql:") ? Integer.MIN_VALUE : LapTopRepository.EXPORT_FETCH_SIZE;
+        try (Stream<LaptopResponse> rows = entityManager.createQuery(LapTopRepository.EXPORT, LaptopResponse.class)
+                .setParameter("userId", userId)
+                .setParameter("brand", brand)
+                .setParameter("since", since)
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .getResultStream()) {
+            rows.forEach(sink);
+        }
+    }
+
+    @Override
+    @Transactional
     public void deleteLapTop(Long id) {
-        log.info("Inside deleteLopTop of LapTopService");
-        Laptop laptop = lapTopRepository.findById(id)
-                .orElseThrow( () -> new ResourceNotFoundException("LapTop does not exist with ID:"+id));
-        lapTopRepository.delete(laptop);
+        log.debug("Inside deleteLopTop of LapTopService");
+        // A single DELETE instead of loading the lapTop first
+        if (lapTopRepository.deleteByIdIn(List.of(id)) == 0)
+            throw new ResourceNotFoundException("LapTop does not exist with ID:"+id);
+        outbox.lapTopsDeleted(null, List.of(id));
+    }
+
+    @Override
+    @Transactional
+    public int deleteLapTops(Collection<Long> ids) {
+        log.debug("Inside deleteLapTops of LapTopService");
+        List<Long> existingIds = lapTopRepository.findExistingIds(ids);
+        if (existingIds.isEmpty())
+            return 0;
+        int deleted = lapTopRepository.deleteByIdIn(existingIds);
+        outbox.lapTopsDeleted(null, existingIds);
+        return deleted;
+    }
+
+    /**
+     *    Deletes the lapTops of a user deleteChunkSize at a time, each chunk in its own short transaction,
+     *    so that a user with many lapTops never holds many row locks for long.
+     */
+    @Override
+    public long deleteLapTopsByUserId(Long userId) {
+        log.debug("Inside deleteLapTopsByUserId of LapTopService");
+        long deleted = 0;
+        int chunk;
+        do {
+            chunk = transactionTemplate.execute(status -> {
+                List<Long> ids = lapTopRepository.findIdsByUserId(userId, PageRequest.of(0, deleteChunkSize));
+                if (ids.isEmpty())
+                    return 0;
+                lapTopRepository.deleteByIdIn(ids);
+                outbox.lapTopsDeleted(userId, ids);
+                return ids.size();
+            });
+            deleted += chunk;
+        } while (chunk == deleteChunkSize);
+        return deleted;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public OutboxPage findChangeEvents(Long after, Integer limit) {
+        // Read before the events: an event stamped long enough before this time has committed by then (a
+        // transaction lasts less than spring.transaction.default-timeout), so none with a smaller id is missing
+        Date serverTime = outboxEventRepository.findDatabaseTime();
+        List<OutboxEvent> events = outboxEventRepository.findByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, limit));
+        // Read after the events, so that the head is never behind the last returned event
+        Long headId = outboxEventRepository.findHeadId();
+        return new OutboxPage(events, headId == null ? 0L : headId, serverTime);
     }
 
     @Override
     public ResponseTemplateLapTopWithUser findLapTopWithUser(Long lapTopId) {
-        log.info("Inside findLapTopWithUser of LapTopService");
+        log.debug("Inside findLapTopWithUser of LapTopService");
         ResponseTemplateLapTopWithUser response = new ResponseTemplateLapTopWithUser();
-        Laptop laptop = findLapTop(lapTopId);
-        User user = restTemplate.getForObject("http://localhost:8100/api/v1/users/user-detail/" + laptop.getUserId(), User.class);
+        // Self-call: the lookup runs in the repository's own transaction, released before the remote call
+        LaptopResponse laptop = findLapTop(lapTopId);
+        // A URI template, so the http.client.requests timer has one uri tag rather than one per user
+        User user = restTemplate.getForObject("http://user-service/api/v1/users/user-detail/{id}", User.class, laptop.getUserId());
         response.setLaptop(laptop);
         response.setUser(user);
         return response;
@@ -0,0 +1,55 @@
+package com.ndourcodeur.laptopservice.tracing;
+
+import org.springframework.cloud.sleuth.exporter.FinishedSpan;
+import org.springframework.cloud.sleuth.exporter.SpanReporter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ *    Keeps the last maxSpans finished spans in memory, for integration tests and benchmarks to read back
+ *    the breakdown of a trace (see TracingController). Like any other SpanReporter bean it is called by
+ *    Sleuth for every sampled span, next to the other exporters (Zipkin...).
+ */
+public class InMemorySpanExporter implements SpanReporter {
+
+    private final int maxSpans;
+    private final Deque<RecordedSpan> spans = new ArrayDeque<>();
+
+    public InMemorySpanExporter(int maxSpans) {
+        this.maxSpans = maxSpans;
+    }
+
+    @Override
+    public void report(FinishedSpan span) {
+        RecordedSpan recorded = RecordedSpan.of(span);
+        synchronized (spans) {
+            if (spans.size() == maxSpans)
+                spans.removeFirst();
+            spans.addLast(recorded);
+        }
+    }
+
+    /**
+     *    Spans of a trace, in the order they started.
+     */
+    public List<RecordedSpan> spans(String traceId) {
+        List<RecordedSpan> trace = new ArrayList<>();
+        synchronized (spans) {
+            for (RecordedSpan span : spans)
+                if (span.getTraceId().equals(traceId))
+                    trace.add(span);
+        }
+        trace.sort(Comparator.comparingLong(RecordedSpan::getStartMicros));
+        return trace;
+    }
+
+    public void clear() {
+        synchronized (spans) {
+            spans.clear();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.ndourcodeur.laptopservice.tracing;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.cloud.sleuth.exporter.FinishedSpan;
+
+import java.util.Map;
+
+/**
+ *    A finished span as kept by InMemorySpanExporter. Times are in microseconds, the start since the epoch.
+ */
+@Getter
+@AllArgsConstructor
+public class RecordedSpan {
+
+    private final String traceId;
+    private final String spanId;
+    private final String parentId;
+    private final String name;
+    private final String kind;
+    private final String remoteServiceName;
+    private final long startMicros;
+    private final long durationMicros;
+    private final Map<String, String> tags;
+    private final String error;
+
+    public static RecordedSpan of(FinishedSpan span) {
+        return new RecordedSpan(span.getTraceId(), span.getSpanId(), span.getParentId(), span.getName(),
+                span.getKind() == null ? null : span.getKind().name(), span.getRemoteServiceName(),
+                span.getStartTimestamp(), span.getEndTimestamp() - span.getStartTimestamp(), Map.copyOf(span.getTags()),
+                span.getError() == null ? null : span.getError().toString());
+    }
+}
@@ -0,0 +1,85 @@
+package com.ndourcodeur.laptopservice.pagination;
+
+import com.ndourcodeur.laptopservice.controller.LapTopController;
+import com.ndourcodeur.laptopservice.exception.ControllerExceptionHandler;
+import com.ndourcodeur.laptopservice.exception.InvalidCursorException;
+import com.ndourcodeur.laptopservice.services.LapTopService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class CursorsTests {
+
+	@Test
+	void aCursorDecodesToTheIdItWasEncodedFrom() {
+		for (long id : new long[]{1L, 42L, 1L << 40, Long.MAX_VALUE})
+			assertThat(Cursors.decode(Cursors.encode(id))).isEqualTo(id);
+	}
+
+	@Test
+	void noCursorStartsAtTheFirstPage() {
+		assertThat(Cursors.decode(null)).isZero();
+		assertThat(Cursors.decode("")).isZero();
+	}
+
+	@Test
+	void aCursorThatIsNotOneOfOursIsInvalid() {
+		// Not base64, then base64 of something that is not an id
+		assertThatThrownBy(() -> Cursors.decode("not-a-cursor!")).isInstanceOf(InvalidCursorException.class);
+		assertThatThrownBy(() -> Cursors.decode("YWJj")).isInstanceOf(InvalidCursorException.class);
+	}
+
+	@Test
+	void anInvalidCursorIsABadRequest() throws Exception {
+		LapTopService lapTopService = Mockito.mock(LapTopService.class);
+		Mockito.when(lapTopService.findAllLapTops(any(), any())).thenAnswer(invocation -> {
+			Cursors.decode(invocation.getArgument(0));
+			return new CursorPage<>(Collections.emptyList(), null);
+		});
+		MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new LapTopController(lapTopService, new ObjectMapper()))
+				.setControllerAdvice(new ControllerExceptionHandler())
+				.build();
+
+		mockMvc.perform(get("/api/v1/lapTops/all").param("cursor", "not-a-cursor!"))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.message").value("Invalid cursor: not-a-cursor!"));
+		mockMvc.perform(get("/api/v1/lapTops/all").param("cursor", Cursors.encode(10)))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	void exactlySizeRowsIsTheLastPage() {
+		CursorPage<Long> page = Cursors.page(Arrays.asList(1L, 2L, 3L), 3, Function.identity());
+
+		assertThat(page.getItems()).containsExactly(1L, 2L, 3L);
+		assertThat(page.getNextCursor()).isNull();
+	}
+
+	@Test
+	void oneRowMoreThanSizeGivesACursorAfterTheLastItem() {
+		CursorPage<Long> page = Cursors.page(Arrays.asList(1L, 2L, 3L, 4L), 3, Function.identity());
+
+		assertThat(page.getItems()).containsExactly(1L, 2L, 3L);
+		assertThat(Cursors.decode(page.getNextCursor())).isEqualTo(3L);
+	}
+
+	@Test
+	void thePageSizeIsBounded() {
+		assertThat(Cursors.pageSize(null)).isEqualTo(Cursors.DEFAULT_PAGE_SIZE);
+		assertThat(Cursors.pageSize(0)).isEqualTo(1);
+		assertThat(Cursors.pageSize(Cursors.MAX_PAGE_SIZE + 1)).isEqualTo(Cursors.MAX_PAGE_SIZE);
+	}
+}
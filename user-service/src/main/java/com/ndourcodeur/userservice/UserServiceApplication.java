@@ -1,15 +1,25 @@
 package com.ndourcodeur.userservice;
 
+import com.ndourcodeur.userservice.config.BinaryJsonConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.cloud.openfeign.EnableFeignClients;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.client.RestTemplate;
 
 @SpringBootApplication
 @EnableJpaAuditing
 @EnableFeignClients
+@EnableCaching
+@EnableScheduling
 public class UserServiceApplication {
 
 	public static void main(String[] args) {
@@ -17,9 +27,19 @@ public class UserServiceApplication {
 	}
 
 	@Bean
-	//@LoadBalanced
-	public RestTemplate restTemplate(){
-		return new RestTemplate();
+	@Primary
+	@LoadBalanced
+	public RestTemplate restTemplate(RestTemplateBuilder builder, CloseableHttpClient httpClient){
+		// Boot's message converters, Smile and CBOR included, asking for Smile first (see BinaryJsonConfig)
+		return builder.requestFactory(() -> new HttpComponentsClientHttpRequestFactory(httpClient))
+				.additionalInterceptors(BinaryJsonConfig.preferSmile())
+				.build();
+	}
+
+	// For calls to one specific address, such as a given peer instance
+	@Bean
+	public RestTemplate peerRestTemplate(CloseableHttpClient httpClient){
+		return new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
 	}
 
 }
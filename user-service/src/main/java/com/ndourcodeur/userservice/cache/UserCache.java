@@ -0,0 +1,108 @@
+package com.ndourcodeur.userservice.cache;
+
+import com.ndourcodeur.userservice.dto.UserResponse;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ *    Read-through cache of users by id, by username and by email.
+ *
+ *    Username and email keys are lower-cased because the database compares them case-insensitively.
+ *    Absent usernames and emails are cached too, which is why every write evicts the keys of both
+ *    the old and the new values.
+ */
+@Component
+public class UserCache {
+
+    static final String USERS = "users";
+    static final String USERS_BY_USERNAME = "usersByUsername";
+    static final String USERS_BY_EMAIL = "usersByEmail";
+
+    private final Cache users;
+    private final Cache usersByUsername;
+    private final Cache usersByEmail;
+    private final UserCacheBroadcaster broadcaster;
+
+    public UserCache(CacheManager cacheManager, UserCacheBroadcaster broadcaster) {
+        this.users = cacheManager.getCache(USERS);
+        this.usersByUsername = cacheManager.getCache(USERS_BY_USERNAME);
+        this.usersByEmail = cacheManager.getCache(USERS_BY_EMAIL);
+        this.broadcaster = broadcaster;
+    }
+
+    /**
+     *    Returns the cached user or loads it; a missing user (null) is not cached by id.
+     */
+    public UserResponse getById(Long id, Function<Long, UserResponse> loader) {
+        UserResponse user = users.get(id, UserResponse.class);
+        if (user == null) {
+            user = loader.apply(id);
+            if (user != null)
+                users.put(id, user);
+        }
+        return user;
+    }
+
+    public UserResponse getByUsername(String username, Supplier<UserResponse> loader) {
+        return getByKey(usersByUsername, normalize(username), loader);
+    }
+
+    public UserResponse getByEmail(String email, Supplier<UserResponse> loader) {
+        return getByKey(usersByEmail, normalize(email), loader);
+    }
+
+    /**
+     *    Evicts the given keys now and, when called inside a transaction, once more after commit so
+     *    that a concurrent read cannot put back the pre-commit row. Peers are notified after commit.
+     */
+    public void invalidate(UserCacheInvalidation invalidation) {
+        evictLocally(invalidation);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictLocally(invalidation);
+                    broadcaster.broadcast(invalidation);
+                }
+            });
+        } else {
+            broadcaster.broadcast(invalidation);
+        }
+    }
+
+    public void evictLocally(UserCacheInvalidation invalidation) {
+        if (invalidation.getId() != null)
+            users.evict(invalidation.getId());
+        evictKeys(usersByUsername, invalidation.getUsernames());
+        evictKeys(usersByEmail, invalidation.getEmails());
+    }
+
+    private static UserResponse getByKey(Cache cache, String key, Supplier<UserResponse> loader) {
+        Cache.ValueWrapper cached = cache.get(key);
+        if (cached != null)
+            return (UserResponse) cached.get();
+        UserResponse user = loader.get();
+        cache.put(key, user);
+        return user;
+    }
+
+    private static void evictKeys(Cache cache, List<String> keys) {
+        if (keys == null)
+            return;
+        for (String key : keys)
+            if (key != null)
+                cache.evict(normalize(key));
+    }
+
+    private static String normalize(String key) {
+        return key.toLowerCase(Locale.ROOT);
+    }
+}
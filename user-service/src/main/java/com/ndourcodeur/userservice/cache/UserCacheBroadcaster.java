@@ -0,0 +1,64 @@
+package com.ndourcodeur.userservice.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *    Pushes cache invalidations to the other user-service instances listed in user-cache.peers.
+ *
+ *    Delivery is best effort and happens off the request thread; an invalidation that cannot be
+ *    delivered is bounded by the cache TTL.
+ */
+@Component
+@Slf4j
+public class UserCacheBroadcaster {
+
+    private final RestTemplate restTemplate;
+    private final List<String> peers;
+    private final ThreadPoolExecutor executor;
+
+    public UserCacheBroadcaster(@Qualifier("peerRestTemplate") RestTemplate restTemplate, @Value("${user-cache.peers:}") List<String> peers) {
+        this.restTemplate = restTemplate;
+        this.peers = peers;
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1000), runnable -> {
+            Thread thread = new Thread(runnable, "user-cache-broadcast");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void broadcast(UserCacheInvalidation invalidation) {
+        for (String peer : peers) {
+            if (peer.isBlank())
+                continue;
+            try {
+                executor.execute(() -> send(peer, invalidation));
+            } catch (RejectedExecutionException ex) {
+                log.warn("Dropping user cache invalidation for {}: queue is full", peer);
+            }
+        }
+    }
+
+    private void send(String peer, UserCacheInvalidation invalidation) {
+        try {
+            restTemplate.postForLocation(peer + "/api/v1/users/cache/invalidate", invalidation);
+        } catch (RuntimeException ex) {
+            log.warn("Unable to send user cache invalidation to {}: {}", peer, ex.toString());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,20 @@
+package com.ndourcodeur.userservice.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ *    Keys to drop from the user caches, sent as-is to the other user-service instances.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserCacheInvalidation {
+
+    private Long id;
+    private List<String> usernames;
+    private List<String> emails;
+}
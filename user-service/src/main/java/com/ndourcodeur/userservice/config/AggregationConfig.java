@@ -0,0 +1,35 @@
+package com.ndourcodeur.userservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ *    Executor used to fan out the remote calls of the cars-and-lapTops aggregation.
+ *
+ *    The pool and its queue are bounded: once both are full new tasks are rejected
+ *    and the corresponding section of the response is reported as unavailable.
+ *    With threads.virtual.enabled the pool's threads are virtual threads, within the same
+ *    bounds.
+ */
+@Configuration
+public class AggregationConfig {
+
+    @Bean(name = "aggregationExecutor")
+    public TaskExecutor aggregationExecutor(
+            @Value("${aggregation.executor.pool-size:16}") int poolSize,
+            @Value("${aggregation.executor.queue-capacity:100}") int queueCapacity,
+            @Value("${threads.virtual.enabled:false}") boolean virtualThreads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("aggregation-");
+        if (virtualThreads)
+            VirtualThreads.threadFactory("aggregation-").ifPresent(executor::setThreadFactory);
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+}
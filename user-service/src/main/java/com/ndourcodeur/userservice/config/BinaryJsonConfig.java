@@ -0,0 +1,63 @@
+package com.ndourcodeur.userservice.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import feign.RequestInterceptor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.util.List;
+
+/**
+ *    Smile and CBOR, binary encodings of the JSON data model, next to JSON. Controllers answer in
+ *    the format the Accept header asks for; JSON stays first, so a client that does not ask (or
+ *    accepts anything) still gets JSON. Large bodies are gzipped too (server.compression.*).
+ *
+ *    Our own calls to the other services (Feign, RestTemplate and WebClient) ask for Smile first,
+ *    then JSON; the request bodies they send stay JSON. The HTTP clients send Accept-Encoding and
+ *    inflate gzipped answers by themselves.
+ */
+@Configuration
+public class BinaryJsonConfig {
+
+    public static final MediaType SMILE = new MediaType("application", "x-jackson-smile");
+    public static final String SMILE_THEN_JSON_VALUE = "application/x-jackson-smile, application/json";
+
+    private static final List<MediaType> SMILE_THEN_JSON = List.of(SMILE, MediaType.APPLICATION_JSON);
+
+    // Built like the JSON ObjectMapper (spring.jackson.*), only the encoding differs
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public RequestInterceptor preferSmileRequestInterceptor() {
+        return template -> {
+            if (!template.headers().containsKey(HttpHeaders.ACCEPT))
+                template.header(HttpHeaders.ACCEPT, SMILE_THEN_JSON_VALUE);
+        };
+    }
+
+    /**
+     *    RestTemplate lists every type its converters can read, JSON first: put Smile first instead.
+     */
+    public static ClientHttpRequestInterceptor preferSmile() {
+        return (request, body, execution) -> {
+            if (request.getHeaders().getAccept().contains(SMILE))
+                request.getHeaders().setAccept(SMILE_THEN_JSON);
+            return execution.execute(request, body);
+        };
+    }
+}
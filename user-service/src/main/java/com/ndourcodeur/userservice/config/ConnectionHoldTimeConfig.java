@@ -0,0 +1,89 @@
+package com.ndourcodeur.userservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *    Publishes db.connection.hold, the time each pooled JDBC connection stays borrowed, tagged with
+ *    the service method that borrowed it (see ServiceMethodContext). A method whose hold time grows
+ *    past its own query time is holding the connection across something else, e.g. a remote call.
+ */
+@Configuration
+public class ConnectionHoldTimeConfig {
+
+    public static final String METER = "db.connection.hold";
+
+    @Bean
+    public static BeanPostProcessor connectionHoldTimeDataSourcePostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof HoldTimeDataSource))
+                    return new HoldTimeDataSource((DataSource) bean, meterRegistry);
+                return bean;
+            }
+        };
+    }
+
+    // A DelegatingDataSource, so Boot still unwraps the Hikari pool underneath for its own metrics
+    static class HoldTimeDataSource extends DelegatingDataSource {
+
+        private final ObjectProvider<MeterRegistry> meterRegistry;
+
+        HoldTimeDataSource(DataSource target, ObjectProvider<MeterRegistry> meterRegistry) {
+            super(target);
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return track(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return track(super.getConnection(username, password));
+        }
+
+        private Connection track(Connection connection) {
+            String method = ServiceMethodContext.current();
+            long borrowedAt = System.nanoTime();
+            boolean[] closed = new boolean[1];
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, invoked, args) -> {
+                        if ("close".equals(invoked.getName()) && !closed[0]) {
+                            closed[0] = true;
+                            record(method, System.nanoTime() - borrowedAt);
+                        }
+                        try {
+                            return invoked.invoke(connection, args);
+                        } catch (InvocationTargetException ex) {
+                            throw ex.getCause();
+                        }
+                    });
+        }
+
+        private void record(String method, long nanos) {
+            MeterRegistry registry = meterRegistry.getIfAvailable();
+            if (registry == null)
+                return;
+            Timer.builder(METER)
+                    .description("Time a pooled JDBC connection is held, by service method")
+                    .tag("method", method)
+                    .register(registry)
+                    .record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
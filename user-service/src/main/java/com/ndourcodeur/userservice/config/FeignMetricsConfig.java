@@ -0,0 +1,21 @@
+package com.ndourcodeur.userservice.config;
+
+import feign.Capability;
+import feign.micrometer.MicrometerCapability;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ *    Times every @FeignClient call, tagged with the client interface and its method: feign.Feign
+ *    for the whole call as the caller sees it (hedges included, see HedgingConfig), feign.Client
+ *    for the HTTP exchange and feign.codec.Decoder for reading the answer.
+ */
+@Configuration
+public class FeignMetricsConfig {
+
+    @Bean
+    public Capability micrometerCapability(MeterRegistry meterRegistry) {
+        return new MicrometerCapability(meterRegistry);
+    }
+}
@@ -0,0 +1,70 @@
+package com.ndourcodeur.userservice.config;
+
+import com.ndourcodeur.userservice.hedging.HedgeBudget;
+import com.ndourcodeur.userservice.hedging.HedgingClient;
+import feign.Client;
+import feign.httpclient.ApacheHttpClient;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.cloud.openfeign.loadbalancer.FeignBlockingLoadBalancerClient;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ *    Feign client used by every @FeignClient: the pooled Apache client behind the load balancer,
+ *    with hedging of the idempotent GETs marked @Hedged. Hedging sits above the load balancer so
+ *    that the second attempt is balanced on its own, normally to a less busy instance.
+ *
+ *    Attempts of hedged calls run on a bounded executor without queue: when it is saturated
+ *    the call is made without hedging rather than queued. With threads.virtual.enabled the pool's
+ *    threads are virtual threads, within the same bound.
+ */
+@Configuration
+public class HedgingConfig {
+
+    @Bean(name = "hedgingExecutor")
+    public TaskExecutor hedgingExecutor(@Value("${hedging.executor.pool-size:64}") int poolSize,
+            @Value("${threads.virtual.enabled:false}") boolean virtualThreads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("hedging-");
+        if (virtualThreads)
+            VirtualThreads.threadFactory("hedging-").ifPresent(executor::setThreadFactory);
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+
+    @Bean
+    public HedgeBudget hedgeBudget(MeterRegistry meterRegistry,
+            @Value("${hedging.budget.ratio:0.05}") double ratio,
+            @Value("${hedging.budget.burst:10}") int burst) {
+        HedgeBudget budget = new HedgeBudget(ratio, burst);
+        Gauge.builder("feign.hedging.budget.tokens", budget, HedgeBudget::tokens)
+                .description("Hedges that can be sent right now")
+                .register(meterRegistry);
+        return budget;
+    }
+
+    @Bean
+    public Client feignClient(CloseableHttpClient httpClient, LoadBalancerClient loadBalancerClient,
+            LoadBalancerClientFactory loadBalancerClientFactory, HedgeBudget hedgeBudget, MeterRegistry meterRegistry,
+            @Qualifier("hedgingExecutor") TaskExecutor hedgingExecutor,
+            @Value("${hedging.enabled:true}") boolean enabled,
+            @Value("${hedging.percentile:0.95}") double percentile,
+            @Value("${hedging.min-delay-ms:5}") long minDelayMs,
+            @Value("${hedging.min-samples:100}") int minSamples) {
+        Client client = new FeignBlockingLoadBalancerClient(new ApacheHttpClient(httpClient), loadBalancerClient, loadBalancerClientFactory);
+        if (!enabled)
+            return client;
+        return new HedgingClient(client, hedgingExecutor, hedgeBudget, meterRegistry, percentile, minDelayMs, minSamples);
+    }
+}
@@ -0,0 +1,38 @@
+package com.ndourcodeur.userservice.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+/**
+ *    Jackson reads and writes properties through accessors generated once per property (Blackbird,
+ *    on LambdaMetafactory) instead of reflective calls on every response. Spring Boot adds Module
+ *    beans to the shared ObjectMapper builder, so JSON, Smile and CBOR (see BinaryJsonConfig) all
+ *    use them.
+ */
+@Configuration
+public class JacksonConfig {
+
+    @Bean
+    @Conditional(SameClassLoaderAsBlackbird.class)
+    public Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+
+    /**
+     *    Blackbird needs full access to each bean class, which it only gets for classes of its own class
+     *    loader. Under devtools our classes come from the restart class loader: plain reflection then.
+     */
+    static class SameClassLoaderAsBlackbird implements Condition {
+
+        @Override
+        public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+            return JacksonConfig.class.getClassLoader() == BlackbirdModule.class.getClassLoader();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.ndourcodeur.userservice.config;
+
+import com.ndourcodeur.userservice.loadbalancer.LeastOutstandingLoadBalancerConfiguration;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ *    Client-side load balancing of every downstream service (Feign clients and @LoadBalanced
+ *    RestTemplate). Instances come from the discovery clients available, by default the static
+ *    spring.cloud.discovery.client.simple.instances list of application.properties.
+ */
+@Configuration
+@LoadBalancerClients(defaultConfiguration = LeastOutstandingLoadBalancerConfiguration.class)
+public class LoadBalancerConfig {
+}
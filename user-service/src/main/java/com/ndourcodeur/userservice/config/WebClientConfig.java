@@ -0,0 +1,64 @@
+package com.ndourcodeur.userservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.loadbalancer.reactive.LoadBalancedExchangeFilterFunction;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ *    Non-blocking HTTP client of the /api/v2 endpoints: a load-balanced WebClient on a bounded
+ *    Reactor Netty connection pool, sized and timed out like the blocking pool (http.client.*).
+ *    Requests waiting for a connection are bounded too, so an overloaded downstream pushes back.
+ *    Answers are asked for in Smile, gzipped when large (see BinaryJsonConfig).
+ */
+@Configuration
+public class WebClientConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider webClientConnectionProvider(
+            @Value("${http.client.max-connections:200}") int maxConnections,
+            @Value("${http.client.max-pending-acquires:1000}") int maxPendingAcquires,
+            @Value("${http.client.pool-timeout-ms:1000}") long poolTimeoutMs,
+            @Value("${http.client.keep-alive-ms:30000}") long keepAliveMs) {
+        return ConnectionProvider.builder("downstream")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(maxPendingAcquires)
+                .pendingAcquireTimeout(Duration.ofMillis(poolTimeoutMs))
+                .maxIdleTime(Duration.ofMillis(keepAliveMs))
+                .metrics(true)
+                .build();
+    }
+
+    // Boot's builder (a new one per injection, with its codecs and customizers, tracing included) plus the
+    // load balancer: a @LoadBalanced WebClient.Builder bean would replace Boot's builder for every other client
+    @Bean
+    public WebClient loadBalancedWebClient(WebClient.Builder webClientBuilder, LoadBalancedExchangeFilterFunction loadBalancer,
+            ConnectionProvider connectionProvider, Jackson2ObjectMapperBuilder objectMapperBuilder,
+            @Value("${http.client.connect-timeout-ms:2000}") int connectTimeoutMs,
+            @Value("${http.client.read-timeout-ms:5000}") long readTimeoutMs) {
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(readTimeoutMs))
+                .compress(true);
+        ObjectMapper smileMapper = objectMapperBuilder.factory(new SmileFactory()).build();
+        return webClientBuilder
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .filter(loadBalancer)
+                // Without mime types, a Jackson decoder takes the JSON ones: Smile only, or JSON answers fail to parse
+                .codecs(configurer -> configurer.customCodecs().register(new Jackson2SmileDecoder(smileMapper, BinaryJsonConfig.SMILE)))
+                .defaultHeader(HttpHeaders.ACCEPT, BinaryJsonConfig.SMILE_THEN_JSON_VALUE)
+                .build();
+    }
+}
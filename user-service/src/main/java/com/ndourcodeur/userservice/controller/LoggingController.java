@@ -0,0 +1,54 @@
+package com.ndourcodeur.userservice.controller;
+
+import com.ndourcodeur.userservice.logging.RequestTracing;
+import com.ndourcodeur.userservice.message.Message;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping(path = "/api/v1/logging")
+public class LoggingController {
+
+    private final RequestTracing requestTracing;
+
+    public LoggingController(RequestTracing requestTracing) {
+        this.requestTracing = requestTracing;
+    }
+
+    /**
+     *    Fetching The Request ids Currently Traced
+     *
+     *    URL ===> http://localhost:8100/api/v1/logging/traced-requests
+     */
+    @GetMapping(path = "/traced-requests")
+    public ResponseEntity<?> fetchTracedRequests(){
+        return new ResponseEntity<>(requestTracing.tracedRequestIds(), HttpStatus.OK);
+    }
+
+    /**
+     *    Tracing Every Request Sent With This X-Request-Id Header (Everything From DEBUG Up, SQL And Parameters)
+     *
+     *    URL ===> http://localhost:8100/api/v1/logging/traced-requests/{requestId}
+     */
+    @PutMapping(path = "/traced-requests/{requestId}")
+    public ResponseEntity<?> traceRequest(@PathVariable String requestId){
+        if (!RequestTracing.isValidRequestId(requestId))
+            return new ResponseEntity<>(new Message("Sorry, A Request id Is 1 To 64 Letters, Digits, '.', '_' Or '-'!"), HttpStatus.BAD_REQUEST);
+        if (!requestTracing.trace(requestId))
+            return new ResponseEntity<>(new Message("Sorry, At Most " + RequestTracing.MAX_TRACED + " Request ids Can Be Traced!"), HttpStatus.BAD_REQUEST);
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    /**
+     *    Stopping The Tracing Of A Request id
+     *
+     *    URL ===> http://localhost:8100/api/v1/logging/traced-requests/{requestId}
+     */
+    @DeleteMapping(path = "/traced-requests/{requestId}")
+    public ResponseEntity<?> untraceRequest(@PathVariable String requestId){
+        if (!requestTracing.untrace(requestId))
+            return new ResponseEntity<>(new Message("Request id " + requestId + " is not traced"), HttpStatus.NOT_FOUND);
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+}
@@ -0,0 +1,68 @@
+package com.ndourcodeur.userservice.controller;
+
+import com.ndourcodeur.userservice.dto.ProjectionStatus;
+import com.ndourcodeur.userservice.entity.ProjectionCheckpoint;
+import com.ndourcodeur.userservice.message.Message;
+import com.ndourcodeur.userservice.projection.ProjectionPoller;
+import com.ndourcodeur.userservice.projection.ProjectionSource;
+import com.ndourcodeur.userservice.projection.ProjectionStore;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping(path = "/api/v1/projections")
+public class ProjectionController {
+
+    private final ProjectionPoller projectionPoller;
+
+    private final ProjectionStore projectionStore;
+
+    public ProjectionController(ProjectionPoller projectionPoller, ProjectionStore projectionStore) {
+        this.projectionPoller = projectionPoller;
+        this.projectionStore = projectionStore;
+    }
+
+    /**
+     *    Receiving A Notification Of New Change Events From Car Microservice Or LapTop Microservice (source = cars Or lapTops)
+     *
+     *    URL ===> http://localhost:8100/api/v1/projections/{source}/notify
+     */
+    @PostMapping(path = "/{source}/notify")
+    public ResponseEntity<?> notifyChanges(@PathVariable String source){
+        ProjectionSource projectionSource = ProjectionSource.fromPath(source);
+        if (projectionSource == null)
+            return new ResponseEntity<>(new Message("There is no projection named " + source + "!"), HttpStatus.NOT_FOUND);
+        projectionPoller.requestPoll(projectionSource);
+        return new ResponseEntity<>(HttpStatus.ACCEPTED);
+    }
+
+    /**
+     *    Rebuilding A Projection From The Change Events Of Its Source (source = cars Or lapTops)
+     *
+     *    URL ===> http://localhost:8100/api/v1/projections/{source}/replay
+     */
+    @PostMapping(path = "/{source}/replay")
+    public ResponseEntity<?> replay(@PathVariable String source){
+        ProjectionSource projectionSource = ProjectionSource.fromPath(source);
+        if (projectionSource == null)
+            return new ResponseEntity<>(new Message("There is no projection named " + source + "!"), HttpStatus.NOT_FOUND);
+        projectionPoller.replay(projectionSource);
+        return new ResponseEntity<>(new Message("Replay of the " + source + " projection started"), HttpStatus.ACCEPTED);
+    }
+
+    /**
+     *    Fetching The Progress Of A Projection (source = cars Or lapTops)
+     *
+     *    URL ===> http://localhost:8100/api/v1/projections/{source}
+     */
+    @GetMapping(path = "/{source}")
+    public ResponseEntity<?> fetchStatus(@PathVariable String source){
+        ProjectionSource projectionSource = ProjectionSource.fromPath(source);
+        if (projectionSource == null)
+            return new ResponseEntity<>(new Message("There is no projection named " + source + "!"), HttpStatus.NOT_FOUND);
+        ProjectionCheckpoint checkpoint = projectionStore.findCheckpoint(projectionSource);
+        return new ResponseEntity<>(new ProjectionStatus(source, checkpoint.getLastEventId(), checkpoint.getHeadId(),
+                checkpoint.getUpdatedAt(), projectionPoller.isFresh(projectionSource)), HttpStatus.OK);
+    }
+}
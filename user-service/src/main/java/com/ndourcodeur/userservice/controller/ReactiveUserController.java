@@ -0,0 +1,58 @@
+package com.ndourcodeur.userservice.controller;
+
+import com.ndourcodeur.userservice.model.Car;
+import com.ndourcodeur.userservice.model.LapTop;
+import com.ndourcodeur.userservice.pagination.CursorPage;
+import com.ndourcodeur.userservice.services.ReactiveUserService;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ *    Non-blocking versions of the aggregation endpoints of UserController, side by side with them:
+ *    the servlet thread is released as soon as the remote calls are started.
+ */
+@RestController
+@CrossOrigin(origins = "*")
+@RequestMapping(path = "/api/v2/users")
+public class ReactiveUserController {
+
+    private final ReactiveUserService reactiveUserService;
+
+    public ReactiveUserController(ReactiveUserService reactiveUserService) {
+        this.reactiveUserService = reactiveUserService;
+    }
+
+    /**
+     *    Fetching All Cars By User id From Car Microservice, One Page At A Time, Without Blocking
+     *
+     *    URL ===> http://localhost:8100/api/v2/users/cars/{userId}?cursor=&size=50
+     */
+    @GetMapping(path = "/cars/{userId}")
+    public Mono<CursorPage<Car>> fetchAllCarsByUserId(@PathVariable Long userId, @RequestParam(required = false) String cursor,
+                                                      @RequestParam(required = false) Integer size){
+        return reactiveUserService.findAllCarsWithUser(userId, cursor, size);
+    }
+
+    /**
+     *    Fetching All LapTops By User id From LapTop Microservice, One Page At A Time, Without Blocking
+     *
+     *    URL ===> http://localhost:8100/api/v2/users/lapTops/{userId}?cursor=&size=50
+     */
+    @GetMapping(path = "/lapTops/{userId}")
+    public Mono<CursorPage<LapTop>> fetchAllLapTopsByUserId(@PathVariable Long userId, @RequestParam(required = false) String cursor,
+                                                            @RequestParam(required = false) Integer size){
+        return reactiveUserService.findAllLapTopsWithUser(userId, cursor, size);
+    }
+
+    /**
+     *    Fetching All Cars And All LapTops By User id From Car Microservice And LapTop Microservices, Without Blocking
+     *
+     *    URL ===> http://localhost:8100/api/v2/users/cars-and-lapTops/{userId}
+     */
+    @GetMapping(path = "/cars-and-lapTops/{userId}")
+    public Mono<Map<String, Object>> getAllCarsAndAllLapTopsByUserId(@PathVariable Long userId){
+        return reactiveUserService.getUserAndCars(userId);
+    }
+}
@@ -0,0 +1,29 @@
+package com.ndourcodeur.userservice.controller;
+
+import com.ndourcodeur.userservice.cache.UserCache;
+import com.ndourcodeur.userservice.cache.UserCacheInvalidation;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping(path = "/api/v1/users/cache")
+public class UserCacheController {
+
+    private final UserCache userCache;
+
+    public UserCacheController(UserCache userCache) {
+        this.userCache = userCache;
+    }
+
+    /**
+     *    Receiving A Cache Invalidation From Another User Service Instance
+     *
+     *    URL ===> http://localhost:8100/api/v1/users/cache/invalidate
+     */
+    @PostMapping(path = "/invalidate")
+    public ResponseEntity<?> invalidate(@RequestBody UserCacheInvalidation invalidation){
+        userCache.evictLocally(invalidation);
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+}
@@ -1,10 +1,12 @@
 package com.ndourcodeur.userservice.controller;
 
+import com.ndourcodeur.userservice.dto.UserPatch;
 import com.ndourcodeur.userservice.dto.UserRequest;
-import com.ndourcodeur.userservice.entity.User;
+import com.ndourcodeur.userservice.dto.UserResponse;
 import com.ndourcodeur.userservice.message.Message;
 import com.ndourcodeur.userservice.model.Car;
 import com.ndourcodeur.userservice.model.LapTop;
+import com.ndourcodeur.userservice.pagination.CursorPage;
 import com.ndourcodeur.userservice.repository.UserRepository;
 import com.ndourcodeur.userservice.services.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,6 +15,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 
@@ -21,6 +24,8 @@ import java.util.Map;
 @RequestMapping(path = "/api/v1/users")
 public class UserController {
 
+    private static final int MAX_USER_IDS = 500;
+
     private final UserService userService;
 
     public UserController(UserService userService) {
@@ -34,10 +39,7 @@ public class UserController {
      */
     @PostMapping(path = "/add")
     public ResponseEntity<?> addNewUser(@Valid @RequestBody UserRequest request){
-        if (userService.existsByUsername(request.getUsername()))
-            return new ResponseEntity<>(new Message("Username already exist!"), HttpStatus.BAD_REQUEST);
-        if (userService.existsByEmail(request.getEmail()))
-            return new ResponseEntity<>(new Message("Email already exist!"), HttpStatus.BAD_REQUEST);
+        // A taken username or email is answered with 400 by ControllerExceptionHandler
         return new ResponseEntity<>(userService.addUser(request), HttpStatus.CREATED);
     }
 
@@ -48,23 +50,29 @@ public class UserController {
      */
     @PutMapping(path = "/{idUser}")
     public ResponseEntity<?> updateUserById(@PathVariable Long idUser ,@Valid @RequestBody UserRequest request){
-        if (userService.existsByUsername(request.getUsername()) && userService.getUsername(request.getUsername()).getId() != idUser)
-            return new ResponseEntity<>(new Message("Username already exist!"), HttpStatus.BAD_REQUEST);
-        if (userService.existsByEmail(request.getEmail()) && userService.getEmail(request.getEmail()).getId() != idUser)
-            return new ResponseEntity<>(new Message("Email already exist!"), HttpStatus.BAD_REQUEST);
+        // A username or email taken by another user is answered with 400 by ControllerExceptionHandler
         return new ResponseEntity<>(userService.editUser(idUser, request), HttpStatus.CREATED);
     }
 
     /**
-     *    Fetching All Users From The Database
+     *    Updating Some Fields Of A User, If It Is Still At The Given version (409 Otherwise)
+     *
+     *    URL ===> http://localhost:8100/api/v1/users/{idUser}
+     */
+    @PatchMapping(path = "/{idUser}")
+    public ResponseEntity<?> patchUserById(@PathVariable Long idUser, @Valid @RequestBody UserPatch patch){
+        // A username or email taken by another user is answered with 400 by ControllerExceptionHandler
+        return new ResponseEntity<>(userService.patchUser(idUser, patch), HttpStatus.OK);
+    }
+
+    /**
+     *    Fetching All Users From The Database, One Page At A Time (nextCursor Gives The Following Page)
      *
-     *    URL ===> http://localhost:8100/api/v1/users/all
+     *    URL ===> http://localhost:8100/api/v1/users/all?cursor=&size=50
      */
     @GetMapping(path = "/all")
-    public ResponseEntity<?> fetchAllUsers(){
-        List<User> users = userService.findAllUsers();
-        if (users.isEmpty())
-            return new ResponseEntity<>(new Message("Sorry, No Content Almost!"), HttpStatus.BAD_REQUEST);
+    public ResponseEntity<?> fetchAllUsers(@RequestParam(required = false) String cursor, @RequestParam(required = false) Integer size){
+        CursorPage<UserResponse> users = userService.findAllUsers(cursor, size);
         return new ResponseEntity<>(users, HttpStatus.OK);
     }
 
@@ -90,30 +98,32 @@ public class UserController {
     }
 
     /**
-     *    Fetching All Cars By User id From Car Microservice
+     *    Fetching All Cars By User id From Car Microservice, One Page At A Time
      *
-     *    URL ===> http://localhost:8100/api/v1/users/cars/{userId}
+     *    URL ===> http://localhost:8100/api/v1/users/cars/{userId}?cursor=&size=50
      */
     @GetMapping(path = "/cars/{userId}")
-    public ResponseEntity<List<Car>> fetchAllCarsByUserId(@PathVariable Long userId){
-        User user = userService.findUser(userId);
+    public ResponseEntity<CursorPage<Car>> fetchAllCarsByUserId(@PathVariable Long userId, @RequestParam(required = false) String cursor,
+                                                                @RequestParam(required = false) Integer size){
+        UserResponse user = userService.findUser(userId);
         if (user == null)
             return new ResponseEntity(new Message("Sorry, There is no resource almost."), HttpStatus.BAD_REQUEST);
-        List<Car> cars = userService.findAllCarsWithUser(userId);
+        CursorPage<Car> cars = userService.findAllCarsWithUser(userId, cursor, size);
         return new ResponseEntity<>(cars, HttpStatus.OK);
     }
 
     /**
-     *    Fetching All LapTops By User id From LapTop Microservice
+     *    Fetching All LapTops By User id From LapTop Microservice, One Page At A Time
      *
-     *    URL ===> http://localhost:8100/api/v1/users/lapTops/{userId}
+     *    URL ===> http://localhost:8100/api/v1/users/lapTops/{userId}?cursor=&size=50
      */
     @GetMapping(path = "/lapTops/{userId}")
-    public ResponseEntity<?> fetchAllLapTopsByUserId(@PathVariable Long userId){
-        User user = userService.findUser(userId);
+    public ResponseEntity<?> fetchAllLapTopsByUserId(@PathVariable Long userId, @RequestParam(required = false) String cursor,
+                                                     @RequestParam(required = false) Integer size){
+        UserResponse user = userService.findUser(userId);
         if (user == null)
             return new ResponseEntity<>(new Message("Sorry, There is no resource almost."), HttpStatus.NOT_FOUND);
-        List<LapTop> lapTops = userService.findAllLapTopsWithUser(userId);
+        CursorPage<LapTop> lapTops = userService.findAllLapTopsWithUser(userId, cursor, size);
         return new ResponseEntity<>(lapTops, HttpStatus.OK);
     }
 
@@ -164,4 +174,17 @@ public class UserController {
         Map<String, Object> result = userService.getUserAndCars(userId);
         return new ResponseEntity<>(result, HttpStatus.OK);
     }
+
+    /**
+     *    Fetching All Cars And All LapTops Of Several Users At Once, Grouped By User id
+     *
+     *    URL ===> http://localhost:8100/api/v1/users/cars-and-lapTops?userIds=1,2,3
+     */
+    @GetMapping(path = "/cars-and-lapTops")
+    public ResponseEntity<?> getAllCarsAndAllLapTopsByUserIds(@RequestParam List<Long> userIds){
+        if (userIds.size() > MAX_USER_IDS)
+            return new ResponseEntity<>(new Message("Sorry, At Most " + MAX_USER_IDS + " User Ids Are Allowed!"), HttpStatus.BAD_REQUEST);
+        Map<Long, Map<String, Object>> result = userService.getUsersAndCars(new LinkedHashSet<>(userIds));
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
 }
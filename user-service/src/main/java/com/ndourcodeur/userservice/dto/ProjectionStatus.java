@@ -0,0 +1,22 @@
+package com.ndourcodeur.userservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ *    Progress of one projection: lastEventId is read and applied, headId is the newest event of the source.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProjectionStatus {
+
+    private String source;
+    private Long lastEventId;
+    private Long headId;
+    private Date updatedAt;
+    private boolean fresh;
+}
@@ -0,0 +1,35 @@
+package com.ndourcodeur.userservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.Email;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+
+/**
+ *    Partial update of a user: null fields are left unchanged. version is the version the change was
+ *    based on; the update is rejected with 409 if the user has changed since.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserPatch {
+
+    @Pattern(regexp = ".*\\S.*", message = "This field must not be blank!")
+    private String firstName;
+
+    @Pattern(regexp = ".*\\S.*", message = "This field must not be blank!")
+    private String lastName;
+
+    @Pattern(regexp = ".*\\S.*", message = "This field must not be blank!")
+    private String username;
+
+    @Pattern(regexp = ".*\\S.*", message = "This field must not be blank!")
+    @Email(message = "Please enter a valid email")
+    private String email;
+
+    @NotNull(message = "This field is required!")
+    private Long version;
+}
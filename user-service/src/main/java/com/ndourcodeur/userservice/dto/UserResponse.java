@@ -0,0 +1,31 @@
+package com.ndourcodeur.userservice.dto;
+
+import com.ndourcodeur.userservice.entity.User;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Date;
+
+/**
+ *    A user as answered by the API and kept by UserCache, same JSON as the entity. Read queries build
+ *    it directly from the selected columns (select new ...), so no managed entity nor dirty-checking
+ *    snapshot is created.
+ */
+@Getter
+@AllArgsConstructor
+public class UserResponse {
+
+    private final Long id;
+    private final String firstName;
+    private final String lastName;
+    private final String username;
+    private final String email;
+    private final Long version;
+    private final Date createdAt;
+    private final Date updatedAt;
+
+    public static UserResponse of(User user) {
+        return new UserResponse(user.getId(), user.getFirstName(), user.getLastName(), user.getUsername(), user.getEmail(),
+                user.getVersion(), user.getCreatedAt(), user.getUpdatedAt());
+    }
+}
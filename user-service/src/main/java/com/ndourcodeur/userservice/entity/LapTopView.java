@@ -0,0 +1,47 @@
+package com.ndourcodeur.userservice.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ *    Local copy of a lapTop of laptop-service, kept up to date from its outbox (see ProjectionStore).
+ *
+ *    lastEventId is the id of the event the row reflects; deleted lapTops stay as tombstones so that an
+ *    older event read late cannot bring them back. deletedAt is the time of the deletion on the source:
+ *    tombstones are purged once the source outbox has compacted every event of the item.
+ */
+@Entity
+@Table(name = "user_laptop_view", indexes = @Index(name = "idx_user_laptop_view_user_id_id", columnList = "userId, id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LapTopView {
+
+    @Id
+    private Long id;
+
+    private String lapTopName;
+
+    private Double lapTopPrice;
+
+    private String lapTopBrand;
+
+    private Boolean isInStock;
+
+    private String description;
+
+    private Long userId;
+
+    @Column(nullable = false)
+    private Long lastEventId;
+
+    @Column(nullable = false)
+    private boolean deleted;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date deletedAt;
+}
@@ -0,0 +1,36 @@
+package com.ndourcodeur.userservice.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ *    A deleted user whose cars and lapTops are still to be deleted (see UserDeletionCascade).
+ *    Written in the transaction that deletes the user, removed once both services have confirmed.
+ */
+@Entity
+@Table(name = "pending_user_deletion", indexes = @Index(name = "idx_pending_user_deletion_next_attempt_at", columnList = "nextAttemptAt"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PendingUserDeletion {
+
+    @Id
+    private Long userId;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(nullable = false)
+    private Date requestedAt;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(nullable = false)
+    private Date nextAttemptAt;
+
+    private int attempts;
+
+    @Column(length = 500)
+    private String lastError;
+}
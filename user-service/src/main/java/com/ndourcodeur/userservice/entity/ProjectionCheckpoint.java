@@ -0,0 +1,32 @@
+package com.ndourcodeur.userservice.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ *    How far a projection has read the outbox of its source: every event up to lastEventId is applied.
+ *    The row is locked while events are applied, which serializes the user-service instances.
+ */
+@Entity
+@Table(name = "projection_checkpoint")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProjectionCheckpoint {
+
+    @Id
+    @Column(length = 32)
+    private String source;
+
+    @Column(nullable = false)
+    private Long lastEventId;
+
+    private Long headId;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date updatedAt;
+}
@@ -4,6 +4,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import javax.validation.constraints.Email;
@@ -12,8 +14,8 @@ import javax.validation.constraints.NotBlank;
 @Entity
 @Table(
         uniqueConstraints = {
-                @UniqueConstraint(columnNames = "username"),
-                @UniqueConstraint(columnNames = "email")
+                @UniqueConstraint(name = User.UNIQUE_USERNAME, columnNames = "username"),
+                @UniqueConstraint(name = User.UNIQUE_EMAIL, columnNames = "email")
         }
 )
 @Data
@@ -22,8 +24,16 @@ import javax.validation.constraints.NotBlank;
 @ToString
 public class User extends DateAudit {
 
+    public static final String UNIQUE_USERNAME = "uk_user_username";
+    public static final String UNIQUE_EMAIL = "uk_user_email";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // A pooled sequence rather than IDENTITY: the key is known before the insert, which can then be batched
+    @GeneratedValue(generator = "user_seq")
+    @GenericGenerator(name = "user_seq", strategy = "com.ndourcodeur.userservice.ids.PrimaryKeyGenerator", parameters = {
+            @Parameter(name = "sequence_name", value = "user_seq"),
+            @Parameter(name = "increment_size", value = "50")
+    })
     @Column(nullable = false, updatable = false)
     private Long id;
 
@@ -39,4 +49,9 @@ public class User extends DateAudit {
     @NotBlank(message = "This field is required!")
     @Email(message = "Please enter a valid email")
     private String email;
+
+    // Checked by every update: a concurrent edit fails with 409 instead of being overwritten
+    @Version
+    @Column(nullable = false)
+    private Long version;
 }
@@ -0,0 +1,10 @@
+package com.ndourcodeur.userservice.exception;
+
+public class DuplicateResourceException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public DuplicateResourceException(String message) {
+        super(message);
+    }
+}
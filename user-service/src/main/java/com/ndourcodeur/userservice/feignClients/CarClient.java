@@ -0,0 +1,79 @@
+package com.ndourcodeur.userservice.feignClients;
+
+import com.ndourcodeur.userservice.message.Message;
+import com.ndourcodeur.userservice.model.Car;
+import feign.Request;
+import io.github.resilience4j.bulkhead.annotation.Bulkhead;
+import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ *    Car Microservice behind the "carService" circuit breaker and bulkhead.
+ *
+ *    Reads degrade to null (the section is reported as temporarily unavailable) instead of failing
+ *    the whole aggregate. Writes are not degraded: while the breaker is open or the bulkhead full they
+ *    fail fast with CallNotPermittedException / BulkheadFullException, answered with 503.
+ */
+@Component
+@Slf4j
+public class CarClient {
+
+    public static final String CAR_SERVICE = "carService";
+
+    private final CarFeignClient carFeignClient;
+
+    public CarClient(CarFeignClient carFeignClient) {
+        this.carFeignClient = carFeignClient;
+    }
+
+    @CircuitBreaker(name = CAR_SERVICE)
+    @Bulkhead(name = CAR_SERVICE)
+    public Car addNewCar(Car car) {
+        return carFeignClient.addNewCar(car);
+    }
+
+    @CircuitBreaker(name = CAR_SERVICE)
+    @Bulkhead(name = CAR_SERVICE)
+    public Car updateCarById(Long id, Car car) {
+        return carFeignClient.updateCarById(id, car);
+    }
+
+    @CircuitBreaker(name = CAR_SERVICE)
+    @Bulkhead(name = CAR_SERVICE)
+    public void deleteCarById(Long id) {
+        carFeignClient.deleteCarById(id);
+    }
+
+    @CircuitBreaker(name = CAR_SERVICE)
+    @Bulkhead(name = CAR_SERVICE)
+    public Message deleteAllCarsByUserId(Long userId, Request.Options options) {
+        return carFeignClient.deleteAllCarsByUserId(userId, options);
+    }
+
+    @CircuitBreaker(name = CAR_SERVICE, fallbackMethod = "carsOfUserUnavailable")
+    @Bulkhead(name = CAR_SERVICE)
+    public List<Car> fetchAllCarsByUserId(Long userId) {
+        return carFeignClient.fetchAllCarsByUserId(userId).collect(Collectors.toList());
+    }
+
+    @CircuitBreaker(name = CAR_SERVICE, fallbackMethod = "carsOfUsersUnavailable")
+    @Bulkhead(name = CAR_SERVICE)
+    public List<Car> fetchAllCarsByUserIds(Collection<Long> userIds) {
+        return carFeignClient.fetchAllCarsByUserIds(userIds);
+    }
+
+    private List<Car> carsOfUserUnavailable(Long userId, Throwable ex) {
+        log.warn("Cars of user {} unavailable: {}", userId, ex.toString());
+        return null;
+    }
+
+    private List<Car> carsOfUsersUnavailable(Collection<Long> userIds, Throwable ex) {
+        log.warn("Cars of {} users unavailable: {}", userIds.size(), ex.toString());
+        return null;
+    }
+}
@@ -1,13 +1,20 @@
 package com.ndourcodeur.userservice.feignClients;
 
+import com.ndourcodeur.userservice.hedging.Hedged;
+import com.ndourcodeur.userservice.message.Message;
 import com.ndourcodeur.userservice.model.Car;
+import com.ndourcodeur.userservice.pagination.CursorPage;
+import com.ndourcodeur.userservice.pagination.Cursors;
+import feign.Request;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
-@FeignClient(name = "car-service", url = "http://localhost:8200", path = "/api/v1/cars")
+@FeignClient(name = "car-service", path = "/api/v1/cars")
 public interface CarFeignClient {
 
     @PostMapping(path = "/add")
@@ -19,7 +26,26 @@ public interface CarFeignClient {
     @DeleteMapping(path = "/{id}")
     public void deleteCarById(@PathVariable Long id);
 
+    /**
+     *    Deletes the cars of a user chunk by chunk; options give the call more time than the client default.
+     */
+    @DeleteMapping(path = "/byUserId/{userId}")
+    public Message deleteAllCarsByUserId(@PathVariable Long userId, Request.Options options);
+
+    @Hedged
     @GetMapping(path = "/byUserId/{userId}")
-    public List<Car> fetchAllCarsByUserId(@PathVariable Long userId);
+    public CursorPage<Car> fetchCarsPageByUserId(@PathVariable Long userId, @RequestParam(required = false) String cursor,
+                                                 @RequestParam Integer size);
+
+    /**
+     *    All cars of a user, fetched page by page as the stream is consumed.
+     */
+    default Stream<Car> fetchAllCarsByUserId(Long userId) {
+        return Cursors.stream(cursor -> fetchCarsPageByUserId(userId, cursor, Cursors.MAX_PAGE_SIZE));
+    }
+
+    @Hedged
+    @GetMapping(path = "/byUserIds")
+    public List<Car> fetchAllCarsByUserIds(@RequestParam("userIds") Collection<Long> userIds);
 
 }
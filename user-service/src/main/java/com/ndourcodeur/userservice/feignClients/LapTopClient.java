@@ -0,0 +1,60 @@
+package com.ndourcodeur.userservice.feignClients;
+
+import com.ndourcodeur.userservice.message.Message;
+import com.ndourcodeur.userservice.model.LapTop;
+import feign.Request;
+import io.github.resilience4j.bulkhead.annotation.Bulkhead;
+import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ *    LapTop Microservice behind the "lapTopService" circuit breaker and bulkhead.
+ *
+ *    Reads degrade to null (the section is reported as temporarily unavailable) instead of failing
+ *    the whole aggregate.
+ */
+@Component
+@Slf4j
+public class LapTopClient {
+
+    public static final String LAPTOP_SERVICE = "lapTopService";
+
+    private final LapTopFeignClient lapTopFeignClient;
+
+    public LapTopClient(LapTopFeignClient lapTopFeignClient) {
+        this.lapTopFeignClient = lapTopFeignClient;
+    }
+
+    @CircuitBreaker(name = LAPTOP_SERVICE)
+    @Bulkhead(name = LAPTOP_SERVICE)
+    public Message deleteAllLapTopsByUserId(Long userId, Request.Options options) {
+        return lapTopFeignClient.deleteAllLapTopsByUserId(userId, options);
+    }
+
+    @CircuitBreaker(name = LAPTOP_SERVICE, fallbackMethod = "lapTopsOfUserUnavailable")
+    @Bulkhead(name = LAPTOP_SERVICE)
+    public List<LapTop> fetchAllLapTopsByUserId(Long userId) {
+        return lapTopFeignClient.fetchAllLapTopsByUserId(userId).collect(Collectors.toList());
+    }
+
+    @CircuitBreaker(name = LAPTOP_SERVICE, fallbackMethod = "lapTopsOfUsersUnavailable")
+    @Bulkhead(name = LAPTOP_SERVICE)
+    public List<LapTop> fetchAllLapTopsByUserIds(Collection<Long> userIds) {
+        return lapTopFeignClient.fetchAllLapTopsByUserIds(userIds);
+    }
+
+    private List<LapTop> lapTopsOfUserUnavailable(Long userId, Throwable ex) {
+        log.warn("LapTops of user {} unavailable: {}", userId, ex.toString());
+        return null;
+    }
+
+    private List<LapTop> lapTopsOfUsersUnavailable(Collection<Long> userIds, Throwable ex) {
+        log.warn("LapTops of {} users unavailable: {}", userIds.size(), ex.toString());
+        return null;
+    }
+}
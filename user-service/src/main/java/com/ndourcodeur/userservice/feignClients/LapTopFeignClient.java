@@ -1,15 +1,43 @@
 package com.ndourcodeur.userservice.feignClients;
 
+import com.ndourcodeur.userservice.hedging.Hedged;
+import com.ndourcodeur.userservice.message.Message;
 import com.ndourcodeur.userservice.model.LapTop;
+import com.ndourcodeur.userservice.pagination.CursorPage;
+import com.ndourcodeur.userservice.pagination.Cursors;
+import feign.Request;
 import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
-@FeignClient(name = "laptop-service", url = "http://localhost:8300", path = "/api/v1/lapTops")
+@FeignClient(name = "laptop-service", path = "/api/v1/lapTops")
 public interface LapTopFeignClient {
 
+    /**
+     *    Deletes the lapTops of a user chunk by chunk; options give the call more time than the client default.
+     */
+    @DeleteMapping(path = "/byUserId/{userId}")
+    public Message deleteAllLapTopsByUserId(@PathVariable Long userId, Request.Options options);
+
+    @Hedged
     @GetMapping(path = "/byUserId/{userId}")
-    public List<LapTop> fetchAllLapTopsByUserId(@PathVariable Long userId);
+    public CursorPage<LapTop> fetchLapTopsPageByUserId(@PathVariable Long userId, @RequestParam(required = false) String cursor,
+                                                       @RequestParam Integer size);
+
+    /**
+     *    All lapTops of a user, fetched page by page as the stream is consumed.
+     */
+    default Stream<LapTop> fetchAllLapTopsByUserId(Long userId) {
+        return Cursors.stream(cursor -> fetchLapTopsPageByUserId(userId, cursor, Cursors.MAX_PAGE_SIZE));
+    }
+
+    @Hedged
+    @GetMapping(path = "/byUserIds")
+    public List<LapTop> fetchAllLapTopsByUserIds(@RequestParam("userIds") Collection<Long> userIds);
 }
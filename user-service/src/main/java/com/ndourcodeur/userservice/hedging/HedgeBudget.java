@@ -0,0 +1,40 @@
+package com.ndourcodeur.userservice.hedging;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *    Token bucket shared by every hedged method: each hedgeable request deposits ratio of a token,
+ *    each hedge withdraws a whole one. Hedges therefore never exceed ratio of the hedgeable traffic,
+ *    plus a burst of at most burst hedges saved up while the downstreams were healthy.
+ */
+public class HedgeBudget {
+
+    private static final long TOKEN = 1000;
+
+    private final long deposit;
+    private final long capacity;
+    private final AtomicLong balance = new AtomicLong();
+
+    public HedgeBudget(double ratio, int burst) {
+        this.deposit = Math.round(ratio * TOKEN);
+        this.capacity = burst * TOKEN;
+    }
+
+    public void deposit() {
+        balance.updateAndGet(tokens -> Math.min(capacity, tokens + deposit));
+    }
+
+    public boolean tryWithdraw() {
+        while (true) {
+            long tokens = balance.get();
+            if (tokens < TOKEN)
+                return false;
+            if (balance.compareAndSet(tokens, tokens - TOKEN))
+                return true;
+        }
+    }
+
+    public double tokens() {
+        return (double) balance.get() / TOKEN;
+    }
+}
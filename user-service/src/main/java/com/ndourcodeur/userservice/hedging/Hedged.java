@@ -0,0 +1,18 @@
+package com.ndourcodeur.userservice.hedging;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ *    Marks an idempotent Feign GET that may be sent twice: when the first attempt has not answered
+ *    within the method's recent p95 latency, a second one is sent and the first answer wins.
+ *    Never put it on a method with side effects.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Hedged {
+}
@@ -0,0 +1,167 @@
+package com.ndourcodeur.userservice.hedging;
+
+import feign.Client;
+import feign.MethodMetadata;
+import feign.Request;
+import feign.Response;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *    Feign client sending a second attempt of @Hedged GETs that are slower than their recent
+ *    percentile, and returning whichever attempt answers first; the other response is closed.
+ *
+ *    Hedges are paid for from a shared HedgeBudget, and no hedge is sent before a method has
+ *    minSamples recorded latencies. Every other request goes straight to the delegate.
+ *    Published meters: feign.hedging.hedges, feign.hedging.wins and feign.hedging.budget.exhausted,
+ *    tagged by Feign method.
+ */
+@Slf4j
+public class HedgingClient implements Client {
+
+    private final Client delegate;
+    private final Executor executor;
+    private final HedgeBudget budget;
+    private final MeterRegistry meterRegistry;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final int minSamples;
+    private final ConcurrentMap<String, LatencyTracker> trackers = new ConcurrentHashMap<>();
+
+    public HedgingClient(Client delegate, Executor executor, HedgeBudget budget, MeterRegistry meterRegistry,
+                         double percentile, long minDelayMs, int minSamples) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.budget = budget;
+        this.meterRegistry = meterRegistry;
+        this.percentile = percentile;
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(minDelayMs);
+        this.minSamples = minSamples;
+    }
+
+    @Override
+    public Response execute(Request request, Request.Options options) throws IOException {
+        MethodMetadata metadata = request.requestTemplate() == null ? null : request.requestTemplate().methodMetadata();
+        if (request.httpMethod() != Request.HttpMethod.GET || metadata == null || metadata.method() == null
+                || !metadata.method().isAnnotationPresent(Hedged.class))
+            return delegate.execute(request, options);
+
+        String method = metadata.configKey();
+        LatencyTracker tracker = trackers.computeIfAbsent(method, key -> new LatencyTracker());
+        budget.deposit();
+        long delayNanos = tracker.percentile(percentile, minSamples);
+        CompletableFuture<Response> primary = delayNanos < 0 ? null : attempt(request, options, tracker);
+        if (primary == null)
+            return timed(request, options, tracker);
+
+        try {
+            return primary.get(Math.max(delayNanos, minDelayNanos), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            // Slower than usual: hedge below
+        } catch (ExecutionException ex) {
+            throw rethrow(ex.getCause());
+        } catch (InterruptedException ex) {
+            throw interrupted(primary);
+        }
+        if (!budget.tryWithdraw()) {
+            meterRegistry.counter("feign.hedging.budget.exhausted", "method", method).increment();
+            return await(primary);
+        }
+        CompletableFuture<Response> hedge = attempt(request, options, tracker);
+        if (hedge == null)
+            return await(primary);
+        meterRegistry.counter("feign.hedging.hedges", "method", method).increment();
+        return await(first(primary, hedge, method));
+    }
+
+    private Response timed(Request request, Request.Options options, LatencyTracker tracker) throws IOException {
+        long start = System.nanoTime();
+        Response response = delegate.execute(request, options);
+        tracker.record(System.nanoTime() - start);
+        return response;
+    }
+
+    /**
+     *    Runs one attempt on the hedging executor, or returns null when the executor is saturated.
+     */
+    private CompletableFuture<Response> attempt(Request request, Request.Options options, LatencyTracker tracker) {
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(timed(request, options, tracker));
+                } catch (Throwable ex) {
+                    future.completeExceptionally(ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            return null;
+        }
+        return future;
+    }
+
+    private CompletableFuture<Response> first(CompletableFuture<Response> primary, CompletableFuture<Response> hedge, String method) {
+        CompletableFuture<Response> winner = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (CompletableFuture<Response> attempt : new CompletableFuture[]{primary, hedge}) {
+            attempt.whenComplete((response, ex) -> {
+                if (ex != null) {
+                    // Only fail once neither attempt can still answer
+                    if (failures.incrementAndGet() == 2)
+                        winner.completeExceptionally(ex);
+                } else if (!winner.complete(response)) {
+                    closeQuietly(response);
+                } else if (attempt == hedge) {
+                    meterRegistry.counter("feign.hedging.wins", "method", method).increment();
+                }
+            });
+        }
+        return winner;
+    }
+
+    private static Response await(CompletableFuture<Response> future) throws IOException {
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            throw rethrow(ex.getCause());
+        } catch (InterruptedException ex) {
+            throw interrupted(future);
+        }
+    }
+
+    private static InterruptedIOException interrupted(CompletableFuture<Response> future) {
+        Thread.currentThread().interrupt();
+        future.thenAccept(HedgingClient::closeQuietly);
+        return new InterruptedIOException("Interrupted while waiting for a hedged request");
+    }
+
+    private static IOException rethrow(Throwable cause) {
+        if (cause instanceof IOException)
+            return (IOException) cause;
+        if (cause instanceof RuntimeException)
+            throw (RuntimeException) cause;
+        if (cause instanceof Error)
+            throw (Error) cause;
+        return new IOException(cause);
+    }
+
+    private static void closeQuietly(Response response) {
+        try {
+            response.close();
+        } catch (RuntimeException ex) {
+            log.debug("Unable to close the losing hedged response", ex);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.ndourcodeur.userservice.hedging;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ *    Latencies of the last SIZE calls of one method, kept in a lock-free ring. Percentiles are
+ *    recomputed from a snapshot at most once per second, by whichever caller notices first.
+ */
+class LatencyTracker {
+
+    private static final int SIZE = 1024;
+    private static final long REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLongArray samples = new AtomicLongArray(SIZE);
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong refreshedAt = new AtomicLong();
+    private volatile long percentileNanos = -1;
+
+    void record(long nanos) {
+        samples.set((int) (recorded.getAndIncrement() & (SIZE - 1)), nanos);
+    }
+
+    /**
+     *    The given percentile in nanoseconds, or -1 while fewer than minSamples calls were recorded.
+     */
+    long percentile(double percentile, int minSamples) {
+        long count = recorded.get();
+        if (count < minSamples)
+            return -1;
+        long now = System.nanoTime();
+        long last = refreshedAt.get();
+        if ((percentileNanos < 0 || now - last > REFRESH_NANOS) && refreshedAt.compareAndSet(last, now)) {
+            int size = (int) Math.min(count, SIZE);
+            long[] snapshot = new long[size];
+            for (int i = 0; i < size; i++)
+                snapshot[i] = samples.get(i);
+            Arrays.sort(snapshot);
+            percentileNanos = snapshot[Math.max(0, (int) Math.ceil(percentile * size) - 1)];
+        }
+        return percentileNanos;
+    }
+}
@@ -0,0 +1,23 @@
+package com.ndourcodeur.userservice.ids;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+
+/**
+ *    Random UUIDs (UUID.randomUUID, one shared SecureRandom) and random positive 63-bit keys: the
+ *    former behaviour, kept for comparison. Unordered, so every insert lands on a random index page.
+ */
+public class RandomIdGenerator implements IdGenerator {
+
+    private final SecureRandom random = new SecureRandom();
+
+    @Override
+    public long nextId() {
+        return random.nextLong() & Long.MAX_VALUE;
+    }
+
+    @Override
+    public UUID nextUuid() {
+        return UUID.randomUUID();
+    }
+}
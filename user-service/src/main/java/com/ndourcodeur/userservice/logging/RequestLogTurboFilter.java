@@ -0,0 +1,51 @@
+package com.ndourcodeur.userservice.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+/**
+ *    Decides, before any message is formatted, what a request may log (declared in logback-spring.xml):
+ *    - a traced request (see RequestTracing) logs everything from DEBUG up, and its bound parameters;
+ *    - when SQL is sampled (logging.sql.sample-rate below 1), org.hibernate.SQL and org.hibernate.type
+ *      log for the sampled requests only, and never outside a request (outbox relay, pollers);
+ *    - everything else follows the configured levels.
+ *
+ *    The MDC is only looked at when tracing or sampling is on, and not for INFO and above.
+ */
+public class RequestLogTurboFilter extends TurboFilter {
+
+    public static final String REQUEST_ID = "requestId";
+    public static final String SQL_SAMPLED = "sqlSampled";
+    public static final String TRACED = "traced";
+
+    private static volatile boolean sampleSql;
+    private static volatile boolean tracing;
+
+    static void sampleSql(boolean enabled) {
+        sampleSql = enabled;
+    }
+
+    static void tracing(boolean enabled) {
+        tracing = enabled;
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (level.isGreaterOrEqual(Level.INFO))
+            return FilterReply.NEUTRAL;
+        if (tracing && MDC.get(TRACED) != null)
+            return level.isGreaterOrEqual(Level.DEBUG) || isSql(logger) ? FilterReply.ACCEPT : FilterReply.NEUTRAL;
+        if (sampleSql && isSql(logger) && !"true".equals(MDC.get(SQL_SAMPLED)))
+            return FilterReply.DENY;
+        return FilterReply.NEUTRAL;
+    }
+
+    private static boolean isSql(Logger logger) {
+        String name = logger.getName();
+        return name.startsWith("org.hibernate.SQL") || name.startsWith("org.hibernate.type");
+    }
+}
@@ -0,0 +1,52 @@
+package com.ndourcodeur.userservice.logging;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ *    Request ids whose requests are fully traced (everything from DEBUG up, SQL and bound parameters),
+ *    switched at runtime through LoggingController. At most MAX_TRACED ids at a time.
+ */
+@Component
+public class RequestTracing {
+
+    public static final int MAX_TRACED = 100;
+
+    private static final Pattern PLAIN_TOKEN = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+    private final Set<String> tracedRequestIds = ConcurrentHashMap.newKeySet();
+
+    /**
+     *    Returns false when MAX_TRACED other ids are traced already.
+     */
+    public synchronized boolean trace(String requestId) {
+        if (!tracedRequestIds.contains(requestId) && tracedRequestIds.size() >= MAX_TRACED)
+            return false;
+        tracedRequestIds.add(requestId);
+        RequestLogTurboFilter.tracing(true);
+        return true;
+    }
+
+    public synchronized boolean untrace(String requestId) {
+        boolean removed = tracedRequestIds.remove(requestId);
+        RequestLogTurboFilter.tracing(!tracedRequestIds.isEmpty());
+        return removed;
+    }
+
+    public boolean isTraced(String requestId) {
+        return !tracedRequestIds.isEmpty() && tracedRequestIds.contains(requestId);
+    }
+
+    public Set<String> tracedRequestIds() {
+        return new TreeSet<>(tracedRequestIds);
+    }
+
+    // Request ids end up in every log line of their request: plain tokens only
+    public static boolean isValidRequestId(String requestId) {
+        return requestId != null && PLAIN_TOKEN.matcher(requestId).matches();
+    }
+}
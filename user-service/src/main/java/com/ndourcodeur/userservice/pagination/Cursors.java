@@ -0,0 +1,92 @@
+package com.ndourcodeur.userservice.pagination;
+
+import com.ndourcodeur.userservice.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ *    Keyset pagination on id: a cursor is an opaque token holding the last id of the previous page.
+ */
+public final class Cursors {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private Cursors() {
+    }
+
+    /**
+     *    Returns the id after which the page starts, 0 for the first page.
+     */
+    public static long decode(String cursor) {
+        if (cursor == null || cursor.isEmpty())
+            return 0L;
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII));
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidCursorException("Invalid cursor: " + cursor);
+        }
+    }
+
+    public static String encode(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Long.toString(lastId).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public static int pageSize(Integer size) {
+        if (size == null)
+            return DEFAULT_PAGE_SIZE;
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    /**
+     *    Builds a page from rows fetched with a limit of size + 1; the extra row only tells that
+     *    another page exists and is not returned.
+     */
+    public static <T> CursorPage<T> page(List<T> rows, int size, Function<T, Long> id) {
+        if (rows.size() <= size)
+            return new CursorPage<>(rows, null);
+        List<T> items = rows.subList(0, size);
+        return new CursorPage<>(items, encode(id.apply(items.get(size - 1))));
+    }
+
+    /**
+     *    Walks a remote keyset-paginated listing lazily: the next page is only requested once the
+     *    items of the current one have been consumed.
+     */
+    public static <T> Stream<T> stream(Function<String, CursorPage<T>> fetchPage) {
+        Iterator<T> iterator = new Iterator<T>() {
+            private CursorPage<T> page;
+            private Iterator<T> items = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!items.hasNext()) {
+                    if (page != null && page.getNextCursor() == null)
+                        return false;
+                    page = fetchPage.apply(page == null ? null : page.getNextCursor());
+                    items = page.getItems().iterator();
+                }
+                return true;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return items.next();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false);
+    }
+}
@@ -0,0 +1,26 @@
+package com.ndourcodeur.userservice.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ *    One outbox event of car-service or laptop-service; the payload is the item as JSON, null on delete.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeEvent {
+
+    public static final String UPSERTED = "UPSERTED";
+    public static final String DELETED = "DELETED";
+
+    private Long id;
+    private Long aggregateId;
+    private Long userId;
+    private String type;
+    private String payload;
+    private Date createdAt;
+}
@@ -0,0 +1,21 @@
+package com.ndourcodeur.userservice.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ *    Events following the requested id, with the newest event id of the source and its clock.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeEventPage {
+
+    private List<ChangeEvent> events;
+    private Long headId;
+    private Date serverTime;
+}
@@ -0,0 +1,154 @@
+package com.ndourcodeur.userservice.projection;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *    Reads the outboxes of car-service and laptop-service into the local projections.
+ *
+ *    Every source is polled every projection.poll.interval-ms and, sooner, whenever the source notifies
+ *    a commit. Polls run on a single thread and are coalesced per source. A projection is fresh while
+ *    its last poll that reached the head of the outbox is recent; only fresh projections are read by
+ *    UserServiceImpl, which otherwise calls the source service as before.
+ *
+ *    Meters: projection.lag.events (events not read yet), projection.lag (commit to update time),
+ *    projection.events (applied or skipped) and projection.polls (success or failure).
+ */
+@Component
+@Slf4j
+public class ProjectionPoller {
+
+    private final ProjectionStore projectionStore;
+    private final RestTemplate restTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long settleMs;
+    private final long maxStalenessMs;
+    private final ExecutorService executor;
+    private final Map<ProjectionSource, SourceState> states = new EnumMap<>(ProjectionSource.class);
+
+    public ProjectionPoller(ProjectionStore projectionStore, RestTemplate restTemplate, MeterRegistry meterRegistry,
+                            @Value("${projection.enabled:true}") boolean enabled,
+                            @Value("${projection.poll.batch-size:500}") int batchSize,
+                            @Value("${projection.settle-ms:10000}") long settleMs,
+                            @Value("${projection.max-staleness-ms:15000}") long maxStalenessMs) {
+        this.projectionStore = projectionStore;
+        this.restTemplate = restTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.settleMs = settleMs;
+        this.maxStalenessMs = maxStalenessMs;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "projection-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (ProjectionSource source : ProjectionSource.values()) {
+            SourceState state = new SourceState(meterRegistry, source);
+            states.put(source, state);
+            Gauge.builder("projection.lag.events", state.lagEvents, AtomicLong::get).tag("source", source.getPath())
+                    .description("Events of the source outbox not read yet").register(meterRegistry);
+        }
+    }
+
+    /**
+     *    True when the projection may be read instead of calling the source service.
+     */
+    public boolean isFresh(ProjectionSource source) {
+        return enabled && System.currentTimeMillis() - states.get(source).caughtUpAt.get() <= maxStalenessMs;
+    }
+
+    @Scheduled(fixedDelayString = "${projection.poll.interval-ms:5000}")
+    public void pollAll() {
+        for (ProjectionSource source : ProjectionSource.values())
+            requestPoll(source);
+    }
+
+    public void requestPoll(ProjectionSource source) {
+        SourceState state = states.get(source);
+        if (!enabled || !state.pending.compareAndSet(false, true))
+            return;
+        try {
+            executor.execute(() -> {
+                state.pending.set(false);
+                catchUp(source, state);
+            });
+        } catch (RejectedExecutionException ex) {
+            state.pending.set(false);
+        }
+    }
+
+    /**
+     *    Empties the projection and reads the whole outbox of the source again; the source service is
+     *    called directly until the replay has caught up.
+     */
+    public void replay(ProjectionSource source) {
+        SourceState state = states.get(source);
+        state.caughtUpAt.set(0L);
+        // On the poller thread, so that no poll in progress marks the emptied projection fresh
+        executor.execute(() -> {
+            projectionStore.reset(source);
+            log.info("Replaying the {} projection", source.getPath());
+            catchUp(source, state);
+        });
+    }
+
+    private void catchUp(ProjectionSource source, SourceState state) {
+        try {
+            long after = projectionStore.findCheckpoint(source).getLastEventId();
+            while (true) {
+                ChangeEventPage page = restTemplate.getForObject(source.getEventsUrl() + "?after={after}&limit={limit}",
+                        ChangeEventPage.class, after, batchSize);
+                if (page == null || page.getEvents() == null)
+                    throw new IllegalStateException("Empty answer from " + source.getEventsUrl());
+                projectionStore.apply(source, after, page, settleMs);
+                if (!page.getEvents().isEmpty())
+                    after = page.getEvents().get(page.getEvents().size() - 1).getId();
+                state.lagEvents.set(Math.max(0L, page.getHeadId() - after));
+                if (page.getEvents().size() < batchSize)
+                    break;
+                // Far behind, e.g. replaying or after a long outage: the projection is not to be read meanwhile
+                state.caughtUpAt.set(0L);
+            }
+            state.caughtUpAt.set(System.currentTimeMillis());
+            state.succeeded.increment();
+        } catch (RuntimeException ex) {
+            state.failed.increment();
+            log.warn("Unable to update the {} projection: {}", source.getPath(), ex.toString());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static final class SourceState {
+
+        private final AtomicBoolean pending = new AtomicBoolean();
+        private final AtomicLong caughtUpAt = new AtomicLong();
+        private final AtomicLong lagEvents = new AtomicLong();
+        private final Counter succeeded;
+        private final Counter failed;
+
+        private SourceState(MeterRegistry meterRegistry, ProjectionSource source) {
+            this.succeeded = meterRegistry.counter("projection.polls", "source", source.getPath(), "outcome", "success");
+            this.failed = meterRegistry.counter("projection.polls", "source", source.getPath(), "outcome", "failure");
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.ndourcodeur.userservice.projection;
+
+/**
+ *    The services whose outbox feeds a projection, named as in the URLs of ProjectionController.
+ */
+public enum ProjectionSource {
+
+    CARS("cars", "http://car-service/api/v1/cars/events"),
+    LAPTOPS("lapTops", "http://laptop-service/api/v1/lapTops/events");
+
+    private final String path;
+    private final String eventsUrl;
+
+    ProjectionSource(String path, String eventsUrl) {
+        this.path = path;
+        this.eventsUrl = eventsUrl;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getEventsUrl() {
+        return eventsUrl;
+    }
+
+    public static ProjectionSource fromPath(String path) {
+        for (ProjectionSource source : values())
+            if (source.path.equals(path))
+                return source;
+        return null;
+    }
+}
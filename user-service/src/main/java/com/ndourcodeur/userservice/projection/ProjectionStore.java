@@ -0,0 +1,287 @@
+package com.ndourcodeur.userservice.projection;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ndourcodeur.userservice.entity.CarView;
+import com.ndourcodeur.userservice.entity.LapTopView;
+import com.ndourcodeur.userservice.entity.ProjectionCheckpoint;
+import com.ndourcodeur.userservice.model.Car;
+import com.ndourcodeur.userservice.model.LapTop;
+import com.ndourcodeur.userservice.repository.CarViewRepository;
+import com.ndourcodeur.userservice.repository.LapTopViewRepository;
+import com.ndourcodeur.userservice.repository.ProjectionCheckpointRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+/**
+ *    The cars and lapTops projections of user-service and their checkpoints.
+ *
+ *    Applying events is idempotent: an event is skipped when the row already reflects it or a later
+ *    event of the same item, so pages may be read twice, out of order or by several instances. The
+ *    checkpoint only moves past events that are settled, i.e. older than the settle window on the
+ *    clock of the source database, which stamps both the events and the page. No transaction of the
+ *    source outlasts the window, so an event with a smaller id has committed by then and was read.
+ *
+ *    Deleted items stay as tombstones for projection.tombstone-retention-hours, at least the
+ *    outbox.retention-hours of the sources: after that their events are compacted away on the source,
+ *    so none can be read late any more.
+ */
+@Component
+@Slf4j
+public class ProjectionStore implements SmartInitializingSingleton {
+
+    private static final int PURGE_CHUNK = 1000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ProjectionCheckpointRepository checkpointRepository;
+    private final CarViewRepository carViewRepository;
+    private final LapTopViewRepository lapTopViewRepository;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final long tombstoneRetentionMs;
+
+    public ProjectionStore(ProjectionCheckpointRepository checkpointRepository, CarViewRepository carViewRepository,
+                           LapTopViewRepository lapTopViewRepository, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                           TransactionTemplate transactionTemplate,
+                           @Value("${projection.tombstone-retention-hours:168}") long tombstoneRetentionHours) {
+        this.checkpointRepository = checkpointRepository;
+        this.carViewRepository = carViewRepository;
+        this.lapTopViewRepository = lapTopViewRepository;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.transactionTemplate = transactionTemplate;
+        this.tombstoneRetentionMs = TimeUnit.HOURS.toMillis(tombstoneRetentionHours);
+    }
+
+    /**
+     *    Creates the missing checkpoint rows before anything polls, so that apply and reset only ever lock
+     *    an existing row: created on first use, two instances could both insert it. Another instance
+     *    starting at the same time may insert a row first, which is fine.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (ProjectionSource source : ProjectionSource.values()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    if (!checkpointRepository.existsById(source.name()))
+                        checkpointRepository.saveAndFlush(new ProjectionCheckpoint(source.name(), 0L, null, null));
+                });
+            } catch (DataIntegrityViolationException ex) {
+                log.debug("Checkpoint of {} created by another instance", source.getPath());
+            }
+        }
+    }
+
+    private ProjectionCheckpoint lockCheckpoint(ProjectionSource source) {
+        return checkpointRepository.findForUpdate(source.name())
+                .orElseThrow(() -> new IllegalStateException("No checkpoint row for " + source.name()));
+    }
+
+    /**
+     *    Applies a page of events read after the given id and returns the checkpoint of the source.
+     */
+    @Transactional
+    public long apply(ProjectionSource source, long after, ChangeEventPage page, long settleMs) {
+        ProjectionCheckpoint checkpoint = lockCheckpoint(source);
+        int applied = source == ProjectionSource.CARS ? applyCars(page.getEvents()) : applyLapTops(page.getEvents());
+        meterRegistry.counter("projection.events", "source", source.getPath(), "outcome", "applied").increment(applied);
+        meterRegistry.counter("projection.events", "source", source.getPath(), "outcome", "skipped").increment(page.getEvents().size() - applied);
+
+        long lastEventId = checkpoint.getLastEventId();
+        // Only a page that starts at the checkpoint can move it: the events in between were not seen
+        if (after <= lastEventId) {
+            long settledBefore = page.getServerTime().getTime() - settleMs;
+            for (ChangeEvent event : page.getEvents()) {
+                if (event.getId() <= lastEventId)
+                    continue;
+                if (event.getCreatedAt().getTime() > settledBefore)
+                    break;
+                lastEventId = event.getId();
+            }
+        }
+        checkpoint.setLastEventId(lastEventId);
+        checkpoint.setHeadId(page.getHeadId());
+        checkpoint.setUpdatedAt(new Date());
+        return lastEventId;
+    }
+
+    private int applyCars(List<ChangeEvent> events) {
+        Map<Long, CarView> views = carViewRepository.findAllById(aggregateIds(events)).stream()
+                .collect(Collectors.toMap(CarView::getId, view -> view));
+        int applied = 0;
+        for (ChangeEvent event : events) {
+            CarView view = views.get(event.getAggregateId());
+            if (view != null && view.getLastEventId() >= event.getId())
+                continue;
+            boolean created = view == null;
+            if (created) {
+                view = new CarView();
+                view.setId(event.getAggregateId());
+            }
+            if (ChangeEvent.DELETED.equals(event.getType())) {
+                view.setDeleted(true);
+                view.setDeletedAt(event.getCreatedAt());
+            } else {
+                Car car = read(event, Car.class);
+                view.setName(car.getName());
+                view.setPrice(car.getPrice());
+                view.setBrand(car.getBrand());
+                view.setRegistrationNumber(car.getRegistrationNumber());
+                view.setIsInStock(car.getIsInStock());
+                view.setUserId(car.getUserId());
+                view.setDeleted(false);
+                view.setDeletedAt(null);
+            }
+            view.setLastEventId(event.getId());
+            // Persisted once complete: Hibernate inserts the state the entity has at this point
+            if (created) {
+                entityManager.persist(view);
+                views.put(view.getId(), view);
+            }
+            recordLag(ProjectionSource.CARS, event);
+            applied++;
+        }
+        return applied;
+    }
+
+    private int applyLapTops(List<ChangeEvent> events) {
+        Map<Long, LapTopView> views = lapTopViewRepository.findAllById(aggregateIds(events)).stream()
+                .collect(Collectors.toMap(LapTopView::getId, view -> view));
+        int applied = 0;
+        for (ChangeEvent event : events) {
+            LapTopView view = views.get(event.getAggregateId());
+            if (view != null && view.getLastEventId() >= event.getId())
+                continue;
+            boolean created = view == null;
+            if (created) {
+                view = new LapTopView();
+                view.setId(event.getAggregateId());
+            }
+            if (ChangeEvent.DELETED.equals(event.getType())) {
+                view.setDeleted(true);
+                view.setDeletedAt(event.getCreatedAt());
+            } else {
+                LapTop lapTop = read(event, LapTop.class);
+                view.setLapTopName(lapTop.getLapTopName());
+                view.setLapTopPrice(lapTop.getLapTopPrice());
+                view.setLapTopBrand(lapTop.getLapTopBrand());
+                view.setIsInStock(lapTop.getIsInStock());
+                view.setDescription(lapTop.getDescription());
+                view.setUserId(lapTop.getUserId());
+                view.setDeleted(false);
+                view.setDeletedAt(null);
+            }
+            view.setLastEventId(event.getId());
+            // Persisted once complete: Hibernate inserts the state the entity has at this point
+            if (created) {
+                entityManager.persist(view);
+                views.put(view.getId(), view);
+            }
+            recordLag(ProjectionSource.LAPTOPS, event);
+            applied++;
+        }
+        return applied;
+    }
+
+    private static List<Long> aggregateIds(List<ChangeEvent> events) {
+        return events.stream().map(ChangeEvent::getAggregateId).distinct().collect(Collectors.toList());
+    }
+
+    private <T> T read(ChangeEvent event, Class<T> type) {
+        try {
+            return objectMapper.readValue(event.getPayload(), type);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Unreadable payload in event " + event.getId(), ex);
+        }
+    }
+
+    // Time from the commit on the source to the update here; both clocks are assumed to be in sync
+    private void recordLag(ProjectionSource source, ChangeEvent event) {
+        Timer.builder("projection.lag").tag("source", source.getPath()).register(meterRegistry)
+                .record(Math.max(0L, System.currentTimeMillis() - event.getCreatedAt().getTime()), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     *    Empties the projection and rewinds its checkpoint, so that the source outbox is read again from the start.
+     */
+    @Transactional
+    public void reset(ProjectionSource source) {
+        ProjectionCheckpoint checkpoint = lockCheckpoint(source);
+        if (source == ProjectionSource.CARS)
+            carViewRepository.deleteAllInBatch();
+        else
+            lapTopViewRepository.deleteAllInBatch();
+        checkpoint.setLastEventId(0L);
+        checkpoint.setUpdatedAt(new Date());
+    }
+
+    @Scheduled(fixedDelayString = "${projection.tombstone-purge.interval-ms:3600000}")
+    public void purgeTombstones() {
+        Date before = new Date(System.currentTimeMillis() - tombstoneRetentionMs);
+        long purged = purge(carViewRepository, before, carViewRepository::findTombstoneIds)
+                + purge(lapTopViewRepository, before, lapTopViewRepository::findTombstoneIds);
+        if (purged > 0)
+            log.info("Purged {} projection tombstones older than {}", purged, before);
+    }
+
+    private static long purge(JpaRepository<?, Long> repository, Date before, BiFunction<Date, Pageable, List<Long>> tombstones) {
+        long deleted = 0;
+        List<Long> ids;
+        do {
+            ids = tombstones.apply(before, PageRequest.of(0, PURGE_CHUNK));
+            if (!ids.isEmpty())
+                repository.deleteAllByIdInBatch(ids);
+            deleted += ids.size();
+        } while (ids.size() == PURGE_CHUNK);
+        return deleted;
+    }
+
+    @Transactional(readOnly = true)
+    public ProjectionCheckpoint findCheckpoint(ProjectionSource source) {
+        return checkpointRepository.findById(source.name()).orElse(new ProjectionCheckpoint(source.name(), 0L, null, null));
+    }
+
+    @Transactional(readOnly = true)
+    public List<Car> findCars(Long userId) {
+        return carViewRepository.findCarsByUserId(userId);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Car> findCars(Collection<Long> userIds) {
+        return carViewRepository.findCarsByUserIdIn(userIds);
+    }
+
+    @Transactional(readOnly = true)
+    public List<LapTop> findLapTops(Long userId) {
+        return lapTopViewRepository.findLapTopsByUserId(userId);
+    }
+
+    @Transactional(readOnly = true)
+    public List<LapTop> findLapTops(Collection<Long> userIds) {
+        return lapTopViewRepository.findLapTopsByUserIdIn(userIds);
+    }
+}
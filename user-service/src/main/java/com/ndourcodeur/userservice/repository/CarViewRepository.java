@@ -0,0 +1,30 @@
+package com.ndourcodeur.userservice.repository;
+
+import com.ndourcodeur.userservice.entity.CarView;
+import com.ndourcodeur.userservice.model.Car;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface CarViewRepository extends JpaRepository<CarView, Long> {
+
+    // Reads answer the API model built from the columns: no view entity is managed nor snapshotted
+    String SELECT_CAR = "select new com.ndourcodeur.userservice.model.Car(v.id, v.name, v.price, v.brand,"
+            + " v.registrationNumber, v.isInStock, v.userId) from CarView v";
+
+    @Query(SELECT_CAR + " where v.userId = :userId and v.deleted = false order by v.id")
+    List<Car> findCarsByUserId(@Param("userId") Long userId);
+
+    @Query(SELECT_CAR + " where v.userId in :userIds and v.deleted = false order by v.id")
+    List<Car> findCarsByUserIdIn(@Param("userIds") Collection<Long> userIds);
+
+    @Query("select v.id from CarView v where v.deleted = true and v.deletedAt < :before order by v.id")
+    List<Long> findTombstoneIds(@Param("before") Date before, Pageable pageable);
+}
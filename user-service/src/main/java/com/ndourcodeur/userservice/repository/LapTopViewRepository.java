@@ -0,0 +1,30 @@
+package com.ndourcodeur.userservice.repository;
+
+import com.ndourcodeur.userservice.entity.LapTopView;
+import com.ndourcodeur.userservice.model.LapTop;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface LapTopViewRepository extends JpaRepository<LapTopView, Long> {
+
+    // Reads answer the API model built from the columns: no view entity is managed nor snapshotted
+    String SELECT_LAPTOP = "select new com.ndourcodeur.userservice.model.LapTop(v.id, v.lapTopName, v.lapTopPrice,"
+            + " v.lapTopBrand, v.isInStock, v.description, v.userId) from LapTopView v";
+
+    @Query(SELECT_LAPTOP + " where v.userId = :userId and v.deleted = false order by v.id")
+    List<LapTop> findLapTopsByUserId(@Param("userId") Long userId);
+
+    @Query(SELECT_LAPTOP + " where v.userId in :userIds and v.deleted = false order by v.id")
+    List<LapTop> findLapTopsByUserIdIn(@Param("userIds") Collection<Long> userIds);
+
+    @Query("select v.id from LapTopView v where v.deleted = true and v.deletedAt < :before order by v.id")
+    List<Long> findTombstoneIds(@Param("before") Date before, Pageable pageable);
+}
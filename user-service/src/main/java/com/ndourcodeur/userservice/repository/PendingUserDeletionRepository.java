@@ -0,0 +1,29 @@
+package com.ndourcodeur.userservice.repository;
+
+import com.ndourcodeur.userservice.entity.PendingUserDeletion;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface PendingUserDeletionRepository extends JpaRepository<PendingUserDeletion, Long> {
+
+    List<PendingUserDeletion> findByNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(Date now, Pageable pageable);
+
+    /**
+     *    Postpones a failed deletion; updates nothing when another instance has completed it meanwhile.
+     */
+    @Transactional
+    @Modifying
+    @Query("update PendingUserDeletion d set d.attempts = :attempts, d.nextAttemptAt = :nextAttemptAt, d.lastError = :lastError"
+            + " where d.userId = :userId")
+    int postpone(@Param("userId") Long userId, @Param("attempts") int attempts, @Param("nextAttemptAt") Date nextAttemptAt,
+                 @Param("lastError") String lastError);
+}
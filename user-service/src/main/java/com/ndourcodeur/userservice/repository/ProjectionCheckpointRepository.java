@@ -0,0 +1,19 @@
+package com.ndourcodeur.userservice.repository;
+
+import com.ndourcodeur.userservice.entity.ProjectionCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.util.Optional;
+
+@Repository
+public interface ProjectionCheckpointRepository extends JpaRepository<ProjectionCheckpoint, String> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from ProjectionCheckpoint c where c.source = :source")
+    Optional<ProjectionCheckpoint> findForUpdate(@Param("source") String source);
+}
@@ -1,15 +1,84 @@
 package com.ndourcodeur.userservice.repository;
 
+import com.ndourcodeur.userservice.dto.UserPatch;
+import com.ndourcodeur.userservice.dto.UserResponse;
 import com.ndourcodeur.userservice.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
 
-    public User findByUsernameContaining(String username);
-    public User findByEmailContaining(String email);
+    // Read queries answer UserResponse rows built from the columns: no entity is managed nor snapshotted
+    String SELECT_RESPONSE = "select new com.ndourcodeur.userservice.dto.UserResponse(u.id, u.firstName, u.lastName,"
+            + " u.username, u.email, u.version, u.createdAt, u.updatedAt) from User u";
+
+    public User findByUsername(String username);
+    public User findByEmail(String email);
+
+    @Query(SELECT_RESPONSE + " where u.id = :id")
+    public Optional<UserResponse> findResponseById(@Param("id") Long id);
+
+    @Query(SELECT_RESPONSE + " where u.id in :ids")
+    public List<UserResponse> findResponsesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(SELECT_RESPONSE + " where u.username = :username")
+    public UserResponse findResponseByUsername(@Param("username") String username);
+
+    @Query(SELECT_RESPONSE + " where u.email = :email")
+    public UserResponse findResponseByEmail(@Param("email") String email);
+
+    @Query(SELECT_RESPONSE + " where u.id > :after order by u.id")
+    public List<UserResponse> findResponsesAfter(@Param("after") Long after, Pageable pageable);
 
     public boolean existsByUsername(String username);
     public boolean existsByEmail(String email);
+
+    /**
+     *    At most two rows, one per unique index; a null argument matches nothing.
+     */
+    public List<User> findByUsernameOrEmail(String username, String email);
+
+    /**
+     *    Applies the non-null fields of the patch if the user is still at the expected version, in one
+     *    UPDATE that neither reads the row first nor rewrites the other columns. Returns 0 when the user
+     *    does not exist or has another version.
+     */
+    public default int patch(Long id, UserPatch patch, Date now) {
+        return patch(id, patch.getVersion(), patch.getFirstName(), patch.getLastName(), patch.getUsername(), patch.getEmail(), now);
+    }
+
+    // Plain parameters rather than SpEL on the patch: this runs on every PATCH
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update User u set u.firstName = coalesce(:firstName, u.firstName),"
+            + " u.lastName = coalesce(:lastName, u.lastName), u.username = coalesce(:username, u.username),"
+            + " u.email = coalesce(:email, u.email), u.version = u.version + 1, u.updatedAt = :now"
+            + " where u.id = :id and u.version = :version")
+    public int patch(@Param("id") Long id, @Param("version") Long version, @Param("firstName") String firstName,
+                     @Param("lastName") String lastName, @Param("username") String username, @Param("email") String email,
+                     @Param("now") Date now);
+
+    @Query("select u.version from User u where u.id = :id")
+    public Optional<Long> findVersionById(@Param("id") Long id);
+
+    @Query("select u.username as username, u.email as email from User u where u.id = :id")
+    public Optional<UserIdentity> findIdentityById(@Param("id") Long id);
+
+    @Query("select u.username as username, u.email as email from User u")
+    public Stream<UserIdentity> streamAllIdentities();
+
+    interface UserIdentity {
+        String getUsername();
+        String getEmail();
+    }
 }
@@ -0,0 +1,17 @@
+package com.ndourcodeur.userservice.services;
+
+import com.ndourcodeur.userservice.model.Car;
+import com.ndourcodeur.userservice.model.LapTop;
+import com.ndourcodeur.userservice.pagination.CursorPage;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+public interface ReactiveUserService {
+
+    public Mono<CursorPage<Car>> findAllCarsWithUser(Long userId, String cursor, Integer size);
+
+    public Mono<CursorPage<LapTop>> findAllLapTopsWithUser(Long userId, String cursor, Integer size);
+
+    public Mono<Map<String, Object>> getUserAndCars(Long userId);
+}
@@ -0,0 +1,163 @@
+package com.ndourcodeur.userservice.services;
+
+import com.ndourcodeur.userservice.cache.UserCache;
+import com.ndourcodeur.userservice.dto.UserResponse;
+import com.ndourcodeur.userservice.exception.ResourceNotFoundException;
+import com.ndourcodeur.userservice.feignClients.CarClient;
+import com.ndourcodeur.userservice.feignClients.LapTopClient;
+import com.ndourcodeur.userservice.model.Car;
+import com.ndourcodeur.userservice.model.LapTop;
+import com.ndourcodeur.userservice.pagination.CursorPage;
+import com.ndourcodeur.userservice.pagination.Cursors;
+import com.ndourcodeur.userservice.repository.UserRepository;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ *    Non-blocking counterpart of the aggregation methods of UserServiceImpl: no thread waits on a
+ *    remote call. Downstream pages are pulled one at a time as they are consumed, behind the same
+ *    circuit breakers and bulkheads as the Feign clients. The user lookup still goes through JPA,
+ *    so it runs on the bounded elastic scheduler (and usually hits the cache).
+ */
+@Component
+@Slf4j
+public class ReactiveUserServiceImpl implements ReactiveUserService {
+
+    private static final String CARS_URL = "http://car-service/api/v1/cars/byUserId/{userId}?cursor={cursor}&size={size}";
+    private static final String LAPTOPS_URL = "http://laptop-service/api/v1/lapTops/byUserId/{userId}?cursor={cursor}&size={size}";
+
+    private static final ParameterizedTypeReference<CursorPage<Car>> CAR_PAGE = new ParameterizedTypeReference<CursorPage<Car>>() {};
+    private static final ParameterizedTypeReference<CursorPage<LapTop>> LAPTOP_PAGE = new ParameterizedTypeReference<CursorPage<LapTop>>() {};
+
+    private final WebClient webClient;
+
+    private final UserRepository userRepository;
+
+    private final UserCache userCache;
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+
+    private final BulkheadRegistry bulkheadRegistry;
+
+    private final Duration aggregationTimeout;
+
+    public ReactiveUserServiceImpl(WebClient loadBalancedWebClient, UserRepository userRepository, UserCache userCache,
+                                   CircuitBreakerRegistry circuitBreakerRegistry, BulkheadRegistry bulkheadRegistry,
+                                   @Value("${aggregation.timeout-ms:2000}") long aggregationTimeoutMs) {
+        this.webClient = loadBalancedWebClient;
+        this.userRepository = userRepository;
+        this.userCache = userCache;
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.bulkheadRegistry = bulkheadRegistry;
+        this.aggregationTimeout = Duration.ofMillis(aggregationTimeoutMs);
+    }
+
+    @Override
+    public Mono<CursorPage<Car>> findAllCarsWithUser(Long userId, String cursor, Integer size) {
+        log.debug("Inside findAllCarsWithUser of ReactiveUserService");
+        return requireUser(userId)
+                .then(page(CARS_URL, CAR_PAGE, userId, cursor, Cursors.pageSize(size))
+                        .transformDeferred(resilience(CarClient.CAR_SERVICE)));
+    }
+
+    @Override
+    public Mono<CursorPage<LapTop>> findAllLapTopsWithUser(Long userId, String cursor, Integer size) {
+        log.debug("Inside findAllLapTopsWithUser of ReactiveUserService");
+        return requireUser(userId)
+                .then(page(LAPTOPS_URL, LAPTOP_PAGE, userId, cursor, Cursors.pageSize(size))
+                        .transformDeferred(resilience(LapTopClient.LAPTOP_SERVICE)));
+    }
+
+    @Override
+    public Mono<Map<String, Object>> getUserAndCars(Long userId) {
+        // The three lookups are subscribed together, so they overlap like in the blocking version
+        return Mono.zip(findUser(userId),
+                        section("Cars", allPages(CARS_URL, CAR_PAGE, userId), CarClient.CAR_SERVICE),
+                        section("LapTops", allPages(LAPTOPS_URL, LAPTOP_PAGE, userId), LapTopClient.LAPTOP_SERVICE))
+                .map(sections -> {
+                    Map<String, Object> response = new HashMap<>();
+                    if (sections.getT1().isEmpty()) {
+                        response.put("message", "User does not exits with ID:" + userId);
+                        return response;
+                    }
+                    response.put("User", sections.getT1().get());
+                    putSection(response, "Cars", sections.getT2().orElse(null));
+                    putSection(response, "LapTops", sections.getT3().orElse(null));
+                    return response;
+                });
+    }
+
+    private Mono<Optional<UserResponse>> findUser(Long userId) {
+        return Mono.fromCallable(() -> Optional.ofNullable(userCache.getById(userId, id -> userRepository.findResponseById(id).orElse(null))))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Mono<UserResponse> requireUser(Long userId) {
+        return findUser(userId).map(user -> user.orElseThrow(() -> new ResourceNotFoundException("User does not exist with ID:" + userId)));
+    }
+
+    private <T> Mono<CursorPage<T>> page(String url, ParameterizedTypeReference<CursorPage<T>> type, Long userId, String cursor, int size) {
+        return webClient.get()
+                .uri(url, userId, cursor == null ? "" : cursor, size)
+                .retrieve()
+                .bodyToMono(type);
+    }
+
+    /**
+     *    Every item of every page; the next page is only requested once the previous one is consumed.
+     */
+    private <T> Flux<T> allPages(String url, ParameterizedTypeReference<CursorPage<T>> type, Long userId) {
+        return page(url, type, userId, null, Cursors.MAX_PAGE_SIZE)
+                .expand(page -> page.getNextCursor() == null ? Mono.empty() : page(url, type, userId, page.getNextCursor(), Cursors.MAX_PAGE_SIZE))
+                .concatMapIterable(CursorPage::getItems);
+    }
+
+    /**
+     *    One section of the aggregate, empty when it failed, was rejected or missed the deadline.
+     */
+    private <T> Mono<Optional<List<T>>> section(String section, Flux<T> items, String downstream) {
+        return items.collectList()
+                .timeout(aggregationTimeout)
+                .transformDeferred(resilience(downstream))
+                .map(Optional::of)
+                .onErrorResume(ex -> {
+                    log.warn("Unable to fetch {}: {}", section, ex.toString());
+                    return Mono.just(Optional.empty());
+                });
+    }
+
+    private <T> Function<Mono<T>, Mono<T>> resilience(String downstream) {
+        return mono -> mono
+                .transformDeferred(BulkheadOperator.of(bulkheadRegistry.bulkhead(downstream)))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreakerRegistry.circuitBreaker(downstream)));
+    }
+
+    /**
+     *    A missing section (null) is marked as unavailable instead of failing the whole response.
+     */
+    private static void putSection(Map<String, Object> response, String section, List<?> items) {
+        if (items == null)
+            response.put(section, "Sorry, " + section + " are temporarily unavailable!");
+        else if (items.isEmpty())
+            response.put(section, "Sorry, No Almost Content!");
+        else
+            response.put(section, items);
+    }
+}
@@ -0,0 +1,140 @@
+package com.ndourcodeur.userservice.services;
+
+import com.ndourcodeur.userservice.entity.PendingUserDeletion;
+import com.ndourcodeur.userservice.feignClients.CarClient;
+import com.ndourcodeur.userservice.feignClients.LapTopClient;
+import com.ndourcodeur.userservice.repository.PendingUserDeletionRepository;
+import feign.Request;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ *    Deletes the cars and lapTops of deleted users, off the request thread.
+ *
+ *    The pending deletion is recorded in the transaction that deletes the user, then carried out
+ *    right after commit and retried with an exponential backoff until both services confirm; the
+ *    services delete a large owner chunk by chunk. Deleting again is harmless, so several instances
+ *    may process the same user.
+ */
+@Component
+@Slf4j
+public class UserDeletionCascade {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final PendingUserDeletionRepository pendingUserDeletionRepository;
+    private final CarClient carClient;
+    private final LapTopClient lapTopClient;
+    private final int batchSize;
+    private final long backoffMs;
+    private final long maxBackoffMs;
+    private final Request.Options options;
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private final ThreadPoolExecutor executor;
+    private final Counter completed;
+    private final Counter failed;
+
+    public UserDeletionCascade(PendingUserDeletionRepository pendingUserDeletionRepository, CarClient carClient, LapTopClient lapTopClient,
+                               MeterRegistry meterRegistry,
+                               @Value("${user-deletion.cascade.batch-size:100}") int batchSize,
+                               @Value("${user-deletion.cascade.backoff-ms:10000}") long backoffMs,
+                               @Value("${user-deletion.cascade.max-backoff-ms:600000}") long maxBackoffMs,
+                               @Value("${user-deletion.cascade.read-timeout-ms:60000}") long readTimeoutMs) {
+        this.pendingUserDeletionRepository = pendingUserDeletionRepository;
+        this.carClient = carClient;
+        this.lapTopClient = lapTopClient;
+        this.batchSize = batchSize;
+        this.backoffMs = backoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.options = new Request.Options(1000, TimeUnit.MILLISECONDS, readTimeoutMs, TimeUnit.MILLISECONDS, true);
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1), runnable -> {
+            Thread thread = new Thread(runnable, "user-deletion-cascade");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.completed = meterRegistry.counter("user.deletion.cascade", "outcome", "success");
+        this.failed = meterRegistry.counter("user.deletion.cascade", "outcome", "failure");
+    }
+
+    /**
+     *    Records that the cars and lapTops of the user are to be deleted once the current transaction commits.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void schedule(Long userId) {
+        Date now = new Date();
+        pendingUserDeletionRepository.save(new PendingUserDeletion(userId, now, now, 0, null));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                requestRun();
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${user-deletion.cascade.interval-ms:30000}")
+    public void requestRun() {
+        if (!pending.compareAndSet(false, true))
+            return;
+        try {
+            executor.execute(() -> {
+                pending.set(false);
+                runDue();
+            });
+        } catch (RejectedExecutionException ex) {
+            pending.set(false);
+        }
+    }
+
+    private void runDue() {
+        List<PendingUserDeletion> due;
+        do {
+            // Failed deletions are postponed, so every round makes progress
+            due = pendingUserDeletionRepository.findByNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(new Date(), PageRequest.of(0, batchSize));
+            for (PendingUserDeletion deletion : due)
+                process(deletion);
+        } while (due.size() == batchSize);
+    }
+
+    private void process(PendingUserDeletion deletion) {
+        Long userId = deletion.getUserId();
+        try {
+            carClient.deleteAllCarsByUserId(userId, options);
+            lapTopClient.deleteAllLapTopsByUserId(userId, options);
+            pendingUserDeletionRepository.deleteAllByIdInBatch(List.of(userId));
+            completed.increment();
+        } catch (RuntimeException ex) {
+            int attempts = deletion.getAttempts() + 1;
+            long delay = Math.min(maxBackoffMs, backoffMs << Math.min(attempts - 1, 16));
+            String error = ex.toString();
+            // An update rather than save(deletion): merging the detached row would insert it again if another
+            // instance completed the deletion meanwhile
+            pendingUserDeletionRepository.postpone(userId, attempts, new Date(System.currentTimeMillis() + delay),
+                    error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+            failed.increment();
+            log.warn("Unable to delete the cars and lapTops of user {} (attempt {}), retrying in {} ms: {}", userId, attempts, delay, error);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
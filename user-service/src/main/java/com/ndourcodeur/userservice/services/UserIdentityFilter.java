@@ -0,0 +1,102 @@
+package com.ndourcodeur.userservice.services;
+
+import com.ndourcodeur.userservice.repository.UserRepository;
+import com.ndourcodeur.userservice.support.BloomFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ *    In-memory Bloom filters of the registered usernames and emails.
+ *
+ *    A negative answer means the value is certainly not taken (as far as this instance has seen),
+ *    so registration can skip the uniqueness query. The unique constraints stay the source of truth:
+ *    values added by other instances, or while the filters are being rebuilt, are caught on insert.
+ */
+@Component
+@Slf4j
+public class UserIdentityFilter {
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+
+    private volatile Filters current;
+    private volatile Filters pending;
+
+    public UserIdentityFilter(UserRepository userRepository, TransactionTemplate transactionTemplate,
+                              @Value("${user-identity.bloom.expected-insertions:1000000}") long expectedInsertions,
+                              @Value("${user-identity.bloom.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.userRepository = userRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    /**
+     *    False only when the username is certainly not registered; always true until the first rebuild.
+     */
+    public boolean mightContainUsername(String username) {
+        Filters filters = current;
+        return filters == null || filters.usernames.mightContain(normalize(username));
+    }
+
+    public boolean mightContainEmail(String email) {
+        Filters filters = current;
+        return filters == null || filters.emails.mightContain(normalize(email));
+    }
+
+    public void add(String username, String email) {
+        Filters filters = current;
+        if (filters != null)
+            filters.put(username, email);
+        filters = pending;
+        if (filters != null)
+            filters.put(username, email);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long users = userRepository.count();
+        Filters filters = new Filters(Math.max(expectedInsertions, users * 2), falsePositiveRate);
+        pending = filters;
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<UserRepository.UserIdentity> identities = userRepository.streamAllIdentities()) {
+                identities.forEach(identity -> filters.put(identity.getUsername(), identity.getEmail()));
+            }
+        });
+        current = filters;
+        pending = null;
+        log.info("Username and email filters rebuilt from {} users", users);
+    }
+
+    // The database compares usernames and emails case-insensitively
+    private static String normalize(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Filters {
+
+        private final BloomFilter usernames;
+        private final BloomFilter emails;
+
+        private Filters(long expectedInsertions, double falsePositiveRate) {
+            this.usernames = new BloomFilter(expectedInsertions, falsePositiveRate);
+            this.emails = new BloomFilter(expectedInsertions, falsePositiveRate);
+        }
+
+        private void put(String username, String email) {
+            if (username != null)
+                usernames.put(normalize(username));
+            if (email != null)
+                emails.put(normalize(email));
+        }
+    }
+}
@@ -1,25 +1,29 @@
 package com.ndourcodeur.userservice.services;
 
+import com.ndourcodeur.userservice.dto.UserPatch;
 import com.ndourcodeur.userservice.dto.UserRequest;
-import com.ndourcodeur.userservice.entity.User;
+import com.ndourcodeur.userservice.dto.UserResponse;
 import com.ndourcodeur.userservice.model.*;
+import com.ndourcodeur.userservice.pagination.CursorPage;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
 @Service
 public interface UserService {
 
-    public User addUser(UserRequest request);
-    public User editUser(Long id, UserRequest request);
-    public List<User> findAllUsers();
-    public User findUser(Long id);
-    public List<Car> findAllCarsWithUser(Long userId);
-    public List<LapTop> findAllLapTopsWithUser(Long userId);
+    public UserResponse addUser(UserRequest request);
+    public UserResponse editUser(Long id, UserRequest request);
+    public UserResponse patchUser(Long id, UserPatch patch);
+    public CursorPage<UserResponse> findAllUsers(String cursor, Integer size);
+    public UserResponse findUser(Long id);
+    public CursorPage<Car> findAllCarsWithUser(Long userId, String cursor, Integer size);
+    public CursorPage<LapTop> findAllLapTopsWithUser(Long userId, String cursor, Integer size);
     public void deleteUser(Long id);
-    public User getUsername(String username);
-    public User getEmail(String email);
+    public UserResponse getUsername(String username);
+    public UserResponse getEmail(String email);
     public Boolean existsById(Long userId);
     public Boolean existsByUsername(String username);
     public Boolean existsByEmail(String email);
@@ -29,4 +33,5 @@ public interface UserService {
     public Car editCarById(Long userId, Long carId, Car car);
     public void deleteCarById(Long carId);
     public Map<String, Object> getUserAndCars(Long userId);
+    public Map<Long, Map<String, Object>> getUsersAndCars(Collection<Long> userIds);
 }
@@ -1,24 +1,58 @@
 package com.ndourcodeur.userservice.services;
 
+import com.ndourcodeur.userservice.cache.UserCache;
+import com.ndourcodeur.userservice.cache.UserCacheInvalidation;
+import com.ndourcodeur.userservice.dto.UserPatch;
 import com.ndourcodeur.userservice.dto.UserRequest;
+import com.ndourcodeur.userservice.dto.UserResponse;
 import com.ndourcodeur.userservice.entity.User;
+import com.ndourcodeur.userservice.exception.ConflictException;
+import com.ndourcodeur.userservice.exception.DuplicateResourceException;
 import com.ndourcodeur.userservice.exception.ResourceNotFoundException;
-import com.ndourcodeur.userservice.feignClients.CarFeignClient;
-import com.ndourcodeur.userservice.feignClients.LapTopFeignClient;
+import com.ndourcodeur.userservice.feignClients.CarClient;
+import com.ndourcodeur.userservice.feignClients.LapTopClient;
 import com.ndourcodeur.userservice.model.*;
+import com.ndourcodeur.userservice.pagination.CursorPage;
+import com.ndourcodeur.userservice.pagination.Cursors;
+import com.ndourcodeur.userservice.projection.ProjectionPoller;
+import com.ndourcodeur.userservice.projection.ProjectionSource;
+import com.ndourcodeur.userservice.projection.ProjectionStore;
 import com.ndourcodeur.userservice.repository.UserRepository;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpMethod;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.RestTemplate;
 
-import javax.transaction.Transactional;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+// Transactions are declared per method so that no remote call is ever made while holding a connection
 @Component
-@Transactional
 @Slf4j
 public class UserServiceImpl implements UserService{
 
@@ -26,148 +60,365 @@ public class UserServiceImpl implements UserService{
     RestTemplate restTemplate;
 
     @Autowired
-    private CarFeignClient carFeignClient;
+    private CarClient carClient;
 
     @Autowired
-    private LapTopFeignClient lapTopFeignClient;
+    private LapTopClient lapTopClient;
+
+    @Autowired
+    private UserDeletionCascade userDeletionCascade;
+
+    @Autowired
+    private ProjectionPoller projectionPoller;
+
+    @Autowired
+    private ProjectionStore projectionStore;
+
+    @Autowired
+    @Qualifier("aggregationExecutor")
+    private Executor aggregationExecutor;
+
+    @Value("${aggregation.timeout-ms:2000}")
+    private long aggregationTimeoutMs;
 
     private final UserRepository userRepository;
 
-    public UserServiceImpl(UserRepository userRepository) {
+    private final UserCache userCache;
+
+    private final UserIdentityFilter userIdentityFilter;
+
+    public UserServiceImpl(UserRepository userRepository, UserCache userCache, UserIdentityFilter userIdentityFilter) {
         this.userRepository = userRepository;
+        this.userCache = userCache;
+        this.userIdentityFilter = userIdentityFilter;
     }
 
     @Override
-    public User addUser(UserRequest request) {
-        log.info("Inside addUser of UserService");
+    @Transactional
+    public UserResponse addUser(UserRequest request) {
+        log.debug("Inside addUser of UserService");
+        checkUniqueness(null, request.getUsername(), request.getEmail());
         User user = new User();
-        user.setId(request.getId());
+        // The id is always generated: with a version attribute, an entity carrying an id is not new
         user.setFirstName(request.getFirstName());
         user.setLastName(request.getLastName());
         user.setUsername(request.getUsername());
         user.setEmail(request.getEmail());
-        return userRepository.save(user);
+        User savedUser = saveUnique(user);
+        userCache.invalidate(new UserCacheInvalidation(savedUser.getId(),
+                List.of(savedUser.getUsername()), List.of(savedUser.getEmail())));
+        return UserResponse.of(savedUser);
     }
 
     @Override
-    public User editUser(Long id, UserRequest request) {
-        log.info("Inside editUser of UserService");
+    @Transactional
+    public UserResponse editUser(Long id, UserRequest request) {
+        log.debug("Inside editUser of UserService");
         User user = userRepository.findById(id)
                 .orElseThrow( () -> new ResourceNotFoundException("User does not exist with ID:"+id));
+        String oldUsername = user.getUsername();
+        String oldEmail = user.getEmail();
+        // Only the values that change can conflict with another user
+        checkUniqueness(id,
+                oldUsername.equalsIgnoreCase(request.getUsername()) ? null : request.getUsername(),
+                oldEmail.equalsIgnoreCase(request.getEmail()) ? null : request.getEmail());
         user.setId(request.getId());
         user.setFirstName(request.getFirstName());
         user.setLastName(request.getLastName());
         user.setUsername(request.getUsername());
         user.setEmail(request.getEmail());
-        return userRepository.save(user);
+        User savedUser = saveUnique(user);
+        userCache.invalidate(new UserCacheInvalidation(id,
+                List.of(oldUsername, request.getUsername()), List.of(oldEmail, request.getEmail())));
+        return UserResponse.of(savedUser);
+    }
+
+    @Override
+    @Transactional
+    public UserResponse patchUser(Long id, UserPatch patch) {
+        log.debug("Inside patchUser of UserService");
+        // Only a new username or email needs the old one, to check uniqueness and evict its cache keys
+        UserRepository.UserIdentity old = null;
+        if (patch.getUsername() != null || patch.getEmail() != null) {
+            old = userRepository.findIdentityById(id)
+                    .orElseThrow( () -> new ResourceNotFoundException("User does not exist with ID:"+id));
+            checkUniqueness(id,
+                    old.getUsername().equalsIgnoreCase(String.valueOf(patch.getUsername())) ? null : patch.getUsername(),
+                    old.getEmail().equalsIgnoreCase(String.valueOf(patch.getEmail())) ? null : patch.getEmail());
+        }
+        int updated;
+        try {
+            updated = userRepository.patch(id, patch, new Date());
+        } catch (DataIntegrityViolationException ex) {
+            throw duplicateOrRethrow(ex);
+        }
+        if (updated == 0) {
+            Long version = userRepository.findVersionById(id)
+                    .orElseThrow( () -> new ResourceNotFoundException("User does not exist with ID:"+id));
+            throw new ConflictException("User with ID:" + id + " is at version " + version + ", not " + patch.getVersion(), version);
+        }
+        userIdentityFilter.add(patch.getUsername(), patch.getEmail());
+        userCache.invalidate(new UserCacheInvalidation(id,
+                old == null ? null : Arrays.asList(old.getUsername(), patch.getUsername()),
+                old == null ? null : Arrays.asList(old.getEmail(), patch.getEmail())));
+        return userRepository.findResponseById(id)
+                .orElseThrow( () -> new ResourceNotFoundException("User does not exist with ID:"+id));
+    }
+
+    /**
+     *    One indexed query at most; skipped entirely when the Bloom filters know neither value.
+     */
+    private void checkUniqueness(Long userId, String username, String email) {
+        boolean usernameMayBeTaken = username != null && userIdentityFilter.mightContainUsername(username);
+        boolean emailMayBeTaken = email != null && userIdentityFilter.mightContainEmail(email);
+        if (!usernameMayBeTaken && !emailMayBeTaken)
+            return;
+        List<User> conflicts = userRepository.findByUsernameOrEmail(
+                usernameMayBeTaken ? username : null, emailMayBeTaken ? email : null);
+        for (User conflict : conflicts)
+            if (!conflict.getId().equals(userId) && conflict.getUsername().equalsIgnoreCase(username))
+                throw new DuplicateResourceException("Username already exist!");
+        for (User conflict : conflicts)
+            if (!conflict.getId().equals(userId))
+                throw new DuplicateResourceException("Email already exist!");
+    }
+
+    /**
+     *    Flushes the insert/update so that a unique constraint violation (a concurrent registration,
+     *    or one made on another instance) is reported precisely rather than at commit.
+     */
+    private User saveUnique(User user) {
+        User savedUser;
+        try {
+            savedUser = userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException ex) {
+            throw duplicateOrRethrow(ex);
+        } catch (ObjectOptimisticLockingFailureException ex) {
+            // A concurrent edit between the read and the write of editUser
+            throw new ConflictException("User with ID:" + user.getId() + " was modified concurrently, please retry");
+        }
+        userIdentityFilter.add(savedUser.getUsername(), savedUser.getEmail());
+        return savedUser;
+    }
+
+    private static RuntimeException duplicateOrRethrow(DataIntegrityViolationException ex) {
+        String constraint = violatedConstraint(ex);
+        if (constraint.contains(User.UNIQUE_USERNAME))
+            return new DuplicateResourceException("Username already exist!");
+        if (constraint.contains(User.UNIQUE_EMAIL))
+            return new DuplicateResourceException("Email already exist!");
+        return ex;
+    }
+
+    private static String violatedConstraint(DataIntegrityViolationException ex) {
+        String name = ex.getCause() instanceof ConstraintViolationException
+                ? ((ConstraintViolationException) ex.getCause()).getConstraintName() : null;
+        if (name == null)
+            name = String.valueOf(ex.getMostSpecificCause().getMessage());
+        return name.toLowerCase(Locale.ROOT);
     }
 
     @Override
-    public List<User> findAllUsers() {
-        log.info("Inside findAllUsers of UserService");
-        return userRepository.findAll();
+    @Transactional(readOnly = true)
+    public CursorPage<UserResponse> findAllUsers(String cursor, Integer size) {
+        log.debug("Inside findAllUsers of UserService");
+        int pageSize = Cursors.pageSize(size);
+        List<UserResponse> rows = userRepository.findResponsesAfter(Cursors.decode(cursor), PageRequest.of(0, pageSize + 1));
+        return Cursors.page(rows, pageSize, UserResponse::getId);
     }
 
+    // Cached lookups stay non-transactional: a cache hit must not borrow a connection
     @Override
-    public User findUser(Long id) {
-        log.info("Inside findUser of UserService");
-        return userRepository.findById(id)
-                .orElseThrow( () -> new ResourceNotFoundException("User does not exist with ID:"+id));
+    public UserResponse findUser(Long id) {
+        log.debug("Inside findUser of UserService");
+        return userCache.getById(id, userId -> userRepository.findResponseById(userId)
+                .orElseThrow( () -> new ResourceNotFoundException("User does not exist with ID:"+userId)));
     }
 
     @Override
-    public List<Car> findAllCarsWithUser(Long userId) {
-        log.info("Inside findAllCarsWithUser of UserService");
-        List<Car> cars = restTemplate.getForObject("http://localhost:8200/api/v1/cars/byUserId/" + userId, List.class);
-        return cars;
+    public CursorPage<Car> findAllCarsWithUser(Long userId, String cursor, Integer size) {
+        log.debug("Inside findAllCarsWithUser of UserService");
+        return restTemplate.exchange("http://car-service/api/v1/cars/byUserId/{userId}?cursor={cursor}&size={size}", HttpMethod.GET, null,
+                new ParameterizedTypeReference<CursorPage<Car>>() {}, userId, cursor == null ? "" : cursor, Cursors.pageSize(size)).getBody();
     }
 
     @Override
-    public List<LapTop> findAllLapTopsWithUser(Long userId) {
-        log.info("Inside findAllLapTopsWithUser of UserService");
-        List<LapTop> lapTops = restTemplate.getForObject("http://localhost:8300/api/v1/lapTops/byUserId/" + userId, List.class);
-        return lapTops;
+    public CursorPage<LapTop> findAllLapTopsWithUser(Long userId, String cursor, Integer size) {
+        log.debug("Inside findAllLapTopsWithUser of UserService");
+        return restTemplate.exchange("http://laptop-service/api/v1/lapTops/byUserId/{userId}?cursor={cursor}&size={size}", HttpMethod.GET, null,
+                new ParameterizedTypeReference<CursorPage<LapTop>>() {}, userId, cursor == null ? "" : cursor, Cursors.pageSize(size)).getBody();
     }
 
     @Override
+    @Transactional
     public void deleteUser(Long id) {
-        log.info("Inside deleteUser of UserService");
+        log.debug("Inside deleteUser of UserService");
         User existingUser = userRepository.findById(id)
                 .orElseThrow( () -> new ResourceNotFoundException("User does not exist with ID:"+id));
         userRepository.delete(existingUser);
+        // The cars and lapTops of the user are deleted asynchronously, in chunks, once this transaction commits
+        userDeletionCascade.schedule(id);
+        userCache.invalidate(new UserCacheInvalidation(id,
+                List.of(existingUser.getUsername()), List.of(existingUser.getEmail())));
     }
 
     @Override
-    public User getUsername(String username) {
-        log.info("Inside getUsername of UserService");
-        return userRepository.findByUsernameContaining(username);
+    public UserResponse getUsername(String username) {
+        log.debug("Inside getUsername of UserService");
+        return userCache.getByUsername(username, () -> userRepository.findResponseByUsername(username));
     }
 
     @Override
-    public User getEmail(String email) {
-        log.info("Inside getEmail of UserService");
-        return userRepository.findByEmailContaining(email);
+    public UserResponse getEmail(String email) {
+        log.debug("Inside getEmail of UserService");
+        return userCache.getByEmail(email, () -> userRepository.findResponseByEmail(email));
     }
 
     @Override
     public Boolean existsById(Long userId) {
-        log.info("Inside existsById of UserService");
-        return userRepository.existsById(userId);
+        log.debug("Inside existsById of UserService");
+        return userCache.getById(userId, id -> userRepository.findResponseById(id).orElse(null)) != null;
     }
 
     @Override
     public Boolean existsByUsername(String username) {
-        log.info("Inside existsByUsername of UserService");
-        return userRepository.existsByUsername(username);
+        log.debug("Inside existsByUsername of UserService");
+        return getUsername(username) != null;
     }
 
     @Override
     public Boolean existsByEmail(String email) {
-        log.info("Inside existsByEmail of UserService");
-        return userRepository.existsByEmail(email);
+        log.debug("Inside existsByEmail of UserService");
+        return getEmail(email) != null;
     }
 
     @Override
     public Car saveCar(Long userId, Car car) {
-        log.info("Inside saveCar of UserService");
+        log.debug("Inside saveCar of UserService");
         car.setUserId(userId);
-        return carFeignClient.addNewCar(car);
+        return carClient.addNewCar(car);
     }
 
     @Override
     public Car editCarById(Long userId, Long carId, Car car) {
-        log.info("Inside editCarById of UserService");
+        log.debug("Inside editCarById of UserService");
         car.setUserId(userId);
-        return carFeignClient.updateCarById(carId, car);
+        return carClient.updateCarById(carId, car);
     }
 
     @Override
     public void deleteCarById(Long carId) {
-        log.info("Inside editCarById of UserService");
+        log.debug("Inside editCarById of UserService");
        // car.setUserId(userId);
-        carFeignClient.deleteCarById(carId);
+        carClient.deleteCarById(carId);
     }
 
     @Override
     public Map<String, Object> getUserAndCars(Long userId) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(aggregationTimeoutMs);
+        // Local projections when fresh; otherwise both downstream calls are started before the user lookup so that the three hops overlap
+        CompletableFuture<List<Car>> cars = projectionPoller.isFresh(ProjectionSource.CARS)
+                ? CompletableFuture.completedFuture(projectionStore.findCars(userId))
+                : fetchAsync(() -> carClient.fetchAllCarsByUserId(userId));
+        CompletableFuture<List<LapTop>> lapTops = projectionPoller.isFresh(ProjectionSource.LAPTOPS)
+                ? CompletableFuture.completedFuture(projectionStore.findLapTops(userId))
+                : fetchAsync(() -> lapTopClient.fetchAllLapTopsByUserId(userId));
+
         Map<String, Object> response = new HashMap<>();
-        User user = userRepository.findById(userId).orElse(null);
+        UserResponse user = userCache.getById(userId, id -> userRepository.findResponseById(id).orElse(null));
         if (user==null) {
+            cars.cancel(true);
+            lapTops.cancel(true);
             response.put("message", "User does not exits with ID:" + userId);
             return response;
         }
         response.put("User", user);
-        List<Car> cars = carFeignClient.fetchAllCarsByUserId(userId);
-        if (cars.isEmpty())
-            response.put("Cars", "Sorry, No Almost Content!");
-        else
-            response.put("Cars", cars);
+        putSection(response, "Cars", await("Cars", cars, deadline));
         // Adding LapTop List
-        List<LapTop> lapTops = lapTopFeignClient.fetchAllLapTopsByUserId(userId);
-        if (lapTops.isEmpty())
-            response.put("LapTops", "Sorry, No Almost Content!");
-        else
-            response.put("LapTops", lapTops);
+        putSection(response, "LapTops", await("LapTops", lapTops, deadline));
         return response;
     }
+
+    @Override
+    public Map<Long, Map<String, Object>> getUsersAndCars(Collection<Long> userIds) {
+        log.debug("Inside getUsersAndCars of UserService");
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(aggregationTimeoutMs);
+        // One IN query per service whatever the number of users: three hops for the whole page, one when the projections are fresh
+        CompletableFuture<List<Car>> cars = projectionPoller.isFresh(ProjectionSource.CARS)
+                ? CompletableFuture.completedFuture(projectionStore.findCars(userIds))
+                : fetchAsync(() -> carClient.fetchAllCarsByUserIds(userIds));
+        CompletableFuture<List<LapTop>> lapTops = projectionPoller.isFresh(ProjectionSource.LAPTOPS)
+                ? CompletableFuture.completedFuture(projectionStore.findLapTops(userIds))
+                : fetchAsync(() -> lapTopClient.fetchAllLapTopsByUserIds(userIds));
+
+        Map<Long, UserResponse> users = new HashMap<>();
+        for (UserResponse user : userRepository.findResponsesByIdIn(userIds))
+            users.put(user.getId(), user);
+        Map<Long, List<Car>> carsByUserId = groupByUserId(await("Cars", cars, deadline), Car::getUserId);
+        Map<Long, List<LapTop>> lapTopsByUserId = groupByUserId(await("LapTops", lapTops, deadline), LapTop::getUserId);
+
+        Map<Long, Map<String, Object>> response = new LinkedHashMap<>();
+        for (Long userId : userIds) {
+            Map<String, Object> entry = new HashMap<>();
+            UserResponse user = users.get(userId);
+            if (user == null) {
+                entry.put("message", "User does not exits with ID:" + userId);
+            } else {
+                entry.put("User", user);
+                putSection(entry, "Cars", carsByUserId == null ? null : carsByUserId.getOrDefault(userId, Collections.emptyList()));
+                putSection(entry, "LapTops", lapTopsByUserId == null ? null : lapTopsByUserId.getOrDefault(userId, Collections.emptyList()));
+            }
+            response.put(userId, entry);
+        }
+        return response;
+    }
+
+    private <T> CompletableFuture<T> fetchAsync(Supplier<T> supplier) {
+        try {
+            return CompletableFuture.supplyAsync(supplier, aggregationExecutor);
+        } catch (RejectedExecutionException ex) {
+            CompletableFuture<T> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(ex);
+            return rejected;
+        }
+    }
+
+    /**
+     *    Waits for one section of the aggregation until the shared deadline.
+     *    Returns null when the section failed or missed the deadline.
+     */
+    private <T> List<T> await(String section, CompletableFuture<List<T>> future, long deadline) {
+        try {
+            return future.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            future.cancel(true);
+            log.warn("{} did not answer within {} ms", section, aggregationTimeoutMs);
+        } catch (ExecutionException ex) {
+            log.warn("Unable to fetch {}: {}", section, ex.getCause().toString());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    private static <T> Map<Long, List<T>> groupByUserId(List<T> items, Function<T, Long> userId) {
+        if (items == null)
+            return null;
+        Map<Long, List<T>> grouped = new HashMap<>();
+        for (T item : items)
+            grouped.computeIfAbsent(userId.apply(item), id -> new ArrayList<>()).add(item);
+        return grouped;
+    }
+
+    /**
+     *    A missing section (null) is marked as unavailable instead of failing the whole response.
+     */
+    private static void putSection(Map<String, Object> response, String section, List<?> items) {
+        if (items == null)
+            response.put(section, "Sorry, " + section + " are temporarily unavailable!");
+        else if (items.isEmpty())
+            response.put(section, "Sorry, No Almost Content!");
+        else
+            response.put(section, items);
+    }
 }
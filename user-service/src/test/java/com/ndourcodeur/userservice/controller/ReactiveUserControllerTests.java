@@ -0,0 +1,133 @@
+package com.ndourcodeur.userservice.controller;
+
+import com.ndourcodeur.userservice.entity.User;
+import com.ndourcodeur.userservice.repository.UserRepository;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *    The /api/v2 endpoints, user-service on H2: car-service stubbed by a local HTTP server answering two pages
+ *    of cars, laptop-service by one that always fails.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"spring.datasource.url=jdbc:h2:mem:reactive-user-controller;MODE=MySQL;DB_CLOSE_DELAY=-1",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"projection.enabled=false",
+		"hedging.enabled=false"
+})
+class ReactiveUserControllerTests {
+
+	private static final String CAR = "{\"id\":%d,\"name\":\"Car %1$d\",\"price\":100.0,\"brand\":\"Toyota\",\"userId\":%d}";
+	private static final List<String> CAR_QUERIES = new CopyOnWriteArrayList<>();
+	private static HttpServer downstream;
+
+	@Autowired
+	private TestRestTemplate restTemplate;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	private Long userId;
+
+	@DynamicPropertySource
+	static void downstreamServices(DynamicPropertyRegistry registry) throws IOException {
+		downstream = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		// Two pages: the first one points to the second
+		downstream.createContext("/api/v1/cars/byUserId/", exchange -> {
+			String path = exchange.getRequestURI().getPath();
+			String query = exchange.getRequestURI().getQuery();
+			CAR_QUERIES.add(query);
+			long userId = Long.parseLong(path.substring(path.lastIndexOf('/') + 1));
+			if (query.contains("cursor=page-2"))
+				answer(exchange, 200, "{\"items\":[" + String.format(CAR, 2, userId) + "],\"nextCursor\":null}");
+			else
+				answer(exchange, 200, "{\"items\":[" + String.format(CAR, 1, userId) + "],\"nextCursor\":\"page-2\"}");
+		});
+		downstream.createContext("/api/v1/lapTops/byUserId/", exchange -> answer(exchange, 503, "{\"message\":\"Unavailable\"}"));
+		downstream.start();
+		String uri = "http://localhost:" + downstream.getAddress().getPort();
+		registry.add("spring.cloud.discovery.client.simple.instances.car-service[0].uri", () -> uri);
+		registry.add("spring.cloud.discovery.client.simple.instances.laptop-service[0].uri", () -> uri);
+	}
+
+	private static void answer(HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	@AfterAll
+	static void stopDownstreamServices() {
+		downstream.stop(0);
+	}
+
+	@BeforeEach
+	void createUser() {
+		User user = new User();
+		user.setFirstName("Grace");
+		user.setLastName("Hopper");
+		user.setUsername("grace" + System.nanoTime());
+		user.setEmail(user.getUsername() + "@example.com");
+		userId = userRepository.save(user).getId();
+		CAR_QUERIES.clear();
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void theAggregateChainsThePagesAndReportsAFailedSectionAsUnavailable() {
+		ResponseEntity<Map> response = restTemplate.getForEntity("/api/v2/users/cars-and-lapTops/" + userId, Map.class);
+
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat((Map<String, Object>) response.getBody().get("User")).containsEntry("id", userId.intValue());
+		List<Map<String, Object>> cars = (List<Map<String, Object>>) response.getBody().get("Cars");
+		assertThat(cars).extracting(car -> car.get("id")).containsExactly(1, 2);
+		assertThat(CAR_QUERIES).hasSize(2);
+		assertThat(CAR_QUERIES.get(1)).contains("cursor=page-2");
+		assertThat(response.getBody().get("LapTops")).isEqualTo("Sorry, LapTops are temporarily unavailable!");
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void onePageOfCarsIsPassedThroughWithItsCursor() {
+		ResponseEntity<Map> response = restTemplate.getForEntity("/api/v2/users/cars/" + userId + "?size=1", Map.class);
+
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat((List<Map<String, Object>>) response.getBody().get("items")).extracting(car -> car.get("id")).containsExactly(1);
+		assertThat(response.getBody()).containsEntry("nextCursor", "page-2");
+		assertThat(CAR_QUERIES).containsExactly("cursor=&size=1");
+	}
+
+	@Test
+	void anUnknownUserIsNotFound() {
+		ResponseEntity<Map> response = restTemplate.getForEntity("/api/v2/users/cars/" + (userId + 1000), Map.class);
+
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+		assertThat(response.getBody()).containsEntry("message", "User does not exist with ID:" + (userId + 1000));
+		assertThat(CAR_QUERIES).isEmpty();
+	}
+}
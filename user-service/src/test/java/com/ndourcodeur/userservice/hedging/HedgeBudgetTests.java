@@ -0,0 +1,33 @@
+package com.ndourcodeur.userservice.hedging;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HedgeBudgetTests {
+
+	@Test
+	void aHedgeCostsOneOverRatioRequests() {
+		HedgeBudget budget = new HedgeBudget(0.1, 10);
+		for (int i = 0; i < 9; i++)
+			budget.deposit();
+		assertThat(budget.tryWithdraw()).isFalse();
+
+		budget.deposit();
+		assertThat(budget.tryWithdraw()).isTrue();
+		assertThat(budget.tryWithdraw()).isFalse();
+	}
+
+	@Test
+	void savedUpHedgesAreCappedByTheBurst() {
+		HedgeBudget budget = new HedgeBudget(1.0, 3);
+		for (int i = 0; i < 10; i++)
+			budget.deposit();
+		assertThat(budget.tokens()).isEqualTo(3.0);
+
+		int hedges = 0;
+		while (budget.tryWithdraw())
+			hedges++;
+		assertThat(hedges).isEqualTo(3);
+	}
+}
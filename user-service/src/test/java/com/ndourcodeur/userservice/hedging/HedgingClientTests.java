@@ -0,0 +1,210 @@
+package com.ndourcodeur.userservice.hedging;
+
+import feign.Client;
+import feign.Contract;
+import feign.MethodMetadata;
+import feign.Request;
+import feign.RequestLine;
+import feign.RequestTemplate;
+import feign.Response;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ *    HedgingClient against a scripted delegate: the first call of each test warms up the latency
+ *    tracker (minSamples = 1), the next ones are the primary attempt and the hedge, in that order.
+ */
+class HedgingClientTests {
+
+	private static final long MIN_DELAY_MS = 50;
+
+	interface Api {
+
+		@Hedged
+		@RequestLine("GET /cars")
+		String cars();
+
+		@RequestLine("GET /lapTops")
+		String lapTops();
+	}
+
+	@FunctionalInterface
+	interface Attempt {
+
+		Response answer(Request request) throws IOException, InterruptedException;
+	}
+
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final AtomicInteger calls = new AtomicInteger();
+
+	@AfterEach
+	void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void theFirstResponseWinsAndTheLosingOneIsClosed() throws Exception {
+		CountDownLatch releasePrimary = new CountDownLatch(1);
+		AtomicBoolean primaryClosed = new AtomicBoolean();
+		HedgingClient client = client(new HedgeBudget(1.0, 10),
+				request -> response(request, "warm-up", null),
+				request -> {
+					releasePrimary.await();
+					return response(request, "primary", primaryClosed);
+				},
+				request -> response(request, "hedge", null));
+		warmUp(client);
+
+		try (Response response = client.execute(request("cars"), options())) {
+			assertThat(body(response)).isEqualTo("hedge");
+		}
+		releasePrimary.countDown();
+
+		for (int i = 0; i < 50 && !primaryClosed.get(); i++)
+			Thread.sleep(20);
+		assertThat(primaryClosed).isTrue();
+		assertThat(meterRegistry.counter("feign.hedging.hedges", "method", "Api#cars()").count()).isEqualTo(1);
+		assertThat(meterRegistry.counter("feign.hedging.wins", "method", "Api#cars()").count()).isEqualTo(1);
+	}
+
+	@Test
+	void noHedgeIsSentWhenTheBudgetIsEmpty() throws Exception {
+		HedgingClient client = client(new HedgeBudget(0.0, 10),
+				request -> response(request, "warm-up", null),
+				request -> {
+					Thread.sleep(3 * MIN_DELAY_MS);
+					return response(request, "primary", null);
+				},
+				request -> response(request, "hedge", null));
+		warmUp(client);
+
+		try (Response response = client.execute(request("cars"), options())) {
+			assertThat(body(response)).isEqualTo("primary");
+		}
+		assertThat(calls).hasValue(2);
+		assertThat(meterRegistry.counter("feign.hedging.budget.exhausted", "method", "Api#cars()").count()).isEqualTo(1);
+	}
+
+	@Test
+	void aFailedHedgeWaitsForThePrimary() throws Exception {
+		HedgingClient client = client(new HedgeBudget(1.0, 10),
+				request -> response(request, "warm-up", null),
+				request -> {
+					Thread.sleep(3 * MIN_DELAY_MS);
+					return response(request, "primary", null);
+				},
+				request -> {
+					throw new IOException("hedge failed");
+				});
+		warmUp(client);
+
+		try (Response response = client.execute(request("cars"), options())) {
+			assertThat(body(response)).isEqualTo("primary");
+		}
+	}
+
+	@Test
+	void theCallFailsOnlyOnceBothAttemptsFailed() throws Exception {
+		HedgingClient client = client(new HedgeBudget(1.0, 10),
+				request -> response(request, "warm-up", null),
+				request -> {
+					Thread.sleep(3 * MIN_DELAY_MS);
+					throw new IOException("primary failed");
+				},
+				request -> {
+					throw new IOException("hedge failed");
+				});
+		warmUp(client);
+
+		long start = System.nanoTime();
+		assertThatThrownBy(() -> client.execute(request("cars"), options()))
+				.isInstanceOf(IOException.class)
+				.hasMessage("primary failed");
+		assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(3 * MIN_DELAY_MS);
+		assertThat(calls).hasValue(3);
+	}
+
+	@Test
+	void requestsThatAreNotHedgedGoStraightToTheDelegate() throws Exception {
+		HedgingClient client = client(new HedgeBudget(1.0, 10),
+				request -> {
+					Thread.sleep(3 * MIN_DELAY_MS);
+					return response(request, "lapTops", null);
+				});
+
+		try (Response response = client.execute(request("lapTops"), options())) {
+			assertThat(body(response)).isEqualTo("lapTops");
+		}
+		assertThat(calls).hasValue(1);
+		assertThat(meterRegistry.find("feign.hedging.hedges").counter()).isNull();
+	}
+
+	private HedgingClient client(HedgeBudget budget, Attempt... attempts) {
+		Client delegate = (request, options) -> {
+			int call = calls.getAndIncrement();
+			try {
+				return attempts[call].answer(request);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new IOException(ex);
+			}
+		};
+		return new HedgingClient(delegate, executor, budget, meterRegistry, 0.95, MIN_DELAY_MS, 1);
+	}
+
+	private static void warmUp(HedgingClient client) throws IOException {
+		client.execute(request("cars"), options()).close();
+	}
+
+	private static Request request(String method) {
+		List<MethodMetadata> metadata = new Contract.Default().parseAndValidateMetadata(Api.class);
+		RequestTemplate template = new RequestTemplate().methodMetadata(metadata.stream()
+				.filter(candidate -> candidate.method().getName().equals(method))
+				.findFirst().orElseThrow());
+		return Request.create(Request.HttpMethod.GET, "http://car-service/" + method, Collections.emptyMap(), null,
+				StandardCharsets.UTF_8, template);
+	}
+
+	private static Request.Options options() {
+		return new Request.Options(1, TimeUnit.SECONDS, 1, TimeUnit.SECONDS, true);
+	}
+
+	private static Response response(Request request, String body, AtomicBoolean closed) {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		return Response.builder()
+				.status(200)
+				.request(request)
+				.headers(Map.of())
+				.body(new ByteArrayInputStream(bytes) {
+					@Override
+					public void close() {
+						if (closed != null)
+							closed.set(true);
+					}
+				}, bytes.length)
+				.build();
+	}
+
+	private static String body(Response response) throws IOException {
+		return new String(response.body().asInputStream().readAllBytes(), StandardCharsets.UTF_8);
+	}
+}
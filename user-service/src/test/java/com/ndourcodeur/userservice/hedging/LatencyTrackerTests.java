@@ -0,0 +1,40 @@
+package com.ndourcodeur.userservice.hedging;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyTrackerTests {
+
+	@Test
+	void noPercentileBeforeMinSamples() {
+		LatencyTracker tracker = new LatencyTracker();
+		for (int i = 1; i <= 9; i++)
+			tracker.record(TimeUnit.MILLISECONDS.toNanos(i));
+		assertThat(tracker.percentile(0.95, 10)).isEqualTo(-1);
+	}
+
+	@Test
+	void percentilesBeforeTheRingFillsIgnoreTheEmptySlots() {
+		for (double percentile : new double[]{0.5, 0.95, 1.0}) {
+			LatencyTracker tracker = new LatencyTracker();
+			for (int i = 1; i <= 20; i++)
+				tracker.record(TimeUnit.MILLISECONDS.toNanos(i));
+			long expected = TimeUnit.MILLISECONDS.toNanos((long) Math.ceil(percentile * 20));
+			assertThat(tracker.percentile(percentile, 10)).isEqualTo(expected);
+		}
+	}
+
+	@Test
+	void onlyTheLastCallsCountOnceTheRingHasWrapped() {
+		LatencyTracker tracker = new LatencyTracker();
+		// 1024 slow calls overwritten by 1024 fast ones
+		for (int i = 0; i < 1024; i++)
+			tracker.record(TimeUnit.SECONDS.toNanos(1));
+		for (int i = 0; i < 1024; i++)
+			tracker.record(TimeUnit.MILLISECONDS.toNanos(5));
+		assertThat(tracker.percentile(1.0, 10)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(5));
+	}
+}
@@ -0,0 +1,69 @@
+package com.ndourcodeur.userservice.loadbalancer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InstanceStatsTests {
+
+	private static final int FAILURES = 5;
+	private static final long BASE_MS = 10_000;
+	private static final long MAX_MS = 35_000;
+
+	@Test
+	void ejectedAfterConsecutiveFailuresInARow() {
+		InstanceStats stats = new InstanceStats();
+		long now = 1_000_000;
+		for (int i = 1; i < FAILURES; i++)
+			assertThat(stats.recordFailure(FAILURES, BASE_MS, MAX_MS, now)).isFalse();
+		assertThat(stats.isEjected(now)).isFalse();
+
+		assertThat(stats.recordFailure(FAILURES, BASE_MS, MAX_MS, now)).isTrue();
+		assertThat(stats.isEjected(now)).isTrue();
+		assertThat(stats.isEjected(now + BASE_MS - 1)).isTrue();
+		assertThat(stats.isEjected(now + BASE_MS)).isFalse();
+	}
+
+	@Test
+	void aSuccessResetsTheFailuresInARow() {
+		InstanceStats stats = new InstanceStats();
+		for (int i = 1; i < FAILURES; i++)
+			stats.recordFailure(FAILURES, BASE_MS, MAX_MS, 0);
+		stats.recordSuccess();
+
+		for (int i = 1; i < FAILURES; i++)
+			assertThat(stats.recordFailure(FAILURES, BASE_MS, MAX_MS, 0)).isFalse();
+	}
+
+	@Test
+	void ejectionsInARowLastLongerUpToTheMaximum() {
+		InstanceStats stats = new InstanceStats();
+		long now = 0;
+		// 10s, 20s, 30s, then capped at 35s
+		for (long expected : new long[]{10_000, 20_000, 30_000, MAX_MS, MAX_MS}) {
+			for (int i = 0; i < FAILURES; i++)
+				stats.recordFailure(FAILURES, BASE_MS, MAX_MS, now);
+			assertThat(stats.isEjected(now + expected - 1)).isTrue();
+			assertThat(stats.isEjected(now + expected)).isFalse();
+			now += expected;
+		}
+
+		// Back to the base time once the instance has answered again
+		stats.recordSuccess();
+		for (int i = 0; i < FAILURES; i++)
+			stats.recordFailure(FAILURES, BASE_MS, MAX_MS, now);
+		assertThat(stats.isEjected(now + BASE_MS)).isFalse();
+	}
+
+	@Test
+	void latencyIsSmoothedAndDecaysWithAge() {
+		InstanceStats stats = new InstanceStats();
+		assertThat(stats.getLatencyNanos(System.currentTimeMillis())).isZero();
+
+		stats.recordLatency(1_000);
+		stats.recordLatency(2_000);
+		long now = System.currentTimeMillis();
+		assertThat(stats.getLatencyNanos(now)).isBetween(1_250L, 1_300L);
+		assertThat(stats.getLatencyNanos(now + 1_000)).isBetween(600L, 650L);
+	}
+}
@@ -0,0 +1,100 @@
+package com.ndourcodeur.userservice.loadbalancer;
+
+import com.ndourcodeur.userservice.feignClients.CarClient;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *    Calls of CarClient spread over three local car-service instances: a fast one (2ms), a slow one (30ms)
+ *    and one that always answers 500.
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:load-balancing;MODE=MySQL;DB_CLOSE_DELAY=-1",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"projection.enabled=false",
+		"hedging.enabled=false",
+		"load-balancer.ejection.consecutive-failures=5",
+		"load-balancer.ejection.base-time-ms=60000"
+})
+class LoadBalancingTests {
+
+	private static final int CALLS = 200;
+	private static final List<HttpServer> INSTANCES = new ArrayList<>();
+	private static final AtomicInteger FAST = new AtomicInteger();
+	private static final AtomicInteger SLOW = new AtomicInteger();
+	private static final AtomicInteger FAILING = new AtomicInteger();
+
+	@Autowired
+	private CarClient carClient;
+
+	@DynamicPropertySource
+	static void carServiceInstances(DynamicPropertyRegistry registry) throws IOException {
+		String fast = instance(FAST, 2, 200);
+		String slow = instance(SLOW, 30, 200);
+		String failing = instance(FAILING, 0, 500);
+		registry.add("spring.cloud.discovery.client.simple.instances.car-service[0].uri", () -> fast);
+		registry.add("spring.cloud.discovery.client.simple.instances.car-service[1].uri", () -> slow);
+		registry.add("spring.cloud.discovery.client.simple.instances.car-service[2].uri", () -> failing);
+	}
+
+	private static String instance(AtomicInteger calls, long latencyMs, int status) throws IOException {
+		HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/api/v1/cars/byUserId/", exchange -> {
+			calls.incrementAndGet();
+			try {
+				Thread.sleep(latencyMs);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			answer(exchange, status);
+		});
+		server.start();
+		INSTANCES.add(server);
+		return "http://localhost:" + server.getAddress().getPort();
+	}
+
+	private static void answer(HttpExchange exchange, int status) throws IOException {
+		byte[] bytes = (status == 200 ? "{\"items\":[],\"nextCursor\":null}" : "{\"message\":\"Failed\"}").getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	@AfterAll
+	static void stopInstances() {
+		INSTANCES.forEach(server -> server.stop(0));
+	}
+
+	@Test
+	void theFailingInstanceIsEjectedAndTheFastOneTakesMostCalls() {
+		int answered = 0;
+		for (int i = 0; i < CALLS; i++)
+			if (carClient.fetchAllCarsByUserId(1L) != null)
+				answered++;
+
+		// Ejected after its 5th failure in a row, for longer than the test
+		assertThat(FAILING).hasValue(5);
+		assertThat(answered).isEqualTo(CALLS - 5);
+		assertThat(FAST.get()).isGreaterThan(SLOW.get() * 3);
+	}
+}
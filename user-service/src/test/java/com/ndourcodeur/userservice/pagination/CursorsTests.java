@@ -0,0 +1,126 @@
+package com.ndourcodeur.userservice.pagination;
+
+import com.ndourcodeur.userservice.controller.UserController;
+import com.ndourcodeur.userservice.exception.ControllerExceptionHandler;
+import com.ndourcodeur.userservice.exception.InvalidCursorException;
+import com.ndourcodeur.userservice.services.UserService;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class CursorsTests {
+
+	@Test
+	void aCursorDecodesToTheIdItWasEncodedFrom() {
+		for (long id : new long[]{1L, 42L, 1L << 40, Long.MAX_VALUE})
+			assertThat(Cursors.decode(Cursors.encode(id))).isEqualTo(id);
+	}
+
+	@Test
+	void noCursorStartsAtTheFirstPage() {
+		assertThat(Cursors.decode(null)).isZero();
+		assertThat(Cursors.decode("")).isZero();
+	}
+
+	@Test
+	void aCursorThatIsNotOneOfOursIsInvalid() {
+		// Not base64, then base64 of something that is not an id
+		assertThatThrownBy(() -> Cursors.decode("not-a-cursor!")).isInstanceOf(InvalidCursorException.class);
+		assertThatThrownBy(() -> Cursors.decode("YWJj")).isInstanceOf(InvalidCursorException.class);
+	}
+
+	@Test
+	void anInvalidCursorIsABadRequest() throws Exception {
+		UserService userService = Mockito.mock(UserService.class);
+		Mockito.when(userService.findAllUsers(any(), any())).thenAnswer(invocation -> {
+			Cursors.decode(invocation.getArgument(0));
+			return new CursorPage<>(Collections.emptyList(), null);
+		});
+		MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new UserController(userService))
+				.setControllerAdvice(new ControllerExceptionHandler())
+				.build();
+
+		mockMvc.perform(get("/api/v1/users/all").param("cursor", "not-a-cursor!"))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.message").value("Invalid cursor: not-a-cursor!"));
+		mockMvc.perform(get("/api/v1/users/all").param("cursor", Cursors.encode(10)))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	void exactlySizeRowsIsTheLastPage() {
+		CursorPage<Long> page = Cursors.page(Arrays.asList(1L, 2L, 3L), 3, Function.identity());
+
+		assertThat(page.getItems()).containsExactly(1L, 2L, 3L);
+		assertThat(page.getNextCursor()).isNull();
+	}
+
+	@Test
+	void oneRowMoreThanSizeGivesACursorAfterTheLastItem() {
+		CursorPage<Long> page = Cursors.page(Arrays.asList(1L, 2L, 3L, 4L), 3, Function.identity());
+
+		assertThat(page.getItems()).containsExactly(1L, 2L, 3L);
+		assertThat(Cursors.decode(page.getNextCursor())).isEqualTo(3L);
+	}
+
+	@Test
+	void thePageSizeIsBounded() {
+		assertThat(Cursors.pageSize(null)).isEqualTo(Cursors.DEFAULT_PAGE_SIZE);
+		assertThat(Cursors.pageSize(0)).isEqualTo(1);
+		assertThat(Cursors.pageSize(Cursors.MAX_PAGE_SIZE + 1)).isEqualTo(Cursors.MAX_PAGE_SIZE);
+	}
+
+	@Test
+	void theStreamFollowsTheCursorsAndStopsOnANullOne() {
+		List<String> requested = new ArrayList<>();
+		List<Long> items = Cursors.stream(cursor -> {
+			requested.add(cursor);
+			long after = Cursors.decode(cursor);
+			return after < 4 ? new CursorPage<>(Arrays.asList(after + 1, after + 2), Cursors.encode(after + 2))
+					: new CursorPage<>(Collections.singletonList(after + 1), null);
+		}).collect(Collectors.toList());
+
+		assertThat(items).containsExactly(1L, 2L, 3L, 4L, 5L);
+		assertThat(requested).containsExactly(null, Cursors.encode(2), Cursors.encode(4));
+	}
+
+	@Test
+	void theStreamOnlyRequestsThePagesItConsumes() {
+		List<String> requested = new ArrayList<>();
+		List<Long> items = Cursors.stream(cursor -> {
+			requested.add(cursor);
+			long after = Cursors.decode(cursor);
+			return new CursorPage<>(Arrays.asList(after + 1, after + 2), Cursors.encode(after + 2));
+		}).limit(3).collect(Collectors.toList());
+
+		assertThat(items).containsExactly(1L, 2L, 3L);
+		assertThat(requested).hasSize(2);
+	}
+
+	@Test
+	void anEmptyLastPageEndsTheStream() {
+		List<String> requested = new ArrayList<>();
+		long count = Cursors.stream(cursor -> {
+			requested.add(cursor);
+			return new CursorPage<Long>(Collections.emptyList(), null);
+		}).count();
+
+		assertThat(count).isZero();
+		assertThat(requested).containsExactly((String) null);
+	}
+}
@@ -0,0 +1,91 @@
+package com.ndourcodeur.userservice.projection;
+
+import com.ndourcodeur.userservice.repository.CarViewRepository;
+import com.ndourcodeur.userservice.repository.LapTopViewRepository;
+import com.ndourcodeur.userservice.repository.ProjectionCheckpointRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *    Checkpoint rows and tombstones of the projections, on H2, the poller being off.
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:projection-store;MODE=MySQL;DB_CLOSE_DELAY=-1",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"projection.enabled=false",
+		"projection.tombstone-retention-hours=1"
+})
+class ProjectionStoreTests {
+
+	private static final String CAR = "{\"id\":%d,\"name\":\"Corolla\",\"price\":23500.0,\"brand\":\"Toyota\",\"isInStock\":true,\"userId\":1}";
+	private static final String LAPTOP = "{\"id\":%d,\"lapTopName\":\"XPS 13\",\"lapTopPrice\":1299.0,\"lapTopBrand\":\"Dell\",\"isInStock\":true,\"userId\":1}";
+	private static final long SETTLE_MS = 10_000L;
+
+	@Autowired
+	private ProjectionStore projectionStore;
+
+	@Autowired
+	private ProjectionCheckpointRepository checkpointRepository;
+
+	@Autowired
+	private CarViewRepository carViewRepository;
+
+	@Autowired
+	private LapTopViewRepository lapTopViewRepository;
+
+	@Test
+	void checkpointsExistBeforeTheFirstPoll() {
+		for (ProjectionSource source : ProjectionSource.values())
+			assertThat(checkpointRepository.findById(source.name())).isPresent();
+	}
+
+	@Test
+	void tombstonesArePurgedOnceOlderThanTheRetention() {
+		long now = System.currentTimeMillis();
+		Date old = new Date(now - TimeUnit.HOURS.toMillis(2));
+		List<ChangeEvent> events = List.of(
+				new ChangeEvent(1001L, 101L, 1L, ChangeEvent.UPSERTED, String.format(CAR, 101), old),
+				new ChangeEvent(1002L, 102L, 1L, ChangeEvent.UPSERTED, String.format(CAR, 102), old),
+				new ChangeEvent(1003L, 101L, 1L, ChangeEvent.DELETED, null, old),
+				new ChangeEvent(1004L, 102L, 1L, ChangeEvent.DELETED, null, new Date(now)));
+		projectionStore.apply(ProjectionSource.CARS, 1000L, new ChangeEventPage(events, 1004L, new Date(now)), 0L);
+		assertThat(carViewRepository.findById(101L)).hasValueSatisfying(view -> assertThat(view.isDeleted()).isTrue());
+
+		projectionStore.purgeTombstones();
+
+		// Deleted two hours ago on the source: gone. Deleted just now: still guards against a late event
+		assertThat(carViewRepository.findById(101L)).isEmpty();
+		assertThat(carViewRepository.findById(102L)).hasValueSatisfying(view -> assertThat(view.isDeleted()).isTrue());
+	}
+
+	@Test
+	void anEventCommittedLateWithASmallerIdIsStillApplied() {
+		long now = System.currentTimeMillis();
+		// 2002 is stamped before 2003 but not committed yet when the first page is read
+		ChangeEventPage first = new ChangeEventPage(List.of(
+				new ChangeEvent(2001L, 201L, 1L, ChangeEvent.UPSERTED, String.format(LAPTOP, 201), new Date(now - 60_000)),
+				new ChangeEvent(2003L, 203L, 1L, ChangeEvent.UPSERTED, String.format(LAPTOP, 203), new Date(now - 1_000))),
+				2003L, new Date(now));
+		assertThat(projectionStore.apply(ProjectionSource.LAPTOPS, 0L, first, SETTLE_MS)).isEqualTo(2001L);
+		assertThat(lapTopViewRepository.findById(203L)).isPresent();
+
+		// The next poll starts at the checkpoint, so 2002 is read once committed, and 2003 is not applied twice
+		ChangeEventPage second = new ChangeEventPage(List.of(
+				new ChangeEvent(2002L, 202L, 1L, ChangeEvent.UPSERTED, String.format(LAPTOP, 202), new Date(now - 2_000)),
+				new ChangeEvent(2003L, 203L, 1L, ChangeEvent.UPSERTED, String.format(LAPTOP, 203), new Date(now - 1_000))),
+				2003L, new Date(now + SETTLE_MS));
+		assertThat(projectionStore.apply(ProjectionSource.LAPTOPS, 2001L, second, SETTLE_MS)).isEqualTo(2003L);
+		assertThat(lapTopViewRepository.findById(202L)).hasValueSatisfying(view -> assertThat(view.getLastEventId()).isEqualTo(2002L));
+		assertThat(checkpointRepository.findById(ProjectionSource.LAPTOPS.name()))
+				.hasValueSatisfying(checkpoint -> assertThat(checkpoint.getLastEventId()).isEqualTo(2003L));
+	}
+}
@@ -0,0 +1,163 @@
+package com.ndourcodeur.userservice.services;
+
+import com.ndourcodeur.userservice.entity.PendingUserDeletion;
+import com.ndourcodeur.userservice.repository.PendingUserDeletionRepository;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ *    Retries of the user deletion cascade, on H2: car-service and laptop-service stubbed by one local HTTP
+ *    server whose car deletions fail until told otherwise.
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:user-deletion-cascade;MODE=MySQL;DB_CLOSE_DELAY=-1",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"projection.enabled=false",
+		"hedging.enabled=false",
+		// Runs are started by the tests only
+		"user-deletion.cascade.interval-ms=3600000",
+		"user-deletion.cascade.backoff-ms=60000",
+		"user-deletion.cascade.max-backoff-ms=150000"
+})
+class UserDeletionCascadeTests {
+
+	private static final List<String> DELETIONS = new CopyOnWriteArrayList<>();
+	private static volatile boolean carsFail;
+	private static volatile Runnable beforeCarsFail = () -> { };
+	private static HttpServer downstream;
+
+	@Autowired
+	private UserDeletionCascade cascade;
+
+	@Autowired
+	private PendingUserDeletionRepository pendingUserDeletionRepository;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@DynamicPropertySource
+	static void downstreamServices(DynamicPropertyRegistry registry) throws IOException {
+		downstream = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		downstream.createContext("/api/v1/cars/byUserId/", exchange -> {
+			if (carsFail) {
+				beforeCarsFail.run();
+				answer(exchange, 503, "{\"message\":\"Unavailable\"}");
+			} else {
+				answer(exchange, 200, "{\"message\":\"Deleted\"}");
+			}
+		});
+		downstream.createContext("/api/v1/lapTops/byUserId/", exchange -> answer(exchange, 200, "{\"message\":\"Deleted\"}"));
+		downstream.start();
+		String uri = "http://localhost:" + downstream.getAddress().getPort();
+		registry.add("spring.cloud.discovery.client.simple.instances.car-service[0].uri", () -> uri);
+		registry.add("spring.cloud.discovery.client.simple.instances.laptop-service[0].uri", () -> uri);
+	}
+
+	private static void answer(HttpExchange exchange, int status, String body) throws IOException {
+		if (status == 200)
+			DELETIONS.add(exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath());
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	@AfterAll
+	static void stopDownstreamServices() {
+		downstream.stop(0);
+	}
+
+	@BeforeEach
+	void reset() {
+		pendingUserDeletionRepository.deleteAll();
+		DELETIONS.clear();
+		carsFail = false;
+		beforeCarsFail = () -> { };
+	}
+
+	@Test
+	void failedDeletionsAreRetriedWithAnExponentialBackoff() throws InterruptedException {
+		Date now = new Date();
+		pendingUserDeletionRepository.save(new PendingUserDeletion(7L, now, now, 0, null));
+		carsFail = true;
+
+		// 60s, then 120s, then capped at 150s
+		long[] delays = {60_000, 120_000, 150_000};
+		for (int attempt = 1; attempt <= delays.length; attempt++) {
+			long started = System.currentTimeMillis();
+			int previous = attempt - 1;
+			PendingUserDeletion deletion = runUntil(row -> row.isPresent() && row.get().getAttempts() > previous).orElseThrow();
+			assertThat(deletion.getAttempts()).isEqualTo(attempt);
+			assertThat(deletion.getNextAttemptAt().getTime() - started).isCloseTo(delays[attempt - 1], within(5_000L));
+			assertThat(deletion.getLastError()).contains("503");
+			makeDue(deletion);
+		}
+		assertThat(DELETIONS).isEmpty();
+
+		carsFail = false;
+		runUntil(Optional::isEmpty);
+		assertThat(DELETIONS).containsExactly("DELETE /api/v1/cars/byUserId/7", "DELETE /api/v1/lapTops/byUserId/7");
+	}
+
+	@Test
+	void aDeletionCompletedElsewhereIsNotRecreatedByAFailure() throws InterruptedException {
+		Date now = new Date();
+		pendingUserDeletionRepository.save(new PendingUserDeletion(8L, now, now, 0, null));
+		carsFail = true;
+		// Another instance completes the deletion while this one is waiting for car-service
+		beforeCarsFail = () -> pendingUserDeletionRepository.deleteById(8L);
+
+		double failures = failures();
+		cascade.requestRun();
+		for (int i = 0; i < 100 && failures() == failures; i++)
+			Thread.sleep(100);
+
+		assertThat(failures()).isEqualTo(failures + 1);
+		assertThat(pendingUserDeletionRepository.findById(8L)).isEmpty();
+	}
+
+	private double failures() {
+		return meterRegistry.counter("user.deletion.cascade", "outcome", "failure").count();
+	}
+
+	private void makeDue(PendingUserDeletion deletion) {
+		deletion.setNextAttemptAt(new Date());
+		pendingUserDeletionRepository.save(deletion);
+	}
+
+	private Optional<PendingUserDeletion> runUntil(Predicate<Optional<PendingUserDeletion>> done) throws InterruptedException {
+		cascade.requestRun();
+		for (int i = 0; i < 100; i++) {
+			Optional<PendingUserDeletion> deletion = pendingUserDeletionRepository.findAll().stream().findFirst();
+			if (done.test(deletion))
+				return deletion;
+			Thread.sleep(100);
+		}
+		throw new AssertionError("The cascade did not run");
+	}
+}
@@ -0,0 +1,57 @@
+package com.ndourcodeur.userservice.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *    Sized like user-identity.bloom in application.properties: 1,000,000 insertions at a 1% false positive rate.
+ */
+class BloomFilterTests {
+
+	private static final int EXPECTED_INSERTIONS = 1_000_000;
+	private static final double FALSE_POSITIVE_RATE = 0.01;
+
+	@Test
+	void everyValuePutIsFound() {
+		BloomFilter filter = new BloomFilter(EXPECTED_INSERTIONS, FALSE_POSITIVE_RATE);
+		for (int i = 0; i < EXPECTED_INSERTIONS; i++)
+			filter.put("user" + i + "@example.com");
+
+		for (int i = 0; i < EXPECTED_INSERTIONS; i++)
+			assertThat(filter.mightContain("user" + i + "@example.com")).isTrue();
+	}
+
+	@Test
+	void everyValuePutFromConcurrentThreadsIsFound() {
+		BloomFilter filter = new BloomFilter(EXPECTED_INSERTIONS, FALSE_POSITIVE_RATE);
+		IntStream.range(0, EXPECTED_INSERTIONS).parallel().forEach(i -> filter.put("user" + i));
+
+		assertThat(IntStream.range(0, EXPECTED_INSERTIONS).filter(i -> !filter.mightContain("user" + i)).count()).isZero();
+	}
+
+	@Test
+	void theFalsePositiveRateIsCloseToTheConfiguredOneAtTheExpectedInsertions() {
+		BloomFilter filter = new BloomFilter(EXPECTED_INSERTIONS, FALSE_POSITIVE_RATE);
+		for (int i = 0; i < EXPECTED_INSERTIONS; i++)
+			filter.put("user" + i + "@example.com");
+
+		int probes = 1_000_000;
+		int falsePositives = 0;
+		for (int i = 0; i < probes; i++)
+			if (filter.mightContain("absent" + i + "@example.com"))
+				falsePositives++;
+
+		assertThat((double) falsePositives / probes).isBetween(FALSE_POSITIVE_RATE * 0.7, FALSE_POSITIVE_RATE * 1.3);
+	}
+
+	@Test
+	void anEmptyFilterContainsNothing() {
+		BloomFilter filter = new BloomFilter(0, FALSE_POSITIVE_RATE);
+
+		assertThat(filter.mightContain("")).isFalse();
+		assertThat(filter.mightContain("user@example.com")).isFalse();
+	}
+}
@@ -0,0 +1,181 @@
+package com.ndourcodeur.userservice.tracing;
+
+import com.ndourcodeur.userservice.entity.User;
+import com.ndourcodeur.userservice.repository.UserRepository;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *    The span breakdown of the aggregation endpoints, read back from the InMemorySpanExporter: user-service on H2,
+ *    car-service and laptop-service stubbed by one local HTTP server that records the B3 headers it receives.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"spring.datasource.url=jdbc:h2:mem:trace-breakdown;MODE=MySQL;DB_CLOSE_DELAY=-1",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"tracing.in-memory.enabled=true",
+		// Cars and lapTops from the downstream services, not from the local read model
+		"projection.enabled=false",
+		"hedging.enabled=false"
+})
+class TraceBreakdownTests {
+
+	private static final Map<String, Map<String, String>> DOWNSTREAM_HEADERS = new ConcurrentHashMap<>();
+	private static HttpServer downstream;
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private InMemorySpanExporter exporter;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	private Long userId;
+
+	@DynamicPropertySource
+	static void downstreamServices(DynamicPropertyRegistry registry) throws IOException {
+		downstream = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		downstream.createContext("/api/v1/cars/byUserId/", exchange -> answer(exchange.getRequestURI().getPath(), exchange,
+				"{\"items\":[{\"id\":1,\"name\":\"Car 1\",\"price\":100.0,\"brand\":\"Toyota\",\"userId\":%s}],\"nextCursor\":null}"));
+		downstream.createContext("/api/v1/lapTops/byUserId/", exchange -> answer(exchange.getRequestURI().getPath(), exchange,
+				"{\"items\":[{\"id\":1,\"name\":\"LapTop 1\",\"price\":100.0,\"brand\":\"Dell\",\"userId\":%s}],\"nextCursor\":null}"));
+		downstream.start();
+		String uri = "http://localhost:" + downstream.getAddress().getPort();
+		registry.add("spring.cloud.discovery.client.simple.instances.car-service[0].uri", () -> uri);
+		registry.add("spring.cloud.discovery.client.simple.instances.laptop-service[0].uri", () -> uri);
+	}
+
+	private static void answer(String path, HttpExchange exchange, String body) throws IOException {
+		DOWNSTREAM_HEADERS.put(path, exchange.getRequestHeaders().entrySet().stream()
+				.collect(Collectors.toMap(header -> header.getKey().toLowerCase(), header -> header.getValue().get(0))));
+		byte[] bytes = String.format(body, path.substring(path.lastIndexOf('/') + 1)).getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.sendResponseHeaders(200, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	@AfterAll
+	static void stopDownstreamServices() {
+		downstream.stop(0);
+	}
+
+	@BeforeEach
+	void createUser() {
+		User user = new User();
+		user.setFirstName("Ada");
+		user.setLastName("Lovelace");
+		user.setUsername("ada" + System.nanoTime());
+		user.setEmail(user.getUsername() + "@example.com");
+		userId = userRepository.save(user).getId();
+		exporter.clear();
+		DOWNSTREAM_HEADERS.clear();
+	}
+
+	@Test
+	void aggregationTracesTheUserQueryAndBothFeignCalls() throws InterruptedException {
+		String traceId = get("/api/v1/users/cars-and-lapTops/" + userId);
+		List<RecordedSpan> spans = spans(traceId);
+
+		// The server span joins the caller's span (B3), the rest of the trace hangs under it
+		RecordedSpan server = only(spans, span -> "SERVER".equals(span.getKind()));
+		assertThat(server.getSpanId()).isEqualTo(traceId);
+		assertThat(server.getName()).isEqualTo("GET /api/v1/users/cars-and-lapTops/{userId}");
+
+		RecordedSpan query = only(spans, span -> "UserRepository.findResponseById".equals(span.getName()));
+		assertThat(query.getParentId()).isEqualTo(server.getSpanId());
+
+		// Each Feign call runs on the aggregation executor, in a span of its own under the server span
+		for (String path : List.of("/api/v1/cars/byUserId/" + userId, "/api/v1/lapTops/byUserId/" + userId)) {
+			RecordedSpan client = only(spans, span -> "CLIENT".equals(span.getKind()) && path.equals(span.getTags().get("http.path")));
+			RecordedSpan task = only(spans, span -> span.getSpanId().equals(client.getParentId()));
+			assertThat(task.getName()).isEqualTo("aggregationExecutor");
+			assertThat(task.getParentId()).isEqualTo(server.getSpanId());
+			assertThat(DOWNSTREAM_HEADERS.get(path))
+					.containsEntry("x-b3-traceid", traceId)
+					.containsEntry("x-b3-spanid", client.getSpanId())
+					.containsEntry("x-b3-parentspanid", task.getSpanId());
+		}
+	}
+
+	@Test
+	void pagesOfCarsTraceTheRestTemplateCall() throws InterruptedException {
+		String traceId = get("/api/v1/users/cars/" + userId);
+		List<RecordedSpan> spans = spans(traceId);
+
+		RecordedSpan server = only(spans, span -> "SERVER".equals(span.getKind()));
+		assertThat(server.getName()).isEqualTo("GET /api/v1/users/cars/{userId}");
+		assertThat(only(spans, span -> "UserRepository.findResponseById".equals(span.getName())).getParentId())
+				.isEqualTo(server.getSpanId());
+
+		String path = "/api/v1/cars/byUserId/" + userId;
+		RecordedSpan client = only(spans, span -> "CLIENT".equals(span.getKind()));
+		assertThat(client.getTags()).containsEntry("http.path", path);
+		assertThat(client.getParentId()).isEqualTo(server.getSpanId());
+		assertThat(DOWNSTREAM_HEADERS.get(path))
+				.containsEntry("x-b3-traceid", traceId)
+				.containsEntry("x-b3-spanid", client.getSpanId());
+	}
+
+	private static RecordedSpan only(List<RecordedSpan> spans, Predicate<RecordedSpan> filter) {
+		List<RecordedSpan> matching = spans.stream().filter(filter).collect(Collectors.toList());
+		assertThat(matching).as("spans of %s", spans).hasSize(1);
+		return matching.get(0);
+	}
+
+	// Joins a trace of our own, sampled, so that its spans can be found by id. A plain RestTemplate: the context's are
+	// traced and would start a trace of their own
+	private String get(String path) {
+		String traceId = String.format("%016x", ThreadLocalRandom.current().nextLong());
+		HttpHeaders headers = new HttpHeaders();
+		headers.add("X-B3-TraceId", traceId);
+		headers.add("X-B3-SpanId", traceId);
+		headers.add("X-B3-Sampled", "1");
+		ResponseEntity<String> response = new RestTemplate().exchange("http://localhost:" + port + path, HttpMethod.GET,
+				new HttpEntity<>(headers), String.class);
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+		return traceId;
+	}
+
+	// The server span ends once the answer is written, possibly after the client has read it
+	private List<RecordedSpan> spans(String traceId) throws InterruptedException {
+		for (int i = 0; i < 50; i++) {
+			List<RecordedSpan> spans = exporter.spans(traceId);
+			if (spans.stream().anyMatch(span -> "SERVER".equals(span.getKind())))
+				return spans;
+			Thread.sleep(100);
+		}
+		return exporter.spans(traceId);
+	}
+}